@@ -10,23 +10,33 @@ import com.denizenscript.denizencore.scripts.ScriptHelper;
 import com.denizenscript.denizencore.scripts.ScriptRegistry;
 import com.denizenscript.denizencore.scripts.commands.CommandRegistry;
 import com.denizenscript.denizencore.scripts.commands.queue.RunLaterCommand;
+import com.denizenscript.denizencore.scripts.commands.queue.WaitUntilCommand;
 import com.denizenscript.denizencore.scripts.containers.ScriptContainer;
+import com.denizenscript.denizencore.scripts.queues.QueueWatchdog;
 import com.denizenscript.denizencore.scripts.queues.core.TimedQueue;
 import com.denizenscript.denizencore.tags.Attribute;
 import com.denizenscript.denizencore.tags.ReplaceableTagEvent;
 import com.denizenscript.denizencore.tags.TagManager;
+import com.denizenscript.denizencore.utilities.CoreConfiguration;
 import com.denizenscript.denizencore.utilities.CoreUtilities;
+import com.denizenscript.denizencore.utilities.DefinitionSlots;
 import com.denizenscript.denizencore.utilities.PropertyMatchHelper;
 import com.denizenscript.denizencore.utilities.ReflectionHelper;
+import com.denizenscript.denizencore.utilities.codegen.CodeGenUtil;
 import com.denizenscript.denizencore.utilities.debugging.*;
-import com.denizenscript.denizencore.utilities.scheduling.AsyncSchedulable;
+import com.denizenscript.denizencore.utilities.scheduling.AsyncExecutor;
+import com.denizenscript.denizencore.utilities.scheduling.MainThreadInbox;
 import com.denizenscript.denizencore.utilities.scheduling.OneTimeSchedulable;
 import com.denizenscript.denizencore.utilities.scheduling.Schedulable;
+import com.denizenscript.denizencore.utilities.scheduling.TickBudget;
+import com.denizenscript.denizencore.utilities.scheduling.TimingWheel;
 
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Properties;
 
 /**
@@ -92,15 +102,44 @@ public class DenizenCore {
     public static long serverTimeMillis = 1;
 
     /**
-     * All current scheduled tasks.
+     * All current scheduled tasks, in a timing wheel keyed on serverTimeMillis.
+     * Synchronize on this when accessing.
      */
+    public static final TimingWheel<Schedulable> scheduledTasks = new TimingWheel<>(serverTimeMillis);
+
+    /**
+     * Legacy list of scheduled tasks. Tasks added directly to this list (while synchronized on it) are moved into 'scheduledTasks' on the next tick.
+     * Use 'schedule' to schedule a task, or 'getScheduled' to get the list of scheduled tasks.
+     */
+    @Deprecated
     public static final ArrayList<Schedulable> scheduled = new ArrayList<>();
 
     /**
-     * All current delayed queues.
+     * Tasks sent to the main thread by 'runOnMainThread' from other threads, drained once per tick.
+     */
+    public static final MainThreadInbox mainThreadInbox = new MainThreadInbox();
+
+    /**
+     * Reusable list of scheduled tasks that are due in the current tick.
+     */
+    static final ArrayList<Schedulable> dueScheduled = new ArrayList<>();
+
+    /**
+     * All current timed queues that are awake (ie, need to be checked every tick).
      */
     public static final ArrayList<TimedQueue> timedQueues = new ArrayList<>();
 
+    /**
+     * All current timed queues that are sleeping until a known delay ends, in a timing wheel keyed on serverTimeMillis.
+     * Queues that are paused or waiting on a held command are in neither list, and are woken by 'TimedQueue.wakeUp'.
+     */
+    public static final TimingWheel<TimedQueue> sleepingQueues = new TimingWheel<>(serverTimeMillis);
+
+    /**
+     * Reusable list of sleeping queues whose delay ends in the current tick.
+     */
+    static final ArrayList<TimedQueue> wokenQueues = new ArrayList<>();
+
     /**
      * Implementation helper class, must be implemented for Denizen to function.
      */
@@ -185,6 +224,12 @@ public class DenizenCore {
                 ScriptEvent.worldContainers.clear();
                 PropertyMatchHelper.matchHelperCache.clear();
                 implementation.preScriptReload();
+                // Caches can hold code generated for the old scripts (and definition slots), so clear them before the new scripts load to let that code unload
+                TagManager.preCalced.clear();
+                ReplaceableTagEvent.refs.clear();
+                Attribute.attribsLookup.clear();
+                DefinitionSlots.resetIfUnused();
+                CodeGenUtil.startScriptGeneration();
             }, (midpoint) -> {
                 long completion = CoreUtilities.monotonicMillis();
                 Debug.log("Scripts loaded! File load took <A>" + (midpoint - start) + "<W>ms, processing <A>" + (completion - midpoint) + "<W>ms.");
@@ -208,8 +253,10 @@ public class DenizenCore {
             TagManager.preCalced.clear();
             Attribute.attribsLookup.clear();
             ReplaceableTagEvent.refs.clear();
+            ScriptEvent.knownMatchers.clear();
             ScriptRegistry.postLoadScripts();
             for (ScriptContainer container : ScriptRegistry.scriptContainers.values()) {
+                container.getRuntimeData();
                 container.postCheck();
             }
             ScriptEvent.reload();
@@ -242,15 +289,88 @@ public class DenizenCore {
      * Schedule an item to be run automatically after a given period of time, optionally repeating.
      */
     public static void schedule(Schedulable sched) {
+        synchronized (scheduledTasks) {
+            long now = scheduledTasks.getCurrentTime();
+            sched.lastTickTime = now;
+            sched.scheduledEntry = scheduledTasks.add(sched, now + getScheduleDelay(sched));
+        }
+    }
+
+    /**
+     * Removes a scheduled item, if it's currently waiting in the scheduler. Generally, call 'Schedulable.cancel' rather than calling this directly.
+     */
+    public static void unschedule(Schedulable sched) {
+        synchronized (scheduledTasks) {
+            if (sched.scheduledEntry != null) {
+                scheduledTasks.remove(sched.scheduledEntry);
+                sched.scheduledEntry = null;
+            }
+        }
+    }
+
+    /**
+     * Returns a new list of all currently scheduled items, in no particular order.
+     */
+    public static List<Schedulable> getScheduled() {
+        ArrayList<Schedulable> result = new ArrayList<>();
+        synchronized (scheduledTasks) {
+            scheduledTasks.collect(result);
+        }
+        return result;
+    }
+
+    /**
+     * Returns how many milliseconds a schedulable should sleep for before its next tick, based on its 'secondsLeft' value.
+     */
+    static long getScheduleDelay(Schedulable sched) {
+        return sched.secondsLeft > 0 ? Math.round(sched.secondsLeft * 1000d) : 0;
+    }
+
+    /**
+     * Ticks all scheduled tasks that are due, and re-schedules the ones that are still running.
+     */
+    @SuppressWarnings("deprecation")
+    static void tickScheduled() {
         synchronized (scheduled) {
-            scheduled.add(sched);
+            if (!scheduled.isEmpty()) {
+                for (Schedulable sched : scheduled) {
+                    schedule(sched);
+                }
+                scheduled.clear();
+            }
+        }
+        synchronized (scheduledTasks) {
+            scheduledTasks.advance(serverTimeMillis, dueScheduled);
         }
+        if (dueScheduled.isEmpty()) {
+            return;
+        }
+        for (int i = 0; i < dueScheduled.size(); i++) {
+            Schedulable current = dueScheduled.get(i);
+            boolean keep;
+            try {
+                float seconds = (float) (serverTimeMillis - current.lastTickTime) / 1000;
+                current.lastTickTime = serverTimeMillis;
+                keep = current.tick(seconds);
+            }
+            catch (Throwable ex) {
+                Debug.echoError("DenizenCore - Scheduler item failed");
+                Debug.echoError(ex);
+                keep = !(current instanceof OneTimeSchedulable);
+            }
+            if (keep && !current.cancelled) {
+                synchronized (scheduledTasks) {
+                    current.scheduledEntry = scheduledTasks.add(current, serverTimeMillis + getScheduleDelay(current));
+                }
+            }
+        }
+        dueScheduled.clear();
     }
 
     /** Returns true if called from the thread that DenizenCore understands to be the main thread, or false if on a different thread. */
     public static boolean isMainThread() {
         Thread curThread = Thread.currentThread();
-        return curThread.equals(MAIN_THREAD) || curThread.equals(TagManager.tagThread);
+        return curThread.equals(MAIN_THREAD);
     }
 
     /** Runs the task immediately if called on main thread, or later if called off-thread. */
@@ -259,19 +379,20 @@ public class DenizenCore {
             run.run();
         }
         else {
-            schedule(new OneTimeSchedulable(run, 0));
+            mainThreadInbox.add(run);
         }
     }
 
     /** Runs the task on a separate thread. */
     public static void runAsync(Runnable run) {
-        AsyncSchedulable.executor.execute(run);
+        AsyncExecutor.execute(run);
     }
 
     /**
      * Ran by 'tick' once per second.
      */
     static void oncePerSecond() {
+        mainThreadInbox.updateRate();
         SystemTimeScriptEvent.instance.checkTime();
         DeltaTimeScriptEvent.instance.checkTime();
     }
@@ -281,13 +402,36 @@ public class DenizenCore {
      */
     static int tMS = 0;
 
+    /**
+     * Index into 'timedQueues' of the next queue to revolve in the current tick, and how many queues have been kept so far.
+     */
+    static int timedQueuePassIndex = 0, timedQueuePassKept = 0;
+
+    /**
+     * Tracks the optional per-tick time budget (CoreConfiguration.tickBudgetMillis), and the deferrable work sources it spreads across ticks.
+     */
+    public static final TickBudget tickBudget = new TickBudget(
+            new TickBudget.WorkSource("timed_queues", DenizenCore::revolveNextTimedQueue, () -> timedQueues.size() - timedQueuePassIndex),
+            new TickBudget.WorkSource("runlater", RunLaterCommand::launchNextDueRun, () -> RunLaterCommand.dueRuns.size()),
+            new TickBudget.WorkSource("main_thread_tasks", DenizenCore::runNextMainThreadTask, mainThreadInbox::getBacklog));
+
     /**
      * Call every 'tick' in the engine. (1/20th of a second on a standard engine.)
      *
      * @param ms_elapsed how many MS have actually elapsed. (50 on a standard engine).
      */
     public static void tick(int ms_elapsed) {
+        boolean profiling = CoreConfiguration.tickProfiling;
+        long tickStart = 0, time = 0;
+        if (profiling) {
+            tickStart = time = TickProfiler.startTick();
+        }
         DebugInternals.onTick();
+        if (profiling) {
+            time = TickProfiler.record(TickProfiler.DEBUG, time);
+        }
+        boolean budgeted = tickBudget.startTick(CoreConfiguration.tickBudgetMillis);
+        QueueWatchdog.startTick();
         serverTimeMillis += ms_elapsed;
         currentTimeMillis = System.currentTimeMillis();
         currentTimeMonotonicMillis = CoreUtilities.monotonicMillis();
@@ -295,35 +439,121 @@ public class DenizenCore {
         if (TickScriptEvent.instance.eventData.isEnabled) {
             TickScriptEvent.instance.fire();
         }
-        RunLaterCommand.tickFutureRuns();
+        if (profiling) {
+            time = TickProfiler.record(TickProfiler.TICK_EVENT, time);
+        }
+        if (budgeted) {
+            RunLaterCommand.collectDueRuns();
+        }
+        else {
+            RunLaterCommand.tickFutureRuns();
+        }
+        if (profiling) {
+            time = TickProfiler.record(TickProfiler.RUNLATER, time);
+        }
         tMS += ms_elapsed;
         while (tMS > 1000) {
             tMS -= 1000;
             oncePerSecond();
         }
-        synchronized (scheduled) {
-            for (int i = 0; i < scheduled.size(); i++) {
-                Schedulable current = scheduled.get(i);
-                try {
-                    if (!current.tick((float) ms_elapsed / 1000)) {
-                        scheduled.remove(i--);
-                    }
-                }
-                catch (Throwable ex) {
-                    Debug.echoError("DenizenCore - Scheduler item failed");
-                    Debug.echoError(ex);
-                    if (current instanceof OneTimeSchedulable) {
-                        scheduled.remove(i--);
-                    }
-                }
+        if (profiling) {
+            time = TickProfiler.record(TickProfiler.ONCE_PER_SECOND, time);
+        }
+        if (!budgeted) {
+            mainThreadInbox.drain(CoreConfiguration.mainThreadTaskLimitPerTick);
+            if (profiling) {
+                time = TickProfiler.record(TickProfiler.MAIN_THREAD_TASKS, time);
             }
         }
-        for (int i = 0; i < timedQueues.size(); i++) {
-            TimedQueue queue = timedQueues.get(i);
-            queue.tryRevolveOnce();
-            if (queue.isStopped) {
-                timedQueues.remove(i--);
+        ScriptEvent.afterEventBuffer.drain();
+        if (profiling) {
+            time = TickProfiler.record(TickProfiler.AFTER_EVENTS, time);
+        }
+        tickScheduled();
+        WaitUntilCommand.tickWatchers();
+        if (profiling) {
+            time = TickProfiler.record(TickProfiler.SCHEDULED, time);
+        }
+        wakeSleepingQueues();
+        if (budgeted) {
+            // Timed queues themselves run as part of the budgeted work, so only the wakeup counts as the timed queue phase here
+            if (profiling) {
+                time = TickProfiler.record(TickProfiler.TIMED_QUEUES, time);
+            }
+            tickBudget.runDeferred();
+            mainThreadInbox.endTick();
+            finishTimedQueuePass();
+            if (profiling) {
+                TickProfiler.record(TickProfiler.BUDGETED_WORK, time);
             }
         }
+        else {
+            while (revolveNextTimedQueue()) {
+            }
+            finishTimedQueuePass();
+            if (profiling) {
+                TickProfiler.record(TickProfiler.TIMED_QUEUES, time);
+            }
+        }
+        if (profiling) {
+            TickProfiler.endTick(tickStart);
+        }
+    }
+
+    /**
+     * Runs the next main thread task for the tick budget, respecting CoreConfiguration.mainThreadTaskLimitPerTick.
+     */
+    static boolean runNextMainThreadTask() {
+        int limit = CoreConfiguration.mainThreadTaskLimitPerTick;
+        if (limit > 0 && mainThreadInbox.currentTickDrained >= limit) {
+            return false;
+        }
+        return mainThreadInbox.runNext();
+    }
+
+    /**
+     * Wakes any sleeping queues that are due, moving them back into the awake list.
+     */
+    static void wakeSleepingQueues() {
+        sleepingQueues.advance(serverTimeMillis, wokenQueues);
+        for (int i = 0; i < wokenQueues.size(); i++) {
+            TimedQueue queue = wokenQueues.get(i);
+            queue.wakeupEntry = null;
+            queue.wakeUp();
+        }
+        wokenQueues.clear();
+    }
+
+    /**
+     * Revolves the next awake queue for the current tick (compacting out any that stopped or went back to sleep),
+     * returning false if all awake queues have already been revolved.
+     */
+    static boolean revolveNextTimedQueue() {
+        if (timedQueuePassIndex >= timedQueues.size()) {
+            return false;
+        }
+        TimedQueue queue = timedQueues.get(timedQueuePassIndex++);
+        queue.tryRevolveOnce();
+        if (queue.isStopped) {
+            queue.isAwake = false;
+        }
+        else if (!queue.trySleep()) {
+            timedQueues.set(timedQueuePassKept++, queue);
+        }
+        return true;
+    }
+
+    /**
+     * Ends the tick's pass over 'timedQueues'. If the pass was cut short by the tick budget,
+     * the queues that weren't reached are moved to the front so they go first next tick.
+     */
+    static void finishTimedQueuePass() {
+        int size = timedQueues.size();
+        timedQueues.subList(timedQueuePassKept, timedQueuePassIndex).clear();
+        if (timedQueuePassIndex < size) {
+            Collections.rotate(timedQueues, size - timedQueuePassIndex);
+        }
+        timedQueuePassIndex = 0;
+        timedQueuePassKept = 0;
     }
 }
@@ -0,0 +1,86 @@
+package com.denizenscript.denizencore.events;
+
+import com.denizenscript.denizencore.objects.core.ElementTag;
+import com.denizenscript.denizencore.objects.core.MapTag;
+import com.denizenscript.denizencore.utilities.debugging.Debug;
+
+import java.util.ArrayList;
+
+/**
+ * Buffers the 'after' paths of fired events, to be ran once per tick by DenizenCore.tick (right before scheduled tasks).
+ * Paths are ran in the order they were added, so the priority order within a single event fire is kept.
+ * Paths added while draining (ie, 'after' events fired by an 'after' event) are ran in the next drain.
+ */
+public class AfterEventBuffer {
+
+    private ArrayList<ScriptEvent> events = new ArrayList<>(), drainingEvents = new ArrayList<>();
+
+    private ArrayList<ScriptEvent.ScriptPath> paths = new ArrayList<>(), drainingPaths = new ArrayList<>();
+
+    public int lastTickDrained = 0, maxDepth = 0;
+
+    public long totalDrained = 0;
+
+    /**
+     * Adds an event copy and path to be ran during the next drain. Safe to call from any thread.
+     */
+    public synchronized void add(ScriptEvent event, ScriptEvent.ScriptPath path) {
+        events.add(event);
+        paths.add(path);
+        if (events.size() > maxDepth) {
+            maxDepth = events.size();
+        }
+    }
+
+    public synchronized int getDepth() {
+        return events.size();
+    }
+
+    private synchronized boolean swap() {
+        if (events.isEmpty()) {
+            return false;
+        }
+        ArrayList<ScriptEvent> swapEvents = events;
+        events = drainingEvents;
+        drainingEvents = swapEvents;
+        ArrayList<ScriptEvent.ScriptPath> swapPaths = paths;
+        paths = drainingPaths;
+        drainingPaths = swapPaths;
+        return true;
+    }
+
+    /**
+     * Runs all buffered paths, in order. Must only be called from the main thread.
+     */
+    public void drain() {
+        if (!swap()) {
+            lastTickDrained = 0;
+            return;
+        }
+        int count = drainingEvents.size();
+        for (int i = 0; i < count; i++) {
+            ScriptEvent event = drainingEvents.get(i);
+            ScriptEvent.ScriptPath path = drainingPaths.get(i);
+            try {
+                event.run(path);
+            }
+            catch (Throwable ex) {
+                Debug.echoError("Handling script " + path.container.getName() + " path:" + path.event + ":::");
+                Debug.echoError(ex);
+            }
+        }
+        drainingEvents.clear();
+        drainingPaths.clear();
+        lastTickDrained = count;
+        totalDrained += count;
+    }
+
+    public MapTag getStats() {
+        MapTag map = new MapTag();
+        map.putObject("depth", new ElementTag(getDepth()));
+        map.putObject("max_depth", new ElementTag(maxDepth));
+        map.putObject("last_tick_drained", new ElementTag(lastTickDrained));
+        map.putObject("total_drained", new ElementTag(totalDrained));
+        return map;
+    }
+}
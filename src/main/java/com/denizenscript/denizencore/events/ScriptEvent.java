@@ -7,7 +7,6 @@ import com.denizenscript.denizencore.objects.ArgumentHelper;
 import com.denizenscript.denizencore.objects.ObjectTag;
 import com.denizenscript.denizencore.objects.core.ElementTag;
 import com.denizenscript.denizencore.objects.core.ScriptTag;
-import com.denizenscript.denizencore.scripts.ScriptEntry;
 import com.denizenscript.denizencore.scripts.ScriptEntryData;
 import com.denizenscript.denizencore.scripts.ScriptEntrySet;
 import com.denizenscript.denizencore.scripts.containers.ScriptContainer;
@@ -16,13 +15,13 @@ import com.denizenscript.denizencore.scripts.queues.ContextSource;
 import com.denizenscript.denizencore.scripts.queues.ScriptQueue;
 import com.denizenscript.denizencore.scripts.queues.core.InstantQueue;
 import com.denizenscript.denizencore.tags.TagContext;
+import com.denizenscript.denizencore.utilities.BoundedCache;
 import com.denizenscript.denizencore.utilities.CoreConfiguration;
 import com.denizenscript.denizencore.utilities.CoreUtilities;
 import com.denizenscript.denizencore.utilities.Deprecations;
 import com.denizenscript.denizencore.utilities.YamlConfiguration;
 import com.denizenscript.denizencore.utilities.debugging.Debug;
 import com.denizenscript.denizencore.utilities.debugging.DebugInternals;
-import com.denizenscript.denizencore.utilities.scheduling.OneTimeSchedulable;
 import com.denizenscript.denizencore.utilities.text.StringHolder;
 
 import java.util.*;
@@ -819,6 +818,11 @@ public abstract class ScriptEvent implements ContextSource, Cloneable {
         return eventData.name;
     }
 
+    /**
+     * Buffer of 'after' event paths, ran once per tick by DenizenCore.
+     */
+    public static AfterEventBuffer afterEventBuffer = new AfterEventBuffer();
+
     /**
      * Makes a copy of this event object, fires it, and returns the copy.
      */
@@ -829,8 +833,7 @@ public abstract class ScriptEvent implements ContextSource, Cloneable {
             try {
                 if (matchesScript(copy, path)) {
                     if (path.fireAfter) {
-                        final ScriptPath finalPath = path;
-                        DenizenCore.schedule(new OneTimeSchedulable(() -> copy.run(finalPath), 0.01f));
+                        afterEventBuffer.add(copy, path);
                     }
                     else {
                         copy.run(path);
@@ -855,9 +858,8 @@ public abstract class ScriptEvent implements ContextSource, Cloneable {
             if (path.set == null) {
                 return;
             }
-            List<ScriptEntry> entries = ScriptContainer.cleanDup(getScriptEntryData(), path.set);
             ScriptQueue queue = new InstantQueue(path.container.getName());
-            queue.addEntries(entries);
+            queue.addEntries(path.set, getScriptEntryData());
             queue.setContextSource(this);
             if (!path.fireAfter) {
                 queue.determinationTarget = (prefix, value) -> handleDetermination(path, prefix, value);
@@ -1111,7 +1113,7 @@ public abstract class ScriptEvent implements ContextSource, Cloneable {
         }
     }
 
-    public static final HashMap<String, MatchHelper> knownMatchers = new HashMap<>();
+    public static final BoundedCache<String, MatchHelper> knownMatchers = new BoundedCache<>("matchers", () -> CoreConfiguration.matcherCacheLimit, () -> CoreConfiguration.tagCacheWeakKeys);
 
     public static boolean isAdvancedMatchable(String input) {
         return input.startsWith("regex:") || CoreUtilities.contains(input, '|') || CoreUtilities.contains(input, '*') || input.startsWith("!");
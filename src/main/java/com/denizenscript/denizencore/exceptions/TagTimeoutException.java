@@ -0,0 +1,16 @@
+package com.denizenscript.denizencore.exceptions;
+
+public class TagTimeoutException extends RuntimeException {
+
+    private static final long serialVersionUID = 3159108944857792099L;
+    public String message;
+
+    public TagTimeoutException(String msg) {
+        message = msg;
+    }
+
+    @Override
+    public String getMessage() {
+        return message;
+    }
+}
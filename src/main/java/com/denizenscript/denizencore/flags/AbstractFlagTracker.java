@@ -12,6 +12,19 @@ import java.util.Collection;
 
 public abstract class AbstractFlagTracker {
 
+    /**
+     * Incremented whenever any flag is changed (see 'markChanged'), so that systems watching flags can cheaply tell whether anything changed.
+     * Flag expirations do not increment this.
+     */
+    public static volatile long globalChangeCount = 0;
+
+    /**
+     * Records that a flag changed. Tracker implementations must call this from 'setFlag' and 'setRootMap' (the core trackers and the flag command already do).
+     */
+    public static void markChanged() {
+        globalChangeCount++;
+    }
+
     public abstract MapTag getRootMap(String key);
 
     public abstract void setRootMap(String key, MapTag map);
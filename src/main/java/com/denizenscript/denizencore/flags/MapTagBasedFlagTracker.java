@@ -152,6 +152,7 @@ public abstract class MapTagBasedFlagTracker extends AbstractFlagTracker {
 
     @Override
     public void setFlag(String key, ObjectTag value, TimeTag expiration, boolean doFlaggify) {
+        markChanged();
         List<String> splitKey = CoreUtilities.split(key, '.');
         if (value == null && splitKey.size() == 1) {
             setRootMap(key, null);
@@ -54,6 +54,7 @@ public class MapTagFlagTracker extends MapTagBasedFlagTracker {
 
     @Override
     public void setRootMap(String key, MapTag value) {
+        markChanged();
         if (value == null) {
             map.remove(key);
         }
@@ -149,6 +149,7 @@ public class SavableMapFlagTracker extends MapTagBasedFlagTracker {
 
     @Override
     public void setRootMap(String key, MapTag value) {
+        markChanged();
         modified = true;
         if (value == null) {
             map.remove(new StringHolder(key));
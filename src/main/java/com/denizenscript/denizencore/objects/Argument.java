@@ -323,7 +323,7 @@ public class Argument implements Cloneable {
     }
 
     public void reportUnhandled() {
-        if (TagManager.recentTagError) {
+        if (TagManager.hasRecentTagError()) {
             Debug.echoError('\'' + getRawValue() + "' is an unknown argument! This was probably caused by a tag not parsing properly.");
             return;
         }
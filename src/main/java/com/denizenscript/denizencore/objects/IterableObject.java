@@ -0,0 +1,43 @@
+package com.denizenscript.denizencore.objects;
+
+/**
+ * An object that can hand out its elements one at a time (eg to the foreach command), rather than having to be converted into a full ListTag first.
+ */
+public interface IterableObject extends ObjectTag {
+
+    /**
+     * A position within a set of elements. Starts before the first element, 'advance' must be called to reach each element.
+     */
+    interface ElementCursor {
+
+        /**
+         * Moves to the next element, returning false if there are none left.
+         */
+        boolean advance();
+
+        /**
+         * Returns the element the cursor is at.
+         */
+        ObjectTag getValue();
+
+        /**
+         * Returns whether the elements have keys (as map entries do).
+         */
+        default boolean hasKeys() {
+            return false;
+        }
+
+        /**
+         * Returns the key of the element the cursor is at, if the elements have keys.
+         */
+        default String getKey() {
+            return null;
+        }
+    }
+
+    /**
+     * Returns a new cursor over the elements of this object.
+     * Cursors read the object as they go, so changes made to the object partway through are generally visible to the cursor.
+     */
+    ElementCursor getElementCursor();
+}
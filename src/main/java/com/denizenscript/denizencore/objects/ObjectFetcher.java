@@ -451,7 +451,7 @@ public class ObjectFetcher {
         if (CoreUtilities.contains(value, '@')) {
             String type = value.split("@", 2)[0];
             ObjectType<? extends ObjectTag> toFetch = objectsByPrefix.get(type);
-            if (toFetch != null && (toFetch.canConvertStatic || !TagManager.isStaticParsing)) {
+            if (toFetch != null && (toFetch.canConvertStatic || !TagManager.isStaticParsing())) {
                 ObjectTag fetched = getObjectFrom(toFetch, value, context);
                 if (fetched != null) {
                     return fetched;
@@ -113,7 +113,7 @@ public class ColorTag implements ObjectTag {
             string = string.substring("co@".length());
         }
         if (string.equals("random")) {
-            if (TagManager.isStaticParsing) {
+            if (TagManager.isStaticParsing()) {
                 return null;
             }
             return new ColorTag(CoreUtilities.getRandom().nextInt(256),
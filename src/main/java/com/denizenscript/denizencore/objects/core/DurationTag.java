@@ -63,7 +63,7 @@ public class DurationTag implements ObjectTag {
         if (string.contains("-") && !string.startsWith("-") && !string.contains("e-")) {
             String[] split = string.split("-", 2);
             if (split.length == 2) {
-                if (TagManager.isStaticParsing) {
+                if (TagManager.isStaticParsing()) {
                     return null;
                 }
                 DurationTag low = DurationTag.valueOf(split[0], context);
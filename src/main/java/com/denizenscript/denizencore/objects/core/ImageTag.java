@@ -63,7 +63,7 @@ public class ImageTag implements Adjustable {
             string = string.substring("image@".length());
         }
         String stringLower = CoreUtilities.toLowerCase(string);
-        if (!TagManager.isStaticParsing) {
+        if (!TagManager.isStaticParsing()) {
             ImageTag imageById = ImageCommand.loadedImages.get(stringLower);
             if (imageById != null) {
                 return imageById;
@@ -75,7 +75,7 @@ public class ImageTag implements Adjustable {
                 ElementTag width = map.getElement("width");
                 ElementTag height = map.getElement("height");
                 if (width == null || height == null || !width.isInt() || !height.isInt()) {
-                    if ((context == null || context.showErrors()) && !TagManager.isStaticParsing) {
+                    if ((context == null || context.showErrors()) && !TagManager.isStaticParsing()) {
                         Debug.echoError("valueOf ImageTag returning null: must specify valid width/height.");
                     }
                     return null;
@@ -89,7 +89,7 @@ public class ImageTag implements Adjustable {
                 }
                 return image;
             }
-            if ((context == null || context.showErrors()) && !TagManager.isStaticParsing) {
+            if ((context == null || context.showErrors()) && !TagManager.isStaticParsing()) {
                 Debug.echoError("valueOf ImageTag returning null: invalid binary data: " + string);
             }
             return null;
@@ -4,6 +4,7 @@ import com.denizenscript.denizencore.DenizenCore;
 import com.denizenscript.denizencore.exceptions.TagProcessingException;
 import com.denizenscript.denizencore.objects.ArgumentHelper;
 import com.denizenscript.denizencore.objects.Fetchable;
+import com.denizenscript.denizencore.objects.IterableObject;
 import com.denizenscript.denizencore.objects.ObjectFetcher;
 import com.denizenscript.denizencore.objects.ObjectTag;
 import com.denizenscript.denizencore.scripts.ScriptEntry;
@@ -26,7 +27,7 @@ import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
-public class ListTag implements List<String>, ObjectTag {
+public class ListTag implements List<String>, ObjectTag, IterableObject {
 
     // NOTE: Explicitly no example value
     // <--[ObjectType]
@@ -661,6 +662,24 @@ public class ListTag implements List<String>, ObjectTag {
         return false;
     }
 
+    @Override
+    public ElementCursor getElementCursor() {
+        return new ElementCursor() {
+
+            int index = -1;
+
+            @Override
+            public boolean advance() {
+                return ++index < size();
+            }
+
+            @Override
+            public ObjectTag getValue() {
+                return getObject(index);
+            }
+        };
+    }
+
     @Override
     public String identify() {
         return identifyList();
@@ -2289,24 +2308,16 @@ public class ListTag implements List<String>, ObjectTag {
                         return 0;
                     }
                     InstantQueue queue = new InstantQueue("LISTTAG_SORT");
+                    queue.resultReadInstantly = true;
                     queue.addEntries(entries);
                     int x = 1;
                     ListTag definitions = new ListTag();
                     definitions.addObject(o1);
                     definitions.addObject(o2);
                     definitions.addAll(context_send);
-                    String[] definition_names = null;
-                    try {
-                        definition_names = script.getString("definitions").split("\\|");
-                    }
-                    catch (Exception e) { /* IGNORE */ }
+                    String[] definition_names = script.getRuntimeData().definitionNames;
                     for (String definition : definitions) {
-                        String name = definition_names != null && definition_names.length >= x ?
-                                definition_names[x - 1].trim() : String.valueOf(x);
-                        int squareBracket = name.indexOf('[');
-                        if (squareBracket != -1) {
-                            name = name.substring(0, squareBracket).trim();
-                        }
+                        String name = definition_names.length >= x ? definition_names[x - 1] : String.valueOf(x);
                         queue.addDefinition(name, definition);
                         Debug.echoDebug(entries.get(0), "Adding definition '" + name + "' as " + definition);
                         x++;
@@ -2443,7 +2454,7 @@ public class ListTag implements List<String>, ObjectTag {
                 return null;
             }
             ListTag newlist = new ListTag();
-            TagContext context = attribute.context;
+            TagContext context = attribute.getMutableContext();
             Attribute.OverridingDefinitionProvider provider = new Attribute.OverridingDefinitionProvider(context.definitionProvider);
             DefinitionProvider originalProvider = context.definitionProvider;
             context.definitionProvider = provider;
@@ -2485,7 +2496,7 @@ public class ListTag implements List<String>, ObjectTag {
                 return null;
             }
             ListTag newlist = new ListTag(object.size());
-            TagContext context = attribute.context;
+            TagContext context = attribute.getMutableContext();
             Attribute.OverridingDefinitionProvider provider = new Attribute.OverridingDefinitionProvider(context.definitionProvider);
             DefinitionProvider originalProvider = context.definitionProvider;
             context.definitionProvider = provider;
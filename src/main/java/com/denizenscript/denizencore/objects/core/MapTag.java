@@ -2,6 +2,7 @@ package com.denizenscript.denizencore.objects.core;
 
 import com.denizenscript.denizencore.exceptions.TagProcessingException;
 import com.denizenscript.denizencore.objects.Fetchable;
+import com.denizenscript.denizencore.objects.IterableObject;
 import com.denizenscript.denizencore.objects.ObjectFetcher;
 import com.denizenscript.denizencore.objects.ObjectTag;
 import com.denizenscript.denizencore.objects.properties.PropertyParser;
@@ -19,7 +20,7 @@ import org.json.JSONObject;
 import java.util.*;
 import java.util.function.Supplier;
 
-public class MapTag implements ObjectTag {
+public class MapTag implements ObjectTag, IterableObject {
 
     // NOTE: Explicitly no example value
     // <--[ObjectType]
@@ -194,6 +195,91 @@ public class MapTag implements ObjectTag {
         return map.values();
     }
 
+    /**
+     * Walks the entries of the map in order, without copying them.
+     * If the map is structurally changed partway through, the cursor picks back up after the entry it was at
+     * (or, if that entry was removed, at the same position), so new keys added to the end of the map will be reached, and removed keys won't be.
+     */
+    public class EntryCursor implements ElementCursor {
+
+        public LinkedHashMap<StringHolder, ObjectTag> source = map;
+
+        public Iterator<Map.Entry<StringHolder, ObjectTag>> iterator = map.entrySet().iterator();
+
+        public int expectedSize = map.size();
+
+        public int position = 0;
+
+        public StringHolder key;
+
+        public ObjectTag value;
+
+        public void reseek() {
+            source = map;
+            iterator = source.entrySet().iterator();
+            expectedSize = source.size();
+            if (key != null && source.containsKey(key)) {
+                position = 0;
+                while (iterator.hasNext()) {
+                    position++;
+                    if (iterator.next().getKey().equals(key)) {
+                        return;
+                    }
+                }
+                return;
+            }
+            for (int i = 1; i < position && iterator.hasNext(); i++) {
+                iterator.next();
+            }
+            position = Math.max(position - 1, 0);
+        }
+
+        @Override
+        public boolean advance() {
+            if (source != map || source.size() != expectedSize) {
+                reseek();
+            }
+            Map.Entry<StringHolder, ObjectTag> entry;
+            try {
+                if (!iterator.hasNext()) {
+                    return false;
+                }
+                entry = iterator.next();
+            }
+            catch (ConcurrentModificationException ex) {
+                reseek();
+                if (!iterator.hasNext()) {
+                    return false;
+                }
+                entry = iterator.next();
+            }
+            position++;
+            key = entry.getKey();
+            value = entry.getValue();
+            return true;
+        }
+
+        @Override
+        public ObjectTag getValue() {
+            return value;
+        }
+
+        @Override
+        public boolean hasKeys() {
+            return true;
+        }
+
+        @Override
+        public String getKey() {
+            return key.str;
+        }
+    }
+
+    @Override
+    public ElementCursor getElementCursor() {
+        return new EntryCursor();
+    }
+
     @Override
     public String debuggable() {
         if (isEmpty()) {
@@ -89,7 +89,7 @@ public class QueueTag implements ObjectTag, Adjustable, FlaggableObject {
 
     @Override
     public String identify() {
-        return "q@" + queue.id;
+        return "q@" + queue.getId();
     }
 
     @Override
@@ -104,7 +104,7 @@ public class QueueTag implements ObjectTag, Adjustable, FlaggableObject {
 
     @Override
     public String debuggable() {
-        return "<LG>q@<Y>" + queue.debugId;
+        return "<LG>q@<Y>" + queue.getDebugId();
     }
 
     @Override
@@ -121,6 +121,7 @@ public class QueueTag implements ObjectTag, Adjustable, FlaggableObject {
 
         @Override
         public void setRootMap(String key, MapTag map) {
+            markChanged();
             getQueue().addDefinition(key, map);
         }
 
@@ -151,7 +152,7 @@ public class QueueTag implements ObjectTag, Adjustable, FlaggableObject {
         // Returns the full textual id of the queue.
         // -->
         tagProcessor.registerTag(ElementTag.class, "id", (attribute, object) -> {
-            return new ElementTag(object.getQueue().id);
+            return new ElementTag(object.getQueue().getId());
         });
 
         // <--[tag]
@@ -199,6 +200,27 @@ public class QueueTag implements ObjectTag, Adjustable, FlaggableObject {
             return new DurationTag(timeNano / (1000000 * 1000.0));
         });
 
+        // <--[tag]
+        // @attribute <QueueTag.cpu_time>
+        // @returns DurationTag
+        // @description
+        // Returns how long this queue has spent actually running commands, not counting time spent waiting or in other queues it started.
+        // See also <@link tag util.queue_cpu_stats>.
+        // -->
+        tagProcessor.registerTag(DurationTag.class, "cpu_time", (attribute, object) -> {
+            return new DurationTag(object.getQueue().cpuNanos / 1_000_000_000.0);
+        });
+
+        // <--[tag]
+        // @attribute <QueueTag.commands_ran>
+        // @returns ElementTag(Number)
+        // @description
+        // Returns how many commands this queue has ran so far.
+        // -->
+        tagProcessor.registerTag(ElementTag.class, "commands_ran", (attribute, object) -> {
+            return new ElementTag(object.getQueue().entriesExecuted);
+        });
+
         // <--[tag]
         // @attribute <QueueTag.is_valid>
         // @returns ElementTag(Boolean)
@@ -12,8 +12,10 @@ import com.denizenscript.denizencore.scripts.commands.CommandRegistry;
 import com.denizenscript.denizencore.scripts.commands.Holdable;
 import com.denizenscript.denizencore.scripts.commands.core.DebugInvalidCommand;
 import com.denizenscript.denizencore.scripts.commands.generator.CommandExecutionGenerator;
+import com.denizenscript.denizencore.scripts.commands.queue.CompiledComparison;
 import com.denizenscript.denizencore.scripts.containers.ScriptContainer;
 import com.denizenscript.denizencore.scripts.queues.ScriptQueue;
+import com.denizenscript.denizencore.scripts.queues.core.TimedQueue;
 import com.denizenscript.denizencore.tags.ParseableTag;
 import com.denizenscript.denizencore.utilities.CoreConfiguration;
 import com.denizenscript.denizencore.utilities.CoreUtilities;
@@ -87,6 +89,12 @@ public class ScriptEntry implements Cloneable, Debuggable, Iterable<Argument> {
         public Boolean shouldDebugBool = null;
 
         public int defObjects = 8;
+
+        /** The compiled form of this entry's if/while/waituntil comparisons, if any (see CompiledComparison). */
+        public CompiledComparison compiledComparison = null;
+
+        /** The compiled comparisons of each 'else if' section of a legacy braced 'if' entry, by section index (see CompiledComparison#getForBranch). */
+        public CompiledComparison[] compiledBranchComparisons = null;
     }
 
     public static class BooleanArg {
@@ -298,6 +306,9 @@ public class ScriptEntry implements Cloneable, Debuggable, Iterable<Argument> {
     }
 
     public TagContext getContext() {
+        if (context == null) {
+            updateContext();
+        }
         return context;
     }
 
@@ -319,14 +330,25 @@ public class ScriptEntry implements Cloneable, Debuggable, Iterable<Argument> {
         NULL_INTERNAL_ARGUMENT.fullOriginalRawValue = "";
     }
 
+    /**
+     * Copies the entry. The copy's tag context is not built until it is executed (or 'getContext' is called), and its objects map is only created when first used.
+     */
     @Override
     public ScriptEntry clone() {
+        return createFrame(entryData);
+    }
+
+    /**
+     * Creates a new per-execution entry from this entry (generally a shared template entry of a script path), with a copy of the given entry data.
+     * The compiled internal data is shared, while the objects map, tag context, and result state belong only to the new entry.
+     */
+    public ScriptEntry createFrame(ScriptEntryData data) {
         try {
             ScriptEntry se = (ScriptEntry) super.clone();
-            se.objects = internal.defObjects == 0 ? null : new HashMap<>(internal.defObjects);
-            se.entryData = entryData.clone();
+            se.objects = null;
+            se.context = null;
+            se.entryData = data.clone();
             se.entryData.scriptEntry = se;
-            se.updateContext();
             return se;
         }
         catch (CloneNotSupportedException ex) {
@@ -334,6 +356,33 @@ public class ScriptEntry implements Cloneable, Debuggable, Iterable<Argument> {
         }
     }
 
+    /**
+     * Resets a per-execution entry (as made by 'createFrame') so that it can be ran again, eg for the next iteration of a loop, taking its entry data from the given entry data.
+     * The objects map is emptied but kept, and the tag context is rebuilt when next executed.
+     * Any state from the previous run (data object, forced instant, owner) is cleared, other than the body of a loop entry, which is kept so that it can be reused.
+     */
+    public void resetFrame(ScriptEntryData data) {
+        if (objects != null) {
+            objects.clear();
+        }
+        context = null;
+        saveName = null;
+        if (this.data instanceof BracedCommand.LoopData && ((BracedCommand.LoopData) this.data).body != null) {
+            if (this.data.getClass() != BracedCommand.LoopData.class) {
+                BracedCommand.LoopData kept = new BracedCommand.LoopData();
+                kept.body = ((BracedCommand.LoopData) this.data).body;
+                this.data = kept;
+            }
+        }
+        else {
+            this.data = null;
+        }
+        forceInstant = false;
+        owner = null;
+        entryData.transferDataFrom(data);
+        entryData.scriptEntry = this;
+    }
+
     public List<Object> getInsideList() {
         if (internal.yamlSubcontent instanceof List) {
             return (List<Object>) internal.yamlSubcontent;
@@ -716,6 +765,9 @@ public class ScriptEntry implements Cloneable, Debuggable, Iterable<Argument> {
     @Deprecated
     public <T> T getObjectTag(String key) {
         try {
+            if (objects == null) {
+                return null;
+            }
             Object gotten = objects.get(key);
             if (gotten == null) {
                 return null;
@@ -805,6 +857,9 @@ public class ScriptEntry implements Cloneable, Debuggable, Iterable<Argument> {
         }
         if (queue.holdingOn == this) {
             queue.holdingOn = null;
+            if (queue instanceof TimedQueue) {
+                ((TimedQueue) queue).wakeUp();
+            }
         }
     }
 
@@ -250,6 +250,13 @@ public abstract class AbstractCommand {
     public void onDisable() {
     }
 
+    /**
+     * Builds anything this command would otherwise build lazily on the entry's shared internal data (such as a compiled comparison) the first time it runs,
+     * so that the entry can then run on several threads at once (see ProcedurePool.prepareEntries). The entry is a frame that's never executed.
+     */
+    public void prepareShared(ScriptEntry entry) {
+    }
+
     public CommandExecutionGenerator.CommandExecutor generatedExecutor;
 
     public void autoCompile() {
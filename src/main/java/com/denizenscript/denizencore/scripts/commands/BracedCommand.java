@@ -5,10 +5,12 @@ import com.denizenscript.denizencore.utilities.Deprecations;
 import com.denizenscript.denizencore.utilities.debugging.Debug;
 import com.denizenscript.denizencore.scripts.ScriptBuilder;
 import com.denizenscript.denizencore.scripts.ScriptEntry;
+import com.denizenscript.denizencore.scripts.ScriptEntryData;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.TreeMap;
+import java.util.function.Function;
 
 public abstract class BracedCommand extends AbstractCommand {
 
@@ -37,7 +39,91 @@ public abstract class BracedCommand extends AbstractCommand {
         return getBracedCommands(scriptEntry, true);
     }
 
-    public static List<ScriptEntry> getBracedCommandsDirect(ScriptEntry scriptEntry, ScriptEntry copyFrom) {
+    /**
+     * Holds the state of a running loop command (foreach/repeat/while), as the loop entry's data.
+     */
+    public static class LoopData {
+        public LoopBody body;
+    }
+
+    /**
+     * The per-execution entries of a loop's braced body, followed by the loop's callback entry.
+     * These are created once when the loop first runs, and are then reset in place for each iteration (and reused if the same loop entry runs again, eg within an outer loop),
+     * rather than copying the whole body for every iteration.
+     * Entries of holdable commands are always made fresh, as the command may still hold (and later finish or save to) the previous iteration's entry.
+     */
+    public static class LoopBody {
+
+        public final List<ScriptEntry> templates;
+
+        public final ScriptEntry callback;
+
+        /**
+         * The body frames followed by the callback, ready to be injected into the queue.
+         */
+        public final List<ScriptEntry> entries;
+
+        public LoopBody(List<ScriptEntry> templates, ScriptEntry callback) {
+            this.templates = templates;
+            this.callback = callback;
+            this.entries = new ArrayList<>(templates.size() + 1);
+        }
+
+        /**
+         * Prepares the body for the first iteration of a loop, with entry data from the loop entry itself.
+         */
+        public List<ScriptEntry> start(ScriptEntry loopEntry) {
+            callback.resetFrame(loopEntry.entryData);
+            callback.setOwner(loopEntry);
+            return next(loopEntry.entryData);
+        }
+
+        /**
+         * Prepares the body for another iteration, with entry data from the given (generally the callback's) entry data.
+         */
+        public List<ScriptEntry> next(ScriptEntryData data) {
+            if (entries.isEmpty()) {
+                for (ScriptEntry template : templates) {
+                    entries.add(template.createFrame(data));
+                }
+                entries.add(callback);
+            }
+            else {
+                for (int i = 0; i < templates.size(); i++) {
+                    ScriptEntry frame = entries.get(i);
+                    if (frame.getCommand() instanceof Holdable) {
+                        entries.set(i, templates.get(i).createFrame(data));
+                    }
+                    else {
+                        frame.resetFrame(data);
+                    }
+                }
+            }
+            for (int i = 0; i < entries.size(); i++) {
+                entries.get(i).setInstant(true);
+            }
+            return entries;
+        }
+    }
+
+    /**
+     * Gets the loop body of a loop entry, reusing the one from a previous run of the same entry if possible. Returns null if the entry has no braced body.
+     */
+    public static LoopBody getLoopBody(ScriptEntry loopEntry, Function<ScriptEntry, ScriptEntry> makeCallback) {
+        if (loopEntry.getData() instanceof LoopData && ((LoopData) loopEntry.getData()).body != null) {
+            return ((LoopData) loopEntry.getData()).body;
+        }
+        List<ScriptEntry> templates = getBracedTemplates(loopEntry);
+        if (templates == null || templates.isEmpty()) {
+            return null;
+        }
+        return new LoopBody(templates, makeCallback.apply(loopEntry));
+    }
+
+    /**
+     * Gets the shared (not per-execution) entries of the first braced section of an entry.
+     */
+    public static List<ScriptEntry> getBracedTemplates(ScriptEntry scriptEntry) {
         if (scriptEntry == null) {
             return null;
         }
@@ -59,9 +145,16 @@ public abstract class BracedCommand extends AbstractCommand {
         if (bracedSet.isEmpty()) {
             return null;
         }
-        BracedData bd = bracedSet.get(0);
-        ArrayList<ScriptEntry> toReturn = new ArrayList<>(bd.value.size());
-        for (ScriptEntry sEntry : bd.value) {
+        return bracedSet.get(0).value;
+    }
+
+    public static List<ScriptEntry> getBracedCommandsDirect(ScriptEntry scriptEntry, ScriptEntry copyFrom) {
+        List<ScriptEntry> templates = getBracedTemplates(scriptEntry);
+        if (templates == null) {
+            return null;
+        }
+        ArrayList<ScriptEntry> toReturn = new ArrayList<>(templates.size());
+        for (ScriptEntry sEntry : templates) {
             ScriptEntry newEntry = sEntry.clone();
             newEntry.copyFrom(copyFrom);
             newEntry.entryData.scriptEntry = newEntry;
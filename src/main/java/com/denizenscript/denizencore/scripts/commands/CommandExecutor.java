@@ -2,6 +2,7 @@ package com.denizenscript.denizencore.scripts.commands;
 
 import com.denizenscript.denizencore.exceptions.InvalidArgumentsException;
 import com.denizenscript.denizencore.exceptions.InvalidArgumentsRuntimeException;
+import com.denizenscript.denizencore.exceptions.TagTimeoutException;
 import com.denizenscript.denizencore.objects.Argument;
 import com.denizenscript.denizencore.tags.TagContext;
 import com.denizenscript.denizencore.utilities.CoreUtilities;
@@ -10,20 +11,42 @@ import com.denizenscript.denizencore.DenizenCore;
 import com.denizenscript.denizencore.scripts.ScriptEntry;
 import com.denizenscript.denizencore.scripts.queues.ScriptQueue;
 import com.denizenscript.denizencore.tags.TagManager;
+import com.denizenscript.denizencore.utilities.scheduling.ProcedurePool;
 
 import java.util.function.Consumer;
 
 public class CommandExecutor {
 
+    /**
+     * The queue currently executing a command on the main thread (and other non-worker threads). Prefer 'getCurrentQueue'.
+     */
     public static ScriptQueue currentQueue;
 
+    /**
+     * Same as 'currentQueue', for procedure pool worker threads (see ProcedurePool), which never touch the shared field.
+     */
+    private static final ThreadLocal<ScriptQueue> workerQueue = new ThreadLocal<>();
+
+    public static ScriptQueue getCurrentQueue() {
+        return ProcedurePool.isWorkerThread() ? workerQueue.get() : currentQueue;
+    }
+
+    public static void setCurrentQueue(ScriptQueue queue) {
+        if (ProcedurePool.isWorkerThread()) {
+            workerQueue.set(queue);
+        }
+        else {
+            currentQueue = queue;
+        }
+    }
+
     public static void debugSingleExecution(ScriptEntry scriptEntry) {
         if (scriptEntry.getOriginalArguments().size() == 1 && scriptEntry.getOriginalArguments().get(0).equals("\0CALLBACK")) {
             return;
         }
         Consumer<String> altDebug = scriptEntry.getResidingQueue().debugOutput;
         scriptEntry.getResidingQueue().debugOutput = null;
-        Debug.echoDebug(scriptEntry, Debug.DebugElement.Header, "<LP>Queue '" + scriptEntry.getResidingQueue().debugId
+        Debug.echoDebug(scriptEntry, Debug.DebugElement.Header, "<LP>Queue '" + scriptEntry.getResidingQueue().getDebugId()
                 + "<LP>' Executing: <G>(line " + scriptEntry.internal.lineNumber + ")<W> " + scriptEntry.internal.originalLine);
         scriptEntry.getResidingQueue().debugOutput = altDebug;
     }
@@ -72,17 +95,18 @@ public class CommandExecutor {
         if (scriptEntry.dbCallShouldDebug()) {
             debugSingleExecution(scriptEntry);
         }
-        TagManager.recentTagError = false;
+        TagManager.setRecentTagError(false);
         AbstractCommand command = scriptEntry.internal.actualCommand;
-        currentQueue = scriptEntry.getResidingQueue();
-        if (currentQueue.procedural && !command.isProcedural) {
+        ScriptQueue queue = scriptEntry.getResidingQueue();
+        setCurrentQueue(queue);
+        if (queue.procedural && !command.isProcedural) {
             Debug.echoError("Command " + command.name + " is not accepted within a procedure. Procedures may not produce a change in the world, they may only process logic.");
             return false;
         }
-        TagContext lastContext = Debug.currentContext;
+        TagContext lastContext = Debug.getCurrentContext();
         try {
             TagContext context = scriptEntry.getContext();
-            Debug.currentContext = context;
+            Debug.setCurrentContext(context);
             for (Argument arg : scriptEntry.internal.preprocArgs) {
                 if (DenizenCore.implementation.handleCustomArgs(scriptEntry, arg)) {
                     // Do nothing
@@ -95,7 +119,7 @@ public class CommandExecutor {
                     }
                     if (!shouldRun) {
                         scriptEntry.setFinished(true);
-                        currentQueue = null;
+                        setCurrentQueue(null);
                         return true;
                     }
                 }
@@ -113,10 +137,31 @@ public class CommandExecutor {
                 command.parseArgs(scriptEntry);
                 command.execute(scriptEntry);
             }
-            currentQueue = null;
+            setCurrentQueue(null);
             return true;
         }
-        catch (InvalidArgumentsException | InvalidArgumentsRuntimeException e) {
+        catch (Throwable e) {
+            handleException(scriptEntry, e);
+            setCurrentQueue(null);
+            return false;
+        }
+        finally {
+            Debug.setCurrentContext(lastContext);
+        }
+    }
+
+    /**
+     * Reports an exception thrown while executing an entry (or parsing its arguments), and marks the entry as finished.
+     */
+    public static void handleException(ScriptEntry scriptEntry, Throwable e) {
+        if (e instanceof TagTimeoutException) {
+            // The outermost tag reports the timeout, this queue (generally a procedure running inside that tag) just needs to stop.
+            scriptEntry.setFinished(true);
+            scriptEntry.getResidingQueue().clear();
+            scriptEntry.getResidingQueue().stop();
+            return;
+        }
+        if (e instanceof InvalidArgumentsException || e instanceof InvalidArgumentsRuntimeException) {
             // Give usage hint if InvalidArgumentsException was called.
             if (e.getMessage() != null && e.getMessage().length() > 0) {
                 Debug.echoError(scriptEntry, "Woah! Invalid arguments were specified!\n<FORCE_ALIGN>" + e.getMessage());
@@ -124,24 +169,14 @@ public class CommandExecutor {
             else {
                 Debug.echoError(scriptEntry, "Woah! Invalid arguments were specified!");
             }
-            Debug.log("Usage: " + command.getUsageHint());
-            Debug.log("(Attempted: " + scriptEntry + ")");
-            Debug.echoDebug(scriptEntry, Debug.DebugElement.Footer);
-            scriptEntry.setFinished(true);
-            currentQueue = null;
-            return false;
+            Debug.log("Usage: " + scriptEntry.internal.actualCommand.getUsageHint());
         }
-        catch (Throwable e) {
+        else {
             Debug.echoError(scriptEntry, "Woah! An exception has been called with this command!");
             Debug.echoError(scriptEntry, e);
-            Debug.log("(Attempted: " + scriptEntry + ")");
-            Debug.echoDebug(scriptEntry, Debug.DebugElement.Footer);
-            scriptEntry.setFinished(true);
-            currentQueue = null;
-            return false;
-        }
-        finally {
-            Debug.currentContext = lastContext;
         }
+        Debug.log("(Attempted: " + scriptEntry + ")");
+        Debug.echoDebug(scriptEntry, Debug.DebugElement.Footer);
+        scriptEntry.setFinished(true);
     }
 }
@@ -96,41 +96,41 @@ public class Comparable {
         return false;
     }
 
-    private static boolean listContains(ObjectTag listObj, ObjectTag entry, TagContext context) {
-        ListTag list = null;
-        MapTag map = null;
-        if (listObj instanceof ListTag) {
-            list = (ListTag) listObj;
-        }
-        else if (listObj instanceof MapTag) {
-            map = (MapTag) listObj;
+    /**
+     * Returns the object as the ListTag or MapTag that the 'contains' and 'in' operators would check against.
+     */
+    public static ObjectTag asListOrMap(ObjectTag listObj, TagContext context) {
+        if (listObj instanceof ListTag || listObj instanceof MapTag) {
+            return listObj;
         }
-        else {
-            String text = listObj.toString();
-            if (text.startsWith("li@")) {
-                list = ListTag.valueOf(text, context);
-            }
-            else if (text.startsWith("map@") || text.startsWith("[")) {
-                map = MapTag.valueOf(text, context);
-            }
-            else {
-                list = ListTag.valueOf(text, context);
-            }
+        String text = listObj.toString();
+        if (!text.startsWith("li@") && (text.startsWith("map@") || text.startsWith("["))) {
+            return MapTag.valueOf(text, context);
         }
-        String search = entry.toString();
-        if (list != null) {
-            for (String string : list) {
+        return ListTag.valueOf(text, context);
+    }
+
+    /**
+     * Returns whether a ListTag or MapTag (as returned by asListOrMap) contains the given entry or key.
+     */
+    public static boolean containsEntry(ObjectTag listOrMap, String search) {
+        if (listOrMap instanceof ListTag) {
+            for (String string : (ListTag) listOrMap) {
                 if (CoreUtilities.equalsIgnoreCase(string, search)) {
                     return true;
                 }
             }
         }
-        else if (map != null) {
-            return map.getDeepObject(search) != null;
+        else if (listOrMap instanceof MapTag) {
+            return ((MapTag) listOrMap).getDeepObject(search) != null;
         }
         return false;
     }
 
+    private static boolean listContains(ObjectTag listObj, ObjectTag entry, TagContext context) {
+        return containsEntry(asListOrMap(listObj, context), entry.toString());
+    }
+
     public static boolean compare(ObjectTag objA, ObjectTag objB, Operator operator, boolean negative, TagContext context) {
         boolean outcome;
         switch (operator) {
@@ -188,6 +188,10 @@ public class AdjustCommand extends AbstractCommand {
         if (scriptEntry.dbCallShouldDebug()) {
             Debug.report(scriptEntry, getName(), objects, value, mechanism, mechanismMap);
         }
+        if (scriptEntry.getResidingQueue().isolated) {
+            Debug.echoError(scriptEntry, "Cannot adjust objects within a parallel procedure.");
+            return;
+        }
         ListTag result = new ListTag(objects.size());
         for (ObjectTag object : objects.objectForms) {
             if (mechanismMap != null) {
@@ -218,6 +218,8 @@ public class FlagCommand extends AbstractCommand {
 
         @Override
         public void setValueAt(String keyName, ObjectTag value) {
+            // Also counted here for tracker implementations that don't mark their own changes
+            AbstractFlagTracker.markChanged();
             if (keyName.equals("__raw")) {
                 MapTag toSetMap = value.asType(MapTag.class, CoreUtilities.noDebugContext);
                 ObjectTag toClear = toSetMap.getObject("__clear");
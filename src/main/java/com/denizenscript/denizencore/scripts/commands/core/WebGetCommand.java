@@ -11,7 +11,6 @@ import com.denizenscript.denizencore.utilities.CoreConfiguration;
 import com.denizenscript.denizencore.utilities.CoreUtilities;
 import com.denizenscript.denizencore.utilities.ReflectionHelper;
 import com.denizenscript.denizencore.utilities.debugging.Debug;
-import com.denizenscript.denizencore.utilities.scheduling.Schedulable;
 import com.denizenscript.denizencore.utilities.text.StringHolder;
 
 import java.io.ByteArrayOutputStream;
@@ -272,22 +271,18 @@ public class WebGetCommand extends AbstractCommand implements Holdable {
                 resultHeaders.putObject(key, new ListTag(header.getValue(), true));
             }
             final long timeDone = CoreUtilities.monotonicMillis();
-            DenizenCore.schedule(new Schedulable() {
-                @Override
-                public boolean tick(float seconds) {
-                    scriptEntry.saveObject("status", new ElementTag(status));
-                    scriptEntry.saveObject("failed", new ElementTag(status >= 200 && status < 400 ? "false" : "true"));
-                    if (saveFile == null) {
-                        if (outResult != null) {
-                            scriptEntry.saveObject("result", new ElementTag(new String(outResult, StandardCharsets.UTF_8)));
-                            scriptEntry.saveObject("result_binary", new BinaryTag(outResult));
-                        }
-                        scriptEntry.saveObject("result_headers", resultHeaders);
+            DenizenCore.runOnMainThread(() -> {
+                scriptEntry.saveObject("status", new ElementTag(status));
+                scriptEntry.saveObject("failed", new ElementTag(status >= 200 && status < 400 ? "false" : "true"));
+                if (saveFile == null) {
+                    if (outResult != null) {
+                        scriptEntry.saveObject("result", new ElementTag(new String(outResult, StandardCharsets.UTF_8)));
+                        scriptEntry.saveObject("result_binary", new BinaryTag(outResult));
                     }
-                    scriptEntry.saveObject("time_ran", new DurationTag((timeDone - timeStart) / 1000.0));
-                    scriptEntry.setFinished(true);
-                    return false;
+                    scriptEntry.saveObject("result_headers", resultHeaders);
                 }
+                scriptEntry.saveObject("time_ran", new DurationTag((timeDone - timeStart) / 1000.0));
+                scriptEntry.setFinished(true);
             });
         }
         catch (Exception e) {
@@ -335,22 +330,18 @@ public class WebGetCommand extends AbstractCommand implements Holdable {
             }
             final byte[] outResult = result;
             final int status = tempStatus;
-            DenizenCore.schedule(new Schedulable() {
-                @Override
-                public boolean tick(float seconds) {
-                    scriptEntry.saveObject("failed", new ElementTag("true"));
-                    if (status != -1) {
-                        scriptEntry.saveObject("status", new ElementTag(status));
-                        if (saveFile == null) {
-                            if (outResult != null) {
-                                scriptEntry.saveObject("result", new ElementTag(new String(outResult, StandardCharsets.UTF_8)));
-                                scriptEntry.saveObject("result_binary", new BinaryTag(outResult));
-                            }
+            DenizenCore.runOnMainThread(() -> {
+                scriptEntry.saveObject("failed", new ElementTag("true"));
+                if (status != -1) {
+                    scriptEntry.saveObject("status", new ElementTag(status));
+                    if (saveFile == null) {
+                        if (outResult != null) {
+                            scriptEntry.saveObject("result", new ElementTag(new String(outResult, StandardCharsets.UTF_8)));
+                            scriptEntry.saveObject("result_binary", new BinaryTag(outResult));
                         }
                     }
-                    scriptEntry.setFinished(true);
-                    return false;
                 }
+                scriptEntry.setFinished(true);
             });
         }
     }
@@ -83,34 +83,7 @@ public class ChooseCommand extends BracedCommand {
             return;
         }
         List<ScriptEntry> bracedCommandsList = bdlist.get(0).value;
-        HashMap<String, Integer> lookupTable;
-        if (scriptEntry.internal.specialProcessedData instanceof HashMap) {
-            lookupTable = (HashMap<String, Integer>) scriptEntry.internal.specialProcessedData;
-        }
-        else {
-            lookupTable = new HashMap<>(bracedCommandsList.size());
-            for (int i = 0; i < bracedCommandsList.size(); i++) {
-                ScriptEntry se = bracedCommandsList.get(i);
-                String cmdName = CoreUtilities.toLowerCase(se.getCommandName());
-                if (cmdName.equals("default")) {
-                    lookupTable.put("\0DEFAULT", i);
-                }
-                else if (cmdName.equals("case")) {
-                    if (se.getOriginalArguments().size() > 0) {
-                        for (String arg : se.getOriginalArguments()) {
-                            lookupTable.put(CoreUtilities.toLowerCase(arg), i);
-                        }
-                    }
-                    else {
-                        Debug.echoError("Unknown choose sub-command (missing arguments) '" + se + "'!");
-                    }
-                }
-                else {
-                    Debug.echoError("Unknown choose sub-command '" + cmdName + "'!");
-                }
-            }
-            scriptEntry.internal.specialProcessedData = lookupTable;
-        }
+        HashMap<String, Integer> lookupTable = getLookupTable(scriptEntry, bracedCommandsList);
         String choice_low = choice.asLowerString();
         Integer resultIndex = lookupTable.get(choice_low);
         if (resultIndex == null) {
@@ -135,4 +108,44 @@ public class ChooseCommand extends BracedCommand {
         scriptEntry.setInstant(true);
         queue.injectEntriesAtStart(new_command_list);
     }
+
+    @Override
+    public void prepareShared(ScriptEntry entry) {
+        List<BracedData> bdlist = getBracedCommands(entry, false);
+        if (bdlist != null && !bdlist.isEmpty()) {
+            getLookupTable(entry, bdlist.get(0).value);
+        }
+    }
+
+    /**
+     * Returns the table of choice values to case indices for the entry, building it on first use (it's cached on the entry's shared internal data).
+     */
+    public static HashMap<String, Integer> getLookupTable(ScriptEntry scriptEntry, List<ScriptEntry> bracedCommandsList) {
+        if (scriptEntry.internal.specialProcessedData instanceof HashMap) {
+            return (HashMap<String, Integer>) scriptEntry.internal.specialProcessedData;
+        }
+        HashMap<String, Integer> lookupTable = new HashMap<>(bracedCommandsList.size());
+        for (int i = 0; i < bracedCommandsList.size(); i++) {
+            ScriptEntry se = bracedCommandsList.get(i);
+            String cmdName = CoreUtilities.toLowerCase(se.getCommandName());
+            if (cmdName.equals("default")) {
+                lookupTable.put("\0DEFAULT", i);
+            }
+            else if (cmdName.equals("case")) {
+                if (se.getOriginalArguments().size() > 0) {
+                    for (String arg : se.getOriginalArguments()) {
+                        lookupTable.put(CoreUtilities.toLowerCase(arg), i);
+                    }
+                }
+                else {
+                    Debug.echoError("Unknown choose sub-command (missing arguments) '" + se + "'!");
+                }
+            }
+            else {
+                Debug.echoError("Unknown choose sub-command '" + cmdName + "'!");
+            }
+        }
+        scriptEntry.internal.specialProcessedData = lookupTable;
+        return lookupTable;
+    }
 }
@@ -0,0 +1,525 @@
+package com.denizenscript.denizencore.scripts.commands.queue;
+
+import com.denizenscript.denizencore.DenizenCore;
+import com.denizenscript.denizencore.events.ScriptEvent;
+import com.denizenscript.denizencore.objects.ObjectTag;
+import com.denizenscript.denizencore.objects.core.ElementTag;
+import com.denizenscript.denizencore.scripts.ScriptEntry;
+import com.denizenscript.denizencore.scripts.commands.Comparable;
+import com.denizenscript.denizencore.tags.ParseableTag;
+import com.denizenscript.denizencore.tags.TagContext;
+import com.denizenscript.denizencore.tags.TagManager;
+import com.denizenscript.denizencore.utilities.CoreConfiguration;
+import com.denizenscript.denizencore.utilities.CoreUtilities;
+import com.denizenscript.denizencore.utilities.debugging.Debug;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An if/while/waituntil comparison list (see IfCommand.ArgComparer), compiled once into a tree of predicate nodes.
+ * Operators, parentheses and negations are resolved at compile time, and plain text operands are pre-parsed into their final form (numbers, matchers, lists),
+ * so that running the comparison only has to read the tags within it.
+ * Compiled trees hold no per-run state, and so can be shared between every run of a script entry.
+ */
+public class CompiledComparison {
+
+    public static abstract class Node {
+
+        public abstract boolean test(ScriptEntry entry, TagContext context);
+    }
+
+    public static class ConstantNode extends Node {
+
+        public static final ConstantNode TRUE = new ConstantNode(true), FALSE = new ConstantNode(false);
+
+        public final boolean value;
+
+        public ConstantNode(boolean value) {
+            this.value = value;
+        }
+
+        @Override
+        public boolean test(ScriptEntry entry, TagContext context) {
+            return value;
+        }
+    }
+
+    /**
+     * A comparison that can't work, and so just reports the error and fails every time it runs.
+     */
+    public static class ErrorNode extends Node {
+
+        public final String message;
+
+        public ErrorNode(String message) {
+            this.message = message;
+        }
+
+        @Override
+        public boolean test(ScriptEntry entry, TagContext context) {
+            Debug.echoError(entry, message);
+            return false;
+        }
+    }
+
+    public static class NotNode extends Node {
+
+        public final Node node;
+
+        public NotNode(Node node) {
+            this.node = node;
+        }
+
+        @Override
+        public boolean test(ScriptEntry entry, TagContext context) {
+            return !node.test(entry, context);
+        }
+    }
+
+    public static class AndNode extends Node {
+
+        public final Node left, right;
+
+        public AndNode(Node left, Node right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public boolean test(ScriptEntry entry, TagContext context) {
+            return left.test(entry, context) && right.test(entry, context);
+        }
+    }
+
+    public static class OrNode extends Node {
+
+        public final Node left, right;
+
+        public OrNode(Node left, Node right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public boolean test(ScriptEntry entry, TagContext context) {
+            return left.test(entry, context) || right.test(entry, context);
+        }
+    }
+
+    /**
+     * A single value (usually a tag) checked for truthiness.
+     */
+    public static class TruthyNode extends Node {
+
+        public final ParseableTag value;
+
+        public final boolean negative;
+
+        public TruthyNode(ParseableTag value, boolean negative) {
+            this.value = value;
+            this.negative = negative;
+        }
+
+        @Override
+        public boolean test(ScriptEntry entry, TagContext context) {
+            return value.parse(context).isTruthy() != negative;
+        }
+    }
+
+    /**
+     * One side of an operator comparison: either a value that may contain tags, or a parenthesized sub-comparison (which reads as "true" or "false").
+     */
+    public static class Operand {
+
+        public final String raw;
+
+        public final ParseableTag value;
+
+        public final Node group;
+
+        /**
+         * The value as a plain number, if it has no tags and is one, otherwise NaN.
+         */
+        public final double number;
+
+        public Operand(String raw, ParseableTag value, Node group) {
+            this.raw = raw;
+            this.value = value;
+            this.group = group;
+            this.number = isConstant() ? parsePlainNumber(value.rawObject.toString()) : Double.NaN;
+        }
+
+        public boolean isConstant() {
+            return value != null && value.rawObject != null;
+        }
+
+        public ObjectTag get(ScriptEntry entry, TagContext context) {
+            if (group != null) {
+                return new ElementTag(group.test(entry, context));
+            }
+            return value.parse(context);
+        }
+
+        public double getNumber(ObjectTag object) {
+            if (isConstant()) {
+                return number;
+            }
+            return object instanceof ElementTag ? parsePlainNumber(((ElementTag) object).asString()) : Double.NaN;
+        }
+    }
+
+    /**
+     * A two-sided operator comparison. Subclasses handle specific operators, falling back to Comparable.compare for anything they can't do faster.
+     */
+    public static class ComparisonNode extends Node {
+
+        public final Operand first, second;
+
+        public final Comparable.Operator operator;
+
+        public final boolean negative;
+
+        public ComparisonNode(Operand first, Comparable.Operator operator, boolean negative, Operand second) {
+            this.first = first;
+            this.operator = operator;
+            this.negative = negative;
+            this.second = second;
+        }
+
+        public boolean compare(ObjectTag firstObj, ObjectTag secondObj, TagContext context) {
+            return Comparable.compare(firstObj, secondObj, operator, negative, context);
+        }
+
+        @Override
+        public boolean test(ScriptEntry entry, TagContext context) {
+            try {
+                ObjectTag firstObj = first.get(entry, context);
+                ObjectTag secondObj = second.get(entry, context);
+                boolean outcome = compare(firstObj, secondObj, context);
+                if (entry.dbCallShouldDebug()) {
+                    Debug.echoDebug(entry, "Comparing if " + firstObj + (negative ? " not " : " ") + operator.name() + " " + secondObj + " ... " + outcome);
+                }
+                return outcome;
+            }
+            catch (Throwable ex) {
+                Debug.echoError(entry, "If command syntax invalid - possibly wrong number of arguments (check for stray spaces)? exception: " + ex.getClass().getName() + ": " + ex.getMessage());
+                if (CoreConfiguration.debugVerbose) {
+                    Debug.echoError("Was comparing " + operator + " with " + first.raw + " and " + second.raw);
+                    Debug.echoError(ex);
+                }
+                return false;
+            }
+        }
+    }
+
+    public static class EqualsNode extends ComparisonNode {
+
+        public EqualsNode(Operand first, boolean negative, Operand second) {
+            super(first, Comparable.Operator.EQUALS, negative, second);
+        }
+
+        @Override
+        public boolean compare(ObjectTag firstObj, ObjectTag secondObj, TagContext context) {
+            return CoreUtilities.equalsIgnoreCase(firstObj.toString(), secondObj.toString()) != negative;
+        }
+    }
+
+    /**
+     * A more/less comparison, which compares plain numbers as doubles rather than going through BigDecimal.
+     * Note that, matching Comparable.compare, number comparisons ignore negation.
+     */
+    public static class NumericNode extends ComparisonNode {
+
+        public NumericNode(Operand first, Comparable.Operator operator, boolean negative, Operand second) {
+            super(first, operator, negative, second);
+        }
+
+        @Override
+        public boolean compare(ObjectTag firstObj, ObjectTag secondObj, TagContext context) {
+            double a = first.getNumber(firstObj);
+            double b = Double.isNaN(a) ? Double.NaN : second.getNumber(secondObj);
+            if (Double.isNaN(b)) {
+                return super.compare(firstObj, secondObj, context);
+            }
+            switch (operator) {
+                case LESS:
+                    return a < b;
+                case MORE:
+                    return a > b;
+                case OR_LESS:
+                    return a <= b;
+                case OR_MORE:
+                    return a >= b;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * A contains/in comparison. If the list (or map) side is plain text, it's parsed once at compile time.
+     */
+    public static class ContainsNode extends ComparisonNode {
+
+        public final ObjectTag constantContainer;
+
+        public ContainsNode(Operand first, Comparable.Operator operator, boolean negative, Operand second, TagContext context) {
+            super(first, operator, negative, second);
+            Operand container = operator == Comparable.Operator.IN ? second : first;
+            constantContainer = container.isConstant() ? Comparable.asListOrMap(container.value.rawObject, context) : null;
+        }
+
+        @Override
+        public boolean compare(ObjectTag firstObj, ObjectTag secondObj, TagContext context) {
+            if (constantContainer == null) {
+                return super.compare(firstObj, secondObj, context);
+            }
+            ObjectTag search = operator == Comparable.Operator.IN ? firstObj : secondObj;
+            return Comparable.containsEntry(constantContainer, search.toString()) != negative;
+        }
+    }
+
+    /**
+     * A matches comparison. If the matcher is plain text, the matcher is built once at compile time and used directly for plain ElementTag values.
+     */
+    public static class MatchesNode extends ComparisonNode {
+
+        public final ScriptEvent.MatchHelper matcher;
+
+        public MatchesNode(Operand first, boolean negative, Operand second) {
+            super(first, Comparable.Operator.MATCHES, negative, second);
+            ScriptEvent.MatchHelper matcher = null;
+            if (second.isConstant()) {
+                String text = second.value.rawObject.toString();
+                String base = CoreUtilities.toLowerCase(text);
+                while (base.startsWith("!")) {
+                    base = base.substring(1);
+                }
+                if (!base.isEmpty() && !base.equals("integer") && !base.equals("decimal") && !base.equals("boolean")) {
+                    matcher = ScriptEvent.createMatcher(text);
+                }
+            }
+            this.matcher = matcher;
+        }
+
+        @Override
+        public boolean compare(ObjectTag firstObj, ObjectTag secondObj, TagContext context) {
+            if (matcher == null || firstObj.getClass() != ElementTag.class || !ElementTag.tagProcessor.custommatchers.isEmpty()) {
+                return super.compare(firstObj, secondObj, context);
+            }
+            return matcher.doesMatch(CoreUtilities.toLowerCase(((ElementTag) firstObj).asString())) != negative;
+        }
+    }
+
+    /**
+     * Returns the value of a plain decimal number (eg "-3" or "1.25"), or NaN if the text isn't one.
+     * Only numbers with up to 15 digits are accepted, as those always convert to a double exactly enough to compare the same as BigDecimal would.
+     */
+    public static double parsePlainNumber(String text) {
+        int len = text.length();
+        int i = len > 0 && text.charAt(0) == '-' ? 1 : 0;
+        int digits = 0;
+        boolean hadDecimal = false;
+        for (; i < len; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits++;
+            }
+            else if (c == '.' && !hadDecimal && digits > 0 && i + 1 < len) {
+                hadDecimal = true;
+            }
+            else {
+                return Double.NaN;
+            }
+        }
+        if (digits == 0 || digits > 15) {
+            return Double.NaN;
+        }
+        return Double.parseDouble(text);
+    }
+
+    public final Node root;
+
+    public CompiledComparison(Node root) {
+        this.root = root;
+    }
+
+    public boolean test(ScriptEntry entry) {
+        return root.test(entry, DenizenCore.implementation.getTagContext(entry));
+    }
+
+    /**
+     * Returns the compiled form of the comparison list for the given script entry, compiling it on first use.
+     * The list must always be the same for a given entry, as the result is cached on the entry's shared internal data.
+     */
+    public static CompiledComparison getFor(ScriptEntry entry, List<?> args) {
+        CompiledComparison result = entry.internal.compiledComparison;
+        if (result == null) {
+            result = compile(args, entry);
+            entry.internal.compiledComparison = result;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the compiled form of one branch of a legacy braced 'if' entry (an 'else if' section), compiling it on first use.
+     * Branches are cached in their own slots on the entry's shared internal data, as the entry's main slot holds the 'if' comparison itself.
+     */
+    public static CompiledComparison getForBranch(ScriptEntry entry, int branch, int branchCount, List<?> args) {
+        CompiledComparison[] branches = entry.internal.compiledBranchComparisons;
+        if (branches == null || branches.length < branchCount) {
+            branches = new CompiledComparison[branchCount];
+            entry.internal.compiledBranchComparisons = branches;
+        }
+        CompiledComparison result = branches[branch];
+        if (result == null) {
+            result = compile(args, entry);
+            branches[branch] = result;
+        }
+        return result;
+    }
+
+    public static CompiledComparison compile(List<?> args, ScriptEntry entry) {
+        List<Object> tokens = new ArrayList<>(args.size());
+        for (Object arg : args) {
+            tokens.add(IfCommand.ArgComparer.procStringNoTag(arg));
+        }
+        return new CompiledComparison(compileTokens(tokens, DenizenCore.implementation.getTagContext(entry)));
+    }
+
+    /**
+     * Compiles a list of tokens, each either raw text or an already compiled parenthesized group.
+     * This follows the same steps as IfCommand.ArgComparer#compareInternal, in the same order.
+     */
+    public static Node compileTokens(List<Object> tokens, TagContext context) {
+        if (tokens.isEmpty()) {
+            return ConstantNode.FALSE;
+        }
+        if (tokens.size() == 1) {
+            return compileTruthy(tokens.get(0), true, context);
+        }
+        for (int i = 0; i < tokens.size(); i++) {
+            Object token = tokens.get(i);
+            if (token.equals("(") || token.equals("!(")) {
+                List<Object> subTokens = new ArrayList<>();
+                int depth = 0;
+                int end = -1;
+                for (int x = i + 1; x < tokens.size(); x++) {
+                    Object subToken = tokens.get(x);
+                    if (subToken.equals("(") || subToken.equals("!(")) {
+                        depth++;
+                    }
+                    else if (subToken.equals(")") && --depth == -1) {
+                        end = x;
+                        break;
+                    }
+                    subTokens.add(subToken);
+                }
+                if (end == -1) {
+                    return ConstantNode.FALSE;
+                }
+                Node group = compileTokens(subTokens, context);
+                if (token.equals("!(")) {
+                    group = new NotNode(group);
+                }
+                tokens.subList(i, end + 1).clear();
+                tokens.add(i, group);
+            }
+            else if (token.equals(")")) {
+                return ConstantNode.FALSE;
+            }
+        }
+        if (tokens.size() == 1) {
+            return compileTruthy(tokens.get(0), true, context);
+        }
+        for (int i = 0; i < tokens.size(); i++) {
+            Object token = tokens.get(i);
+            if (!(token instanceof String)) {
+                continue;
+            }
+            String tokenLow = CoreUtilities.toLowerCase((String) token);
+            boolean isOr = tokenLow.equals("||") || tokenLow.equals("or");
+            if (isOr || tokenLow.equals("&&") || tokenLow.equals("and")) {
+                Node before = compileTokens(new ArrayList<>(tokens.subList(0, i)), context);
+                Node after = compileTokens(new ArrayList<>(tokens.subList(i + 1, tokens.size())), context);
+                return isOr ? new OrNode(before, after) : new AndNode(before, after);
+            }
+        }
+        if (tokens.size() == 2) {
+            if (tokens.get(0) instanceof String && CoreUtilities.equalsIgnoreCase((String) tokens.get(0), "not")) {
+                return new NotNode(compileTruthy(tokens.get(1), false, context));
+            }
+            return ConstantNode.FALSE;
+        }
+        String operatorArg;
+        boolean negative = false;
+        if (tokens.size() == 4 && CoreUtilities.equalsIgnoreCase(textOf(tokens.get(1)), "not")) {
+            operatorArg = textOf(tokens.get(2));
+            negative = true;
+        }
+        else if (tokens.size() == 3) {
+            operatorArg = textOf(tokens.get(1));
+            if (operatorArg.startsWith("!")) {
+                operatorArg = operatorArg.substring(1);
+                negative = true;
+            }
+        }
+        else {
+            List<String> texts = new ArrayList<>(tokens.size());
+            for (Object token : tokens) {
+                texts.add(textOf(token));
+            }
+            return new ErrorNode("If command syntax invalid - too many arguments? Found " + tokens.size() + " args: " + texts);
+        }
+        Comparable.Operator operator = Comparable.getOperatorFor(operatorArg);
+        if (operator == null) {
+            return new ErrorNode("If command syntax invalid - invalid operator '" + operatorArg + "'");
+        }
+        Operand first = compileOperand(tokens.get(0), context);
+        Operand second = compileOperand(tokens.get(tokens.size() - 1), context);
+        switch (operator) {
+            case EQUALS:
+                return new EqualsNode(first, negative, second);
+            case OR_MORE:
+            case OR_LESS:
+            case MORE:
+            case LESS:
+                return new NumericNode(first, operator, negative, second);
+            case CONTAINS:
+            case IN:
+                return new ContainsNode(first, operator, negative, second, context);
+            case MATCHES:
+                return new MatchesNode(first, negative, second);
+        }
+        return new ComparisonNode(first, operator, negative, second);
+    }
+
+    public static String textOf(Object token) {
+        return token instanceof String ? (String) token : "<UnTaggedComparison>";
+    }
+
+    public static Node compileTruthy(Object token, boolean canNegate, TagContext context) {
+        if (token instanceof Node) {
+            return (Node) token;
+        }
+        String text = (String) token;
+        boolean negative = false;
+        if (canNegate && text.startsWith("!")) {
+            negative = true;
+            text = text.substring(1);
+        }
+        ParseableTag value = TagManager.parseTextToTag(text, context);
+        if (value.rawObject != null) {
+            return value.rawObject.isTruthy() != negative ? ConstantNode.TRUE : ConstantNode.FALSE;
+        }
+        return new TruthyNode(value, negative);
+    }
+
+    public static Operand compileOperand(Object token, TagContext context) {
+        if (token instanceof Node) {
+            return new Operand("<UnTaggedComparison>", null, (Node) token);
+        }
+        String text = (String) token;
+        return new Operand(text, TagManager.parseTextToTag(text, context), null);
+    }
+}
@@ -4,6 +4,7 @@ import com.denizenscript.denizencore.exceptions.InvalidArgumentsException;
 import com.denizenscript.denizencore.objects.Argument;
 import com.denizenscript.denizencore.objects.core.QueueTag;
 import com.denizenscript.denizencore.utilities.CoreUtilities;
+import com.denizenscript.denizencore.utilities.DefinitionSlots;
 import com.denizenscript.denizencore.utilities.data.ActionableDataProvider;
 import com.denizenscript.denizencore.utilities.data.DataAction;
 import com.denizenscript.denizencore.utilities.data.DataActionHelper;
@@ -14,6 +15,8 @@ import com.denizenscript.denizencore.scripts.ScriptEntry;
 import com.denizenscript.denizencore.scripts.commands.AbstractCommand;
 import com.denizenscript.denizencore.scripts.queues.ScriptQueue;
 
+import java.util.List;
+
 public class DefineCommand extends AbstractCommand {
 
     public DefineCommand() {
@@ -141,6 +144,27 @@ public class DefineCommand extends AbstractCommand {
             action.execute(scriptEntry.getContext());
             return;
         }
-        scriptEntry.getResidingQueue().addDefinition(definition.asString(), value.duplicate());
+        int slot = getLiteralSlot(scriptEntry, definition.asString());
+        if (slot != -1) {
+            scriptEntry.getResidingQueue().addDefinition(slot, value.duplicate());
+        }
+        else {
+            scriptEntry.getResidingQueue().addDefinition(definition.asString(), value.duplicate());
+        }
+    }
+
+    /**
+     * Returns the definition slot (see DefinitionSlots) for the entry's definition name if the name is written literally in the script, otherwise -1.
+     * The result is cached on the entry's internal data, as it can't change between runs.
+     */
+    public static int getLiteralSlot(ScriptEntry scriptEntry, String name) {
+        if (scriptEntry.internal.specialProcessedData instanceof Integer) {
+            return (Integer) scriptEntry.internal.specialProcessedData;
+        }
+        List<String> args = scriptEntry.getOriginalArguments();
+        String lowName = CoreUtilities.toLowerCase(name);
+        int slot = !args.isEmpty() && CoreUtilities.toLowerCase(args.get(0)).equals(lowName) ? DefinitionSlots.assignSlot(lowName) : -1;
+        scriptEntry.internal.specialProcessedData = slot;
+        return slot;
     }
 }
@@ -4,6 +4,9 @@ import com.denizenscript.denizencore.exceptions.InvalidArgumentsException;
 import com.denizenscript.denizencore.utilities.debugging.Debug;
 import com.denizenscript.denizencore.scripts.ScriptEntry;
 import com.denizenscript.denizencore.scripts.commands.AbstractCommand;
+import com.denizenscript.denizencore.utilities.CoreUtilities;
+
+import java.util.List;
 
 public class ElseCommand extends AbstractCommand {
 
@@ -38,6 +41,15 @@ public class ElseCommand extends AbstractCommand {
     public void parseArgs(ScriptEntry scriptEntry) throws InvalidArgumentsException {
     }
 
+    @Override
+    public void prepareShared(ScriptEntry entry) {
+        // Matches the 'else if' handling in IfCommand.execute
+        List<String> args = entry.getOriginalArguments();
+        if (args.size() > 0 && CoreUtilities.equalsIgnoreCase(args.get(0), "if")) {
+            CompiledComparison.getFor(entry, args.subList(1, args.size()));
+        }
+    }
+
     @Override
     public void execute(ScriptEntry scriptEntry) {
 
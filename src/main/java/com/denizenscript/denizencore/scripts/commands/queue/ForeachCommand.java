@@ -3,6 +3,7 @@ package com.denizenscript.denizencore.scripts.commands.queue;
 import com.denizenscript.denizencore.exceptions.InvalidArgumentsException;
 import com.denizenscript.denizencore.exceptions.InvalidArgumentsRuntimeException;
 import com.denizenscript.denizencore.objects.Argument;
+import com.denizenscript.denizencore.objects.IterableObject;
 import com.denizenscript.denizencore.objects.ObjectTag;
 import com.denizenscript.denizencore.objects.core.MapTag;
 import com.denizenscript.denizencore.scripts.queues.ScriptQueue;
@@ -11,11 +12,11 @@ import com.denizenscript.denizencore.objects.core.ElementTag;
 import com.denizenscript.denizencore.objects.core.ListTag;
 import com.denizenscript.denizencore.scripts.ScriptEntry;
 import com.denizenscript.denizencore.scripts.commands.BracedCommand;
-import com.denizenscript.denizencore.utilities.text.StringHolder;
+import com.denizenscript.denizencore.tags.Attribute;
+import com.denizenscript.denizencore.tags.TagContext;
+import com.denizenscript.denizencore.tags.TagManager;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
 public class ForeachCommand extends BracedCommand {
 
@@ -42,6 +43,9 @@ public class ForeachCommand extends BracedCommand {
     //
     // Alternately, specify a map tag to loop over the set of key/value pairs in the map, where the key will be <[key]> and the value will be <[value]>.
     // Specify "key:<name>" to set the key definition name (if unset, will be "key").
+    // The map is read as the loop goes rather than copied first, so keys added to the map during the loop will be reached, and keys removed from it won't be.
+    //
+    // If the input is exactly a <@link tag util.list_numbers> or <@link tag util.list_numbers_to> tag, the numbers are counted out as the loop goes, rather than building the full list first.
     //
     // Specify "as:<name>" to set the value definition name (if unset, will be "value").
     // Use "as:__player" to change the queue's player link, or "as:__npc" to change the queue's NPC link.
@@ -80,26 +84,122 @@ public class ForeachCommand extends BracedCommand {
     //
     // -->
 
-    private static class ForeachData {
+    private static class ForeachData extends LoopData {
         public int index;
-        public ListTag list;
-        public List<String> keys;
+        public IterableObject.ElementCursor cursor;
         public String valueName, keyName;
         public ObjectTag originalValue, originalKeyValue, originalIndexValue;
 
         public void reapplyAtEnd(ScriptQueue queue) {
             queue.addDefinition(valueName, originalValue);
-            if (keys != null) {
+            if (cursor.hasKeys()) {
                 queue.addDefinition(keyName, originalKeyValue);
             }
             queue.addDefinition("loop_index", originalIndexValue);
         }
     }
 
+    /**
+     * Loops over a range of whole numbers, creating each number only when it's reached.
+     */
+    public static class NumberRangeCursor implements IterableObject.ElementCursor {
+
+        public final long from, to, every;
+
+        public long current;
+
+        public NumberRangeCursor(long from, long to, long every) {
+            this.from = from;
+            this.to = to;
+            this.every = every;
+            current = from - every;
+        }
+
+        @Override
+        public boolean advance() {
+            if (current > to - every) {
+                return false;
+            }
+            current += every;
+            return true;
+        }
+
+        @Override
+        public ObjectTag getValue() {
+            return new ElementTag(current);
+        }
+
+        @Override
+        public String toString() {
+            return from + " to " + to + (every == 1 ? "" : " every " + every);
+        }
+    }
+
+    /**
+     * Returns the tag components of the argument if it's exactly a "util.list_numbers_to[...]" or "util.list_numbers[...]" tag, or null if not.
+     * This only checks the form of the argument, without parsing anything.
+     */
+    public static Attribute.AttributeComponent[] getRangeComponents(ScriptEntry.InternalArgument argument) {
+        if (argument.prefix != null || argument.value == null || argument.value.singleTag == null) {
+            return null;
+        }
+        TagManager.ParseableTagPiece piece = argument.value.singleTag;
+        if (piece.tagData == null || piece.tagData.attribs == null || piece.tagData.alternative != null) {
+            return null;
+        }
+        Attribute.AttributeComponent[] components = piece.tagData.attribs.attributes;
+        if (components.length != 2 || !components[0].key.equals("util") || components[0].rawParam != null || components[1].rawParam == null) {
+            return null;
+        }
+        if (!components[1].key.equals("list_numbers_to") && !components[1].key.equals("list_numbers")) {
+            return null;
+        }
+        return components;
+    }
+
+    /**
+     * If the argument is exactly a "util.list_numbers_to[...]" or "util.list_numbers[...]" tag, returns a range cursor matching the list that tag would have built, without building it.
+     * Returns null for any other input, or if the tag input is invalid (leaving it to the tag itself to handle).
+     */
+    public static NumberRangeCursor getRangeCursor(ScriptEntry.InternalArgument argument, TagContext context) {
+        Attribute.AttributeComponent[] components = getRangeComponents(argument);
+        if (components == null) {
+            return null;
+        }
+        if (components[1].key.equals("list_numbers_to")) {
+            ObjectTag to = TagManager.tagObject(components[1].rawParam, context);
+            if (!(to instanceof ElementTag) || !((ElementTag) to).isInt()) {
+                return null;
+            }
+            return new NumberRangeCursor(1, ((ElementTag) to).asInt(), 1);
+        }
+        else if (components[1].key.equals("list_numbers")) {
+            MapTag input = MapTag.getMapFor(TagManager.tagObject(components[1].rawParam, context), context);
+            if (input == null) {
+                return null;
+            }
+            ObjectTag to = input.getObject("to");
+            ElementTag from = input.getElement("from", "1");
+            ElementTag every = input.getElement("every", "1");
+            if (!(to instanceof ElementTag) || !((ElementTag) to).isInt() || !from.isInt() || !every.isInt() || every.asLong() <= 0) {
+                return null;
+            }
+            return new NumberRangeCursor(from.asInt(), ((ElementTag) to).asInt(), every.asInt());
+        }
+        return null;
+    }
+
     @Override
     public void parseArgs(ScriptEntry scriptEntry) throws InvalidArgumentsException {
         boolean handled = false;
-        for (Argument arg : scriptEntry) {
+        ScriptEntry.ArgumentIterator arguments = scriptEntry.iterator();
+        if (arguments.hasNext() && getRangeComponents(scriptEntry.internal.arguments_to_use[arguments.index]) != null) {
+            // Left for 'execute' to build as a range cursor
+            arguments.index++;
+            handled = true;
+        }
+        while (arguments.hasNext()) {
+            Argument arg = arguments.next();
             if (!handled) {
                 if (arg.object instanceof MapTag || arg.object.toString().startsWith("map@")) {
                     MapTag map = MapTag.getMapFor(arg.object, scriptEntry.context);
@@ -109,7 +209,7 @@ public class ForeachCommand extends BracedCommand {
                     scriptEntry.addObject("map", map);
                 }
                 else {
-                    scriptEntry.addObject("list", arg.object instanceof ListTag ? (ListTag) arg.object : ListTag.valueOf(arg.getRawValue(), scriptEntry.getContext()));
+                    scriptEntry.addObject("list", arg.object instanceof IterableObject ? arg.object : ListTag.valueOf(arg.getRawValue(), scriptEntry.getContext()));
                 }
                 handled = true;
             }
@@ -192,23 +292,16 @@ public class ForeachCommand extends BracedCommand {
                     scriptEntry.getBracedSet().get(0).value.get(scriptEntry.getBracedSet().get(0).value.size() - 1) != scriptEntry)) {
                 ForeachData data = (ForeachData) scriptEntry.getOwner().getData();
                 data.index++;
-                if (data.index <= data.list.size()) {
+                if (data.cursor.advance()) {
                     if (scriptEntry.dbCallShouldDebug()) {
                         Debug.echoDebug(scriptEntry, Debug.DebugElement.Header, "Foreach loop " + data.index);
                     }
                     queue.addDefinition("loop_index", new ElementTag(data.index));
-                    if (data.keys != null) {
-                        queue.addDefinition(data.keyName, new ElementTag(data.keys.get(data.index - 1)));
-                    }
-                    queue.addDefinition(data.valueName, data.list.getObject(data.index - 1));
-                    List<ScriptEntry> bracedCommands = BracedCommand.getBracedCommandsDirect(scriptEntry.getOwner(), scriptEntry);
-                    ScriptEntry callbackEntry = scriptEntry.clone();
-                    callbackEntry.setOwner(scriptEntry.getOwner());
-                    bracedCommands.add(callbackEntry);
-                    for (ScriptEntry cmd : bracedCommands) {
-                        cmd.setInstant(true);
+                    if (data.cursor.hasKeys()) {
+                        queue.addDefinition(data.keyName, new ElementTag(data.cursor.getKey()));
                     }
-                    queue.injectEntriesAtStart(bracedCommands);
+                    queue.addDefinition(data.valueName, data.cursor.getValue());
+                    queue.injectEntriesAtStart(data.body.next(scriptEntry.entryData));
                 }
                 else {
                     data.reapplyAtEnd(queue);
@@ -222,64 +315,57 @@ public class ForeachCommand extends BracedCommand {
             }
         }
         else {
-            ListTag list = scriptEntry.getObjectTag("list");
+            ObjectTag list = scriptEntry.getObjectTag("list");
             MapTag map = scriptEntry.getObjectTag("map");
+            NumberRangeCursor range = null;
+            if (list == null && map == null && scriptEntry.internal.arguments_to_use.length > 0 && getRangeComponents(scriptEntry.internal.arguments_to_use[0]) != null) {
+                ScriptEntry.InternalArgument argument = scriptEntry.internal.arguments_to_use[0];
+                range = getRangeCursor(argument, scriptEntry.getContext());
+                if (range == null) {
+                    list = ListTag.getListFor(argument.value.parse(scriptEntry.getContext()), scriptEntry.getContext());
+                }
+            }
             ElementTag as_name = scriptEntry.argForPrefixAsElement("as", "value");
             ElementTag key_as = scriptEntry.argForPrefixAsElement("key", "key");
-            if (list == null && map == null) {
+            if (list == null && map == null && range == null) {
                 throw new InvalidArgumentsRuntimeException("Must specify a quantity or 'stop' or 'next'!");
             }
             if (scriptEntry.dbCallShouldDebug()) {
-                Debug.report(scriptEntry, getName(), map, map == null ? null : key_as, list, as_name);
+                Debug.report(scriptEntry, getName(), map, map == null ? null : key_as, list, range == null ? null : db("range", range.toString()), as_name);
             }
-            int target = list == null ? map.size() : list.size();
-            if (target <= 0) {
+            IterableObject.ElementCursor cursor = range != null ? range : (map != null ? map : (IterableObject) list).getElementCursor();
+            if (!cursor.advance()) {
                 if (scriptEntry.dbCallShouldDebug()) {
                     Debug.echoDebug(scriptEntry, "Empty list, not looping...");
                 }
                 return;
             }
+            LoopBody body = getLoopBody(scriptEntry, ForeachCommand::makeCallback);
             ForeachData datum = new ForeachData();
-            if (list == null) {
-                datum.keys = new ArrayList<>(map.size());
-                datum.list = new ListTag(map.size());
-                for (Map.Entry<StringHolder, ObjectTag> entry : map.entrySet()) {
-                    datum.keys.add(entry.getKey().str);
-                    datum.list.addObject(entry.getValue());
-                }
-            }
-            else {
-                datum.keys = null;
-                datum.list = list;
-            }
+            datum.body = body;
+            datum.cursor = cursor;
             datum.index = 1;
             scriptEntry.setData(datum);
-            ScriptEntry callbackEntry = new ScriptEntry("FOREACH", new String[]{"\0CALLBACK"},
-                    (scriptEntry.getScript() != null ? scriptEntry.getScript().getContainer() : null));
-            List<ScriptEntry> bracedCommandsList = getBracedCommandsDirect(scriptEntry, scriptEntry);
-            if (bracedCommandsList == null || bracedCommandsList.isEmpty()) {
+            if (body == null) {
                 Debug.echoError(scriptEntry, "Empty subsection - did you forget a ':'?");
                 return;
             }
-            if (datum.keys != null) {
+            if (cursor.hasKeys()) {
                 datum.keyName = key_as.asString();
                 datum.originalKeyValue = queue.getDefinitionObject(datum.keyName);
-                queue.addDefinition(datum.keyName, datum.keys.get(0));
+                queue.addDefinition(datum.keyName, cursor.getKey());
             }
             datum.valueName = as_name.asString();
             datum.originalValue = queue.getDefinitionObject(datum.valueName);
             datum.originalIndexValue = queue.getDefinitionObject("loop_index");
-            queue.addDefinition(datum.valueName, datum.list.getObject(0));
+            queue.addDefinition(datum.valueName, cursor.getValue());
             queue.addDefinition("loop_index", new ElementTag("1"));
-            callbackEntry.copyFrom(scriptEntry);
-            callbackEntry.setOwner(scriptEntry);
-            bracedCommandsList.add(callbackEntry);
-            for (ScriptEntry cmd : bracedCommandsList) {
-                cmd.setInstant(true);
-                cmd.copyFrom(scriptEntry);
-            }
             scriptEntry.setInstant(true);
-            queue.injectEntriesAtStart(bracedCommandsList);
+            queue.injectEntriesAtStart(body.start(scriptEntry));
         }
     }
+
+    public static ScriptEntry makeCallback(ScriptEntry forEntry) {
+        return new ScriptEntry("FOREACH", new String[]{"\0CALLBACK"}, (forEntry.getScript() != null ? forEntry.getScript().getContainer() : null));
+    }
 }
@@ -119,7 +119,9 @@ public class IfCommand extends BracedCommand {
                 }
                 scriptEntry.getResidingQueue().script_entries.removeFirst();
                 nextEntry.context = scriptEntry.context;
-                nextEntry.entryData = scriptEntry.entryData;
+                // A copy rather than the same object, as loop bodies reset their frames (and so their entry data) in place
+                nextEntry.entryData = scriptEntry.entryData.clone();
+                nextEntry.entryData.scriptEntry = nextEntry;
                 nextEntry.queue = scriptEntry.queue;
                 BracedData elseRef = getBracedCommands(nextEntry).get(0);
                 elseRef.entry = nextEntry;
@@ -182,6 +184,27 @@ public class IfCommand extends BracedCommand {
         scriptEntry.addObject("comparisons", comparisons);
     }
 
+    @Override
+    public void prepareShared(ScriptEntry entry) {
+        if (entry.getInsideList() != null) {
+            CompiledComparison.getFor(entry, getComparisonArgs(entry));
+        }
+    }
+
+    /**
+     * Returns the comparison part of the entry's original arguments (everything before any '{').
+     */
+    public static List<String> getComparisonArgs(ScriptEntry entry) {
+        List<String> comparisons = new ArrayList<>();
+        for (String arg : entry.getOriginalArguments()) {
+            if (arg.equals("{")) {
+                break;
+            }
+            comparisons.add(arg);
+        }
+        return comparisons;
+    }
+
     @Override
     public void execute(ScriptEntry scriptEntry) {
         List<String> subcommand = (List<String>) scriptEntry.getObject("subcommand");
@@ -194,7 +217,7 @@ public class IfCommand extends BracedCommand {
         if (CoreConfiguration.debugVerbose) {
             Debug.log("comparisons=" + comparisons + ", sc:" + subcommand + ", ec:" + elsecommand);
         }
-        boolean first_set = new ArgComparer().compare(comparisons, scriptEntry);
+        boolean first_set = CompiledComparison.getFor(scriptEntry, comparisons).test(scriptEntry);
         if (first_set && subcommand != null && subcommand.size() > 0) {
             executeCommandList(subcommand, scriptEntry);
             return;
@@ -237,7 +260,7 @@ public class IfCommand extends BracedCommand {
                             Debug.echoError("Else command has argument '" + key.get(1) + "' which is unknown.");
                             continue;
                         }
-                        if (!new ArgComparer().compare(key.subList(2, key.size()), braceSet.entry)) {
+                        if (!CompiledComparison.getForBranch(braceSet.entry, z, braces.size(), key.subList(2, key.size())).test(braceSet.entry)) {
                             continue;
                         }
                         Debug.echoDebug(scriptEntry, "<Y>If/else-if chain entry #" + (z + 1) + " passed, running block.");
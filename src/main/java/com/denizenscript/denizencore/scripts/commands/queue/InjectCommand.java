@@ -9,10 +9,10 @@ import com.denizenscript.denizencore.utilities.debugging.Debug;
 import com.denizenscript.denizencore.objects.core.ElementTag;
 import com.denizenscript.denizencore.objects.core.ScriptTag;
 import com.denizenscript.denizencore.scripts.ScriptEntry;
+import com.denizenscript.denizencore.scripts.ScriptEntrySet;
+import com.denizenscript.denizencore.scripts.containers.ScriptContainer;
 import com.denizenscript.denizencore.scripts.commands.AbstractCommand;
 
-import java.util.List;
-
 public class InjectCommand extends AbstractCommand {
 
     public InjectCommand() {
@@ -104,22 +104,16 @@ public class InjectCommand extends AbstractCommand {
         if (scriptEntry.dbCallShouldDebug()) {
             Debug.report(scriptEntry, getName(), script, instant, path);
         }
-        List<ScriptEntry> entries;
-        if (path != null) {
-            entries = script.getContainer().getEntries(scriptEntry.entryData.clone(), path.asString());
-        }
-        else {
-            entries = script.getContainer().getBaseEntries(scriptEntry.entryData.clone());
-        }
+        ScriptEntrySet entries = path != null ? script.getContainer().getSetFor(path.asString()) : script.getContainer().getBaseEntrySet();
         if (entries == null) {
             Debug.echoError(scriptEntry, "Script inject failed (invalid script path '" + path + "')!");
             return;
         }
         if (instant != null && instant.asBoolean()) {
-            scriptEntry.getResidingQueue().runNow(entries);
+            scriptEntry.getResidingQueue().runNow(ScriptContainer.cleanDup(scriptEntry.entryData, entries));
         }
         else {
-            scriptEntry.getResidingQueue().injectEntriesAtStart(entries);
+            scriptEntry.getResidingQueue().injectEntriesAtStart(entries, scriptEntry.entryData);
         }
     }
 }
@@ -106,11 +106,11 @@ public class QueueCommand extends AbstractCommand {
         QueueTag queue = scriptEntry.getObjectTag("queue");
         Action action = (Action) scriptEntry.getObject("action");
         DurationTag delay = scriptEntry.getObjectTag("delay");
-        if (scriptEntry.getResidingQueue().procedural && !queue.getQueue().id.equals(scriptEntry.getResidingQueue().id)) {
+        if (scriptEntry.getResidingQueue().procedural && !queue.getQueue().getId().equals(scriptEntry.getResidingQueue().getId())) {
             Debug.echoError("Cannot modify other queues from a procedural queue.");
             return;
         }
-        if (queue.getQueue().id.equals(scriptEntry.getResidingQueue().id) && (action == Action.CLEAR || action == Action.STOP)) {
+        if (queue.getQueue().getId().equals(scriptEntry.getResidingQueue().getId()) && (action == Action.CLEAR || action == Action.STOP)) {
             Deprecations.queueClear.warn(scriptEntry);
         }
         if (scriptEntry.dbCallShouldDebug()) {
@@ -119,6 +119,9 @@ public class QueueCommand extends AbstractCommand {
         switch (action) {
             case CLEAR:
                 queue.queue.clear();
+                if (queue.queue instanceof TimedQueue) {
+                    ((TimedQueue) queue.queue).wakeUp();
+                }
                 return;
             case STOP:
                 queue.queue.clear();
@@ -10,7 +10,8 @@ import com.denizenscript.denizencore.scripts.commands.AbstractCommand;
 import com.denizenscript.denizencore.utilities.Deprecations;
 import com.denizenscript.denizencore.utilities.debugging.Debug;
 
-import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class RateLimitCommand extends AbstractCommand {
 
@@ -70,6 +71,22 @@ public class RateLimitCommand extends AbstractCommand {
         }
     }
 
+    @Override
+    public void prepareShared(ScriptEntry entry) {
+        getLimits(entry);
+    }
+
+    /**
+     * Returns the rate limit end times by object for the entry, stored on the entry's shared internal data.
+     * Concurrent, as procedures can run on several threads at once (see ProcedurePool).
+     */
+    public static Map<String, Long> getLimits(ScriptEntry scriptEntry) {
+        if (scriptEntry.internal.specialProcessedData == null) {
+            scriptEntry.internal.specialProcessedData = new ConcurrentHashMap<>(2);
+        }
+        return (Map<String, Long>) scriptEntry.internal.specialProcessedData;
+    }
+
     @Override
     public void execute(ScriptEntry scriptEntry) {
         DurationTag duration = scriptEntry.getObjectTag("duration");
@@ -77,10 +94,7 @@ public class RateLimitCommand extends AbstractCommand {
         if (scriptEntry.dbCallShouldDebug()) {
             Debug.report(scriptEntry, getName(), duration, object);
         }
-        if (scriptEntry.internal.specialProcessedData == null) {
-            scriptEntry.internal.specialProcessedData = new HashMap<>(2);
-        }
-        HashMap<String, Long> map = (HashMap<String, Long>) scriptEntry.internal.specialProcessedData;
+        Map<String, Long> map = getLimits(scriptEntry);
         String key = object.asLowerString();
         Long endTime = map.get(key);
         long curTime = DenizenCore.serverTimeMillis;
@@ -67,7 +67,7 @@ public class RepeatCommand extends BracedCommand {
     //     - announce "Announce Number <[value]>"
     // -->
 
-    private static class RepeatData {
+    private static class RepeatData extends LoopData {
         public int index;
         public int target;
         public String valueName;
@@ -160,15 +160,7 @@ public class RepeatCommand extends BracedCommand {
                         Debug.echoDebug(scriptEntry, Debug.DebugElement.Header, "Repeat loop " + data.index);
                     }
                     queue.addDefinition(data.valueName, String.valueOf(data.index));
-                    List<ScriptEntry> bracedCommands = BracedCommand.getBracedCommandsDirect(scriptEntry.getOwner(), scriptEntry);
-                    ScriptEntry callbackEntry = scriptEntry.clone();
-                    callbackEntry.copyFrom(scriptEntry);
-                    callbackEntry.setOwner(scriptEntry.getOwner());
-                    bracedCommands.add(callbackEntry);
-                    for (ScriptEntry cmd : bracedCommands) {
-                        cmd.setInstant(true);
-                    }
-                    queue.injectEntriesAtStart(bracedCommands);
+                    queue.injectEntriesAtStart(data.body.next(scriptEntry.entryData));
                 }
                 else {
                     data.reapplyAtEnd(queue);
@@ -194,30 +186,29 @@ public class RepeatCommand extends BracedCommand {
                 }
                 return;
             }
+            LoopBody body = getLoopBody(scriptEntry, RepeatCommand::getCallback);
             RepeatData datum = new RepeatData();
             datum.index = from;
             datum.target = datum.index + quantity - 1;
             datum.valueName = asName;
+            datum.body = body;
             scriptEntry.setData(datum);
-            ScriptEntry callbackEntry = getCallback(scriptEntry);
-            List<ScriptEntry> bracedCommandsList = getBracedCommandsDirect(scriptEntry, scriptEntry);
-            if (bracedCommandsList == null || bracedCommandsList.isEmpty()) {
+            if (body == null) {
                 Debug.echoError(scriptEntry, "Empty subsection - did you forget a ':'?");
                 return;
             }
             datum.originalValue = queue.getDefinitionObject(datum.valueName);
             queue.addDefinition(datum.valueName, String.valueOf(datum.index));
-            callbackEntry.copyFrom(scriptEntry);
-            callbackEntry.setOwner(scriptEntry);
-            bracedCommandsList.add(callbackEntry);
-            for (ScriptEntry cmd : bracedCommandsList) {
-                cmd.setInstant(true);
-            }
             scriptEntry.setInstant(true);
-            queue.injectEntriesAtStart(bracedCommandsList);
+            queue.injectEntriesAtStart(body.start(scriptEntry));
         }
     }
 
+    @Override
+    public void prepareShared(ScriptEntry entry) {
+        getCallback(entry);
+    }
+
     public static ScriptEntry getCallback(ScriptEntry forEntry) {
         if (forEntry.internal.specialProcessedData == null) {
             forEntry.internal.specialProcessedData = new ScriptEntry("REPEAT", new String[] {"\0CALLBACK"}, forEntry.getScript() != null ? forEntry.getScript().getContainer() : null);
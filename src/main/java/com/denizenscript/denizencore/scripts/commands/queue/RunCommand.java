@@ -189,7 +189,11 @@ public class RunCommand extends AbstractCommand implements Holdable {
             Debug.echoError(scriptEntry, "Script run failed (invalid script name)!");
             return;
         }
-        if (path != null && !script.getContainer().containsScriptSection(path)) {
+        if (scriptEntry.getResidingQueue().isolated) {
+            Debug.echoError(scriptEntry, "Cannot run scripts within a parallel procedure.");
+            return;
+        }
+        if (path != null && script.getContainer().getSetFor(path) == null && !script.getContainer().containsScriptSection(path)) {
             Debug.echoError(scriptEntry, "Script run failed (invalid path)!");
             return;
         }
@@ -10,6 +10,7 @@ import com.denizenscript.denizencore.scripts.ScriptEntryData;
 import com.denizenscript.denizencore.scripts.commands.AbstractCommand;
 import com.denizenscript.denizencore.scripts.containers.core.TaskScriptContainer;
 import com.denizenscript.denizencore.scripts.queues.ScriptQueue;
+import com.denizenscript.denizencore.utilities.AppendOnlyJournal;
 import com.denizenscript.denizencore.utilities.CoreUtilities;
 import com.denizenscript.denizencore.utilities.ScriptUtilities;
 import com.denizenscript.denizencore.utilities.YamlConfiguration;
@@ -17,10 +18,7 @@ import com.denizenscript.denizencore.utilities.debugging.Debug;
 import com.denizenscript.denizencore.utilities.text.StringHolder;
 
 import java.io.File;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 import java.util.function.Consumer;
 
 public class RunLaterCommand extends AbstractCommand {
@@ -196,6 +194,21 @@ public class RunLaterCommand extends AbstractCommand {
 
         public boolean cancelled = false;
 
+        /**
+         * The unique journal key of this run.
+         */
+        public long sequence;
+
+        /**
+         * The escaped YAML form of this run, as stored in the journal. For runs loaded from the journal, this is only parsed when the run is launched.
+         */
+        public String journalData;
+
+        /**
+         * Whether the run has been taken out of the 'futureRuns' heap and is waiting in 'dueRuns'.
+         */
+        public boolean isDue = false;
+
         public void load(YamlConfiguration config) {
             scriptName = config.getString("script_name");
             path = config.getString("path", null);
@@ -209,6 +222,9 @@ public class RunLaterCommand extends AbstractCommand {
             if (savedData != null) {
                 return savedData;
             }
+            if (scriptName == null && journalData != null) {
+                return YamlConfiguration.load(AppendOnlyJournal.unescape(journalData));
+            }
             YamlConfiguration out = new YamlConfiguration();
             out.set("execute_at", String.valueOf(executeAt));
             out.set("script_name", scriptName);
@@ -228,6 +244,10 @@ public class RunLaterCommand extends AbstractCommand {
             return out;
         }
 
+        public String getJournalAddLine() {
+            return "+" + sequence + "\t" + executeAt + "\t" + AppendOnlyJournal.escape(id) + "\t" + journalData;
+        }
+
         public void run() {
             try {
                 if (cancelled) {
@@ -237,6 +257,14 @@ public class RunLaterCommand extends AbstractCommand {
                     load(savedData);
                     savedData = null;
                 }
+                else if (scriptName == null && journalData != null) {
+                    YamlConfiguration config = YamlConfiguration.load(AppendOnlyJournal.unescape(journalData));
+                    if (config == null) {
+                        Debug.echoError("Script RunLater failed (corrupted journal data)!");
+                        return;
+                    }
+                    load(config);
+                }
                 if (id != null) {
                     trackedById.remove(id);
                 }
@@ -269,134 +297,347 @@ public class RunLaterCommand extends AbstractCommand {
         }
     }
 
+    public static final Comparator<FutureRunData> EXECUTE_ORDER = Comparator.<FutureRunData>comparingLong(data -> data.executeAt).thenComparingLong(data -> data.sequence);
+
     public static void addNewRunnable(FutureRunData runData) {
-        hasChanged = true;
-        long timeNow = System.currentTimeMillis();
-        if (runData.executeAt < timeNow + MS_PER_MINUTE * 2) {
-            nextMinuteFutureRuns.add(runData);
-        }
-        else if (runData.executeAt < timeNow + MS_PER_HOUR * 2) {
-            nextHourFutureRuns.add(runData);
-        }
-        else {
-            farFutureRuns.add(runData);
+        runData.sequence = nextSequence++;
+        if (runData.journalData == null) {
+            runData.journalData = AppendOnlyJournal.escape(runData.save().saveToString(false));
+            runData.savedData = null;
         }
+        pendingJournal.add(runData.getJournalAddLine());
+        hasChanged = true;
+        futureRuns.add(runData);
         if (runData.id != null) {
             trackedById.put(runData.id, runData);
         }
     }
 
-    public static List<FutureRunData> nextMinuteFutureRuns = new ArrayList<>();
+    /**
+     * Cancels the run with the given ID, returning false if there was no such run.
+     */
+    public static boolean cancel(String id) {
+        FutureRunData runData = trackedById.remove(id);
+        if (runData == null) {
+            return false;
+        }
+        runData.cancelled = true;
+        journalRemove(runData);
+        if (!runData.isDue) {
+            cancelledInHeap++;
+            if (cancelledInHeap > PURGE_MINIMUM && cancelledInHeap > futureRuns.size() / 2) {
+                futureRuns.removeIf(data -> data.cancelled);
+                cancelledInHeap = 0;
+            }
+        }
+        return true;
+    }
 
-    public static List<FutureRunData> nextHourFutureRuns = new ArrayList<>();
+    public static void journalRemove(FutureRunData runData) {
+        pendingJournal.add("-" + runData.sequence);
+        hasChanged = true;
+    }
 
-    public static List<FutureRunData> farFutureRuns = new ArrayList<>();
+    /**
+     * All runs that aren't due yet, as a heap ordered by execution time. Cancelled runs are left in place and skipped when reached, or purged in bulk if there are many of them.
+     */
+    public static PriorityQueue<FutureRunData> futureRuns = new PriorityQueue<>(EXECUTE_ORDER);
 
     public static HashMap<String, FutureRunData> trackedById = new HashMap<>();
 
-    public static long timeMinuteReorg = 0, timeHourReorg = 0, timeLastSave = 0;
+    public static long timeLastSave = 0;
+
+    /**
+     * Legacy run lists, replaced by 'futureRuns'. Runs added to any of these directly are moved into 'futureRuns' on the next tick.
+     */
+    @Deprecated
+    public static List<FutureRunData> nextMinuteFutureRuns = new ArrayList<>(), nextHourFutureRuns = new ArrayList<>(), farFutureRuns = new ArrayList<>();
+
+    /**
+     * Unused, formerly the times the legacy run lists were last reorganized.
+     */
+    @Deprecated
+    public static long timeMinuteReorg = 0, timeHourReorg = 0;
+
+    /**
+     * True while runs loaded from a legacy YAML file haven't been confirmed written to the journal yet.
+     * The legacy file is kept until they are (then renamed to '.bak'), and changes are saved as full journal rewrites rather than appends until then.
+     */
+    public static volatile boolean legacyMigrationPending = false;
+
+    public static long nextSequence = 0;
+
+    public static int cancelledInHeap = 0;
+
+    /**
+     * Journal lines that haven't been submitted to the journal file yet.
+     */
+    public static ArrayList<String> pendingJournal = new ArrayList<>();
+
+    /**
+     * Approximate count of lines in the journal file, used to decide when to compact it.
+     */
+    public static long journalLineCount = 0;
 
     public static final long MS_PER_MINUTE = 60 * 1000, MS_PER_HOUR = 60 * MS_PER_MINUTE;
 
+    public static final int PURGE_MINIMUM = 64, COMPACT_MINIMUM = 1024;
+
+    /**
+     * Runs that are due but haven't been launched yet (only non-empty between ticks when the tick budget defers launches).
+     */
+    public static ArrayDeque<FutureRunData> dueRuns = new ArrayDeque<>();
+
     public static boolean hasAny() {
-        return !nextMinuteFutureRuns.isEmpty() || !nextHourFutureRuns.isEmpty() || !farFutureRuns.isEmpty();
+        return !futureRuns.isEmpty() || !dueRuns.isEmpty();
+    }
+
+    public static int getLiveCount() {
+        return futureRuns.size() - cancelledInHeap + dueRuns.size();
     }
 
     public static String persistFilePath;
 
+    public static AppendOnlyJournal journal;
+
     public static boolean isSaving = false;
 
     public static boolean hasChanged = false;
 
     public static void init(String path) {
-        nextMinuteFutureRuns.clear();
-        nextHourFutureRuns.clear();
-        farFutureRuns.clear();
+        if (journal != null) {
+            journal.drain();
+        }
+        futureRuns.clear();
+        dueRuns.clear();
         trackedById.clear();
+        pendingJournal.clear();
+        cancelledInHeap = 0;
+        nextSequence = 0;
         persistFilePath = path;
-        String stored = CoreUtilities.journallingLoadFile(path);
+        journal = new AppendOnlyJournal(path + ".journal");
+        String stored = journal.load();
         if (stored != null) {
-            load(YamlConfiguration.load(stored));
+            replayJournal(stored);
+        }
+        else {
+            String legacy = CoreUtilities.journallingLoadFile(path);
+            if (legacy != null) {
+                load(YamlConfiguration.load(legacy));
+                pendingJournal.clear();
+                legacyMigrationPending = true;
+                writeMigrationJournal(false);
+            }
         }
+        hasChanged = false;
         timeLastSave = System.currentTimeMillis();
     }
 
-    public static void saveToFile(boolean async) {
-        if (!hasChanged) {
-            return;
+    /**
+     * Rewrites the journal from all live runs while a legacy migration is pending, and once the write is confirmed, moves the legacy file aside.
+     * If the write can't be confirmed, the journal is deleted so that the legacy file is used again on next load, and the next save retries.
+     */
+    public static void writeMigrationJournal(boolean async) {
+        pendingJournal.clear();
+        final List<FutureRunData> snapshot = getLiveSnapshot();
+        journalLineCount = snapshot.size();
+        final AppendOnlyJournal target = journal;
+        final String legacyPath = persistFilePath;
+        target.compact(() -> buildCompactedJournal(snapshot), (confirmed) -> {
+            if (confirmed) {
+                backupLegacyFiles(legacyPath);
+                legacyMigrationPending = false;
+            }
+            else {
+                Debug.echoError("Failed to confirm the RunLater journal was written correctly, keeping the legacy file '" + legacyPath + "' until it is.");
+                target.delete();
+            }
+        }, async);
+    }
+
+    /**
+     * Renames a migrated legacy YAML file to '.bak' (replacing any older backup).
+     */
+    public static void backupLegacyFiles(String legacyPath) {
+        File backup = new File(legacyPath + ".bak");
+        for (String suffix : new String[] { "", "~2" }) {
+            File fileObj = new File(legacyPath + suffix);
+            if (fileObj.exists()) {
+                if (backup.exists()) {
+                    backup.delete();
+                }
+                fileObj.renameTo(backup);
+            }
         }
-        hasChanged = false;
-        final YamlConfiguration toSave = saveAll();
-        isSaving = true;
-        Runnable doSave = () -> {
+    }
+
+    /**
+     * Moves any runs added directly to the legacy run lists into 'futureRuns'.
+     */
+    @SuppressWarnings("deprecation")
+    public static void adoptLegacyRuns() {
+        for (List<FutureRunData> list : Arrays.asList(nextMinuteFutureRuns, nextHourFutureRuns, farFutureRuns)) {
+            if (!list.isEmpty()) {
+                for (FutureRunData runData : list) {
+                    addNewRunnable(runData);
+                }
+                list.clear();
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the tracked runs from journal text. Only the keys and times are parsed here, the actual run data is parsed when the run is launched.
+     */
+    public static void replayJournal(String stored) {
+        LinkedHashMap<Long, FutureRunData> runs = new LinkedHashMap<>();
+        long lines = 0;
+        int start = 0;
+        int length = stored.length();
+        while (start < length) {
+            int end = stored.indexOf('\n', start);
+            if (end == -1) {
+                end = length;
+            }
+            String line = stored.substring(start, end);
+            start = end + 1;
+            if (line.isEmpty()) {
+                continue;
+            }
+            lines++;
             try {
-                if (toSave == null) {
-                    File fileObj = new File(persistFilePath);
-                    if (fileObj.exists()) {
-                        fileObj.delete();
-                    }
-                    fileObj = new File(persistFilePath + "~2");
-                    if (fileObj.exists()) {
-                        fileObj.delete();
-                    }
-                    return;
+                if (line.charAt(0) == '-') {
+                    runs.remove(Long.parseLong(line.substring(1).trim()));
+                }
+                else if (line.charAt(0) == '+') {
+                    List<String> parts = CoreUtilities.split(line.substring(1), '\t', 4);
+                    FutureRunData runData = new FutureRunData();
+                    runData.sequence = Long.parseLong(parts.get(0));
+                    runData.executeAt = Long.parseLong(parts.get(1));
+                    runData.id = parts.get(2).isEmpty() ? null : AppendOnlyJournal.unescape(parts.get(2));
+                    runData.journalData = parts.get(3);
+                    runs.put(runData.sequence, runData);
+                    nextSequence = Math.max(nextSequence, runData.sequence + 1);
+                }
+                else {
+                    Debug.echoError("RunLater journal has an invalid line (" + lines + "), ignoring it.");
                 }
-                CoreUtilities.journallingFileSave(persistFilePath, toSave.saveToString(false));
             }
             catch (Throwable ex) {
-                Debug.echoError(ex);
+                Debug.echoError("RunLater journal has a corrupted line (" + lines + "), ignoring it.");
             }
-            finally {
-                isSaving = false;
+        }
+        for (FutureRunData runData : runs.values()) {
+            if (runData.id != null) {
+                trackedById.put(runData.id, runData);
             }
-        };
-        if (async) {
-            DenizenCore.runAsync(doSave);
         }
-        else {
-            doSave.run();
+        futureRuns = new PriorityQueue<>(runs.size() + 16, EXECUTE_ORDER);
+        futureRuns.addAll(runs.values());
+        journalLineCount = lines;
+    }
+
+    /**
+     * Builds the full journal content for all live runs. Safe to call from another thread on a snapshot list, as the journal fields of a run never change after it's added.
+     */
+    public static String buildCompactedJournal(List<FutureRunData> snapshot) {
+        StringBuilder output = new StringBuilder(snapshot.size() * 256);
+        for (FutureRunData runData : snapshot) {
+            output.append(runData.getJournalAddLine()).append('\n');
         }
+        return output.toString();
     }
 
-    public static void tickFutureRuns() {
-        if (!hasAny()) {
-            if (hasChanged) {
-                saveToFile(true);
+    public static String buildCompactedJournal() {
+        return buildCompactedJournal(getLiveSnapshot());
+    }
+
+    public static List<FutureRunData> getLiveSnapshot() {
+        ArrayList<FutureRunData> snapshot = new ArrayList<>(getLiveCount());
+        for (FutureRunData runData : dueRuns) {
+            if (!runData.cancelled) {
+                snapshot.add(runData);
+            }
+        }
+        for (FutureRunData runData : futureRuns) {
+            if (!runData.cancelled) {
+                snapshot.add(runData);
             }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Submits pending changes to the journal file. If the journal has grown well beyond the number of live runs, it's compacted instead.
+     */
+    public static void saveToFile(boolean async) {
+        if (!hasChanged || journal == null) {
+            return;
+        }
+        hasChanged = false;
+        isSaving = true;
+        if (legacyMigrationPending) {
+            writeMigrationJournal(async);
+            isSaving = journal.isWriting();
             return;
         }
+        int live = getLiveCount();
+        if (journalLineCount + pendingJournal.size() > Math.max(COMPACT_MINIMUM, live * 2L)) {
+            pendingJournal.clear();
+            final List<FutureRunData> snapshot = getLiveSnapshot();
+            journalLineCount = snapshot.size();
+            journal.compact(() -> buildCompactedJournal(snapshot), async);
+        }
+        else {
+            final List<String> lines = pendingJournal;
+            pendingJournal = new ArrayList<>();
+            journalLineCount += lines.size();
+            journal.append(lines, async);
+        }
+        isSaving = journal.isWriting();
+    }
+
+    public static void tickFutureRuns() {
+        collectDueRuns();
+        while (launchNextDueRun()) {
+        }
+    }
+
+    /**
+     * Launches the next due run collected by 'collectDueRuns', returning false if there are none left.
+     */
+    public static boolean launchNextDueRun() {
+        FutureRunData data = dueRuns.poll();
+        if (data == null) {
+            return false;
+        }
+        if (!data.cancelled) {
+            journalRemove(data);
+        }
+        data.run();
+        return true;
+    }
+
+    /**
+     * Moves any runs that are due into 'dueRuns', and submits journal changes once per second.
+     */
+    public static void collectDueRuns() {
+        isSaving = journal != null && journal.isWriting();
+        adoptLegacyRuns();
         long timeNow = System.currentTimeMillis();
-        for (int i = 0; i < nextMinuteFutureRuns.size(); i++) {
-            FutureRunData data = nextMinuteFutureRuns.get(i);
-            if (data.executeAt < timeNow) {
-                nextMinuteFutureRuns.remove(i--);
-                hasChanged = true;
-                data.run();
+        FutureRunData data;
+        while ((data = futureRuns.peek()) != null && data.executeAt < timeNow) {
+            futureRuns.poll();
+            if (data.cancelled) {
+                cancelledInHeap--;
+                continue;
             }
+            data.isDue = true;
+            dueRuns.add(data);
         }
-        if (timeNow > timeMinuteReorg + MS_PER_MINUTE) {
-            timeMinuteReorg = timeNow;
-            if (timeNow > timeHourReorg + MS_PER_HOUR) {
-                timeHourReorg = timeNow;
-                for (int i = 0; i < farFutureRuns.size(); i++) {
-                    FutureRunData data = farFutureRuns.get(i);
-                    if (data.executeAt < timeNow + (2 * MS_PER_HOUR)) {
-                        nextHourFutureRuns.add(data);
-                        farFutureRuns.remove(i--);
-                    }
-                }
-            }
-            for (int i = 0; i < nextHourFutureRuns.size(); i++) {
-                FutureRunData data = nextHourFutureRuns.get(i);
-                if (data.executeAt < timeNow + (2 * MS_PER_MINUTE)) {
-                    nextMinuteFutureRuns.add(data);
-                    nextHourFutureRuns.remove(i--);
-                }
-            }
-            if (timeNow > timeLastSave + (30 * MS_PER_MINUTE)) {
-                timeLastSave = timeNow;
-                saveToFile(true);
-            }
+        if (hasChanged && timeNow > timeLastSave + 1000) {
+            timeLastSave = timeNow;
+            saveToFile(true);
         }
     }
 
@@ -406,20 +647,8 @@ public class RunLaterCommand extends AbstractCommand {
         }
         YamlConfiguration out = new YamlConfiguration();
         int id = 0;
-        for (FutureRunData runData : nextMinuteFutureRuns) {
-            if (!runData.cancelled) {
-                out.set("minute_" + (id++), runData.save());
-            }
-        }
-        for (FutureRunData runData : nextHourFutureRuns) {
-            if (!runData.cancelled) {
-                out.set("hour_" + (id++), runData.save());
-            }
-        }
-        for (FutureRunData runData : farFutureRuns) {
-            if (!runData.cancelled) {
-                out.set("future_" + (id++), runData.save());
-            }
+        for (FutureRunData runData : getLiveSnapshot()) {
+            out.set("run_" + (id++), runData.save());
         }
         return out;
     }
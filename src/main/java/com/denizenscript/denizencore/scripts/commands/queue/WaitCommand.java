@@ -1,5 +1,6 @@
 package com.denizenscript.denizencore.scripts.commands.queue;
 
+import com.denizenscript.denizencore.DenizenCore;
 import com.denizenscript.denizencore.objects.core.QueueTag;
 import com.denizenscript.denizencore.scripts.commands.generator.*;
 import com.denizenscript.denizencore.scripts.queues.ScriptQueue;
@@ -60,6 +61,12 @@ public class WaitCommand extends AbstractCommand {
         public boolean isDelayed() {
             return systemTimeEnd > CoreUtilities.monotonicMillis();
         }
+
+        @Override
+        public long getWakeupServerTime() {
+            // Server time can drift from system time, so sleep at most a second at a time before re-checking
+            return DenizenCore.serverTimeMillis + Math.min(1000, Math.max(0, systemTimeEnd - CoreUtilities.monotonicMillis()));
+        }
     }
 
     public enum Mode {SYSTEM, DELTA}
@@ -79,7 +86,7 @@ public class WaitCommand extends AbstractCommand {
             tracker = new TimedQueue.DeltaTimeDelayTracker(delay.getMillis());
         }
         if (queue.queue instanceof TimedQueue) {
-            ((TimedQueue) queue.queue).delay = tracker;
+            ((TimedQueue) queue.queue).setDelay(tracker);
         }
         else {
             scriptEntry.setInstant(false);
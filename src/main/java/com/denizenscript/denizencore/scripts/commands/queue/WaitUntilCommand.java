@@ -1,5 +1,6 @@
 package com.denizenscript.denizencore.scripts.commands.queue;
 
+import com.denizenscript.denizencore.flags.AbstractFlagTracker;
 import com.denizenscript.denizencore.objects.core.DurationTag;
 import com.denizenscript.denizencore.scripts.commands.generator.*;
 import com.denizenscript.denizencore.scripts.queues.ScriptQueue;
@@ -11,8 +12,15 @@ import com.denizenscript.denizencore.scripts.ScriptEntry;
 import com.denizenscript.denizencore.scripts.commands.AbstractCommand;
 import com.denizenscript.denizencore.scripts.commands.Holdable;
 import com.denizenscript.denizencore.scripts.queues.core.TimedQueue;
+import com.denizenscript.denizencore.tags.Attribute;
+import com.denizenscript.denizencore.tags.ParseableTag;
+import com.denizenscript.denizencore.tags.ReplaceableTagEvent;
+import com.denizenscript.denizencore.tags.TagContext;
+import com.denizenscript.denizencore.tags.TagManager;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 
 public class WaitUntilCommand extends AbstractCommand implements Holdable {
@@ -59,7 +67,8 @@ public class WaitUntilCommand extends AbstractCommand implements Holdable {
                                    @ArgUnparsed @ArgNoDebug @ArgRaw @ArgLinear @ArgName("if_comparisons") List<ScriptEntry.InternalArgument> comparisons,
                                    @ArgPrefixed @ArgName("rate") @ArgDefaultNull DurationTag rate,
                                    @ArgPrefixed @ArgName("max") @ArgDefaultNull DurationTag max) {
-        boolean run = new IfCommand.ArgComparer().compare(new ArrayList<>(comparisons), scriptEntry);
+        CompiledComparison comparison = CompiledComparison.getFor(scriptEntry, comparisons);
+        boolean run = comparison.test(scriptEntry);
         if (run) {
             Debug.echoDebug(scriptEntry, "WaitUntil first check already <A>true<W>, not waiting.");
             scriptEntry.setFinished(true);
@@ -78,8 +87,21 @@ public class WaitUntilCommand extends AbstractCommand implements Holdable {
             origQueue = origQueue.forceToTimed(null);
         }
         long endTime = max == null ? -1 : DenizenCore.serverTimeMillis + max.getMillis();
-        final RepeatingSchedulable schedulable = new RepeatingSchedulable(null, (float) rate.getSeconds());
         final ScriptQueue queue = origQueue;
+        if (isWatchable(scriptEntry, comparisons)) {
+            Watcher watcher = new Watcher();
+            watcher.scriptEntry = scriptEntry;
+            watcher.queue = queue;
+            watcher.comparison = comparison;
+            watcher.endTime = endTime;
+            watcher.rateMillis = rate.getMillis();
+            watcher.lastCheck = DenizenCore.serverTimeMillis;
+            watcher.flagChangeCount = AbstractFlagTracker.globalChangeCount;
+            watcher.definitionChangeCount = queue.definitionChangeCount;
+            watchers.add(watcher);
+            return;
+        }
+        final RepeatingSchedulable schedulable = new RepeatingSchedulable(null, (float) rate.getSeconds());
         schedulable.run = new Runnable() {
             public int counter = 0;
             @Override
@@ -93,7 +115,7 @@ public class WaitUntilCommand extends AbstractCommand implements Holdable {
                     scriptEntry.setFinished(true);
                     schedulable.cancel();
                 }
-                if (new IfCommand.ArgComparer().compare(new ArrayList<>(comparisons), scriptEntry)) {
+                if (comparison.test(scriptEntry)) {
                     Debug.echoDebug(scriptEntry, "WaitUntil completed after <A>" + counter + "<W> re-checks.");
                     scriptEntry.setFinished(true);
                     schedulable.cancel();
@@ -107,4 +129,180 @@ public class WaitUntilCommand extends AbstractCommand implements Holdable {
         };
         DenizenCore.schedule(schedulable);
     }
+
+    /**
+     * A waituntil whose comparisons only depend on flags and definitions.
+     * Rather than polling, it is only re-checked when a flag or one of its queue's definitions changes, or when the time out passes.
+     * As a safety net for changes that can't be observed (like flag expirations), it is also re-checked every CoreConfiguration.waitUntilWatcherRecheckMillis.
+     */
+    public static class Watcher {
+
+        public ScriptEntry scriptEntry;
+
+        public ScriptQueue queue;
+
+        public CompiledComparison comparison;
+
+        public long endTime, rateMillis, lastCheck, flagChangeCount;
+
+        public int definitionChangeCount, counter;
+
+        /**
+         * Checks the watcher, returning true if it is done and should be removed.
+         */
+        public boolean check() {
+            if (queue.isStopped || queue.getEntries().isEmpty()) {
+                Debug.echoDebug(scriptEntry, "WaitUntil stopping early: queue is empty or was externally stopped.");
+                scriptEntry.setFinished(true);
+                return true;
+            }
+            long now = DenizenCore.serverTimeMillis;
+            boolean timedOut = endTime != -1 && endTime <= now;
+            if (!timedOut && now - lastCheck < rateMillis) {
+                return false;
+            }
+            boolean changed = flagChangeCount != AbstractFlagTracker.globalChangeCount || definitionChangeCount != queue.definitionChangeCount;
+            if (changed || timedOut || now - lastCheck >= CoreConfiguration.waitUntilWatcherRecheckMillis) {
+                lastCheck = now;
+                flagChangeCount = AbstractFlagTracker.globalChangeCount;
+                definitionChangeCount = queue.definitionChangeCount;
+                counter++;
+                if (comparison.test(scriptEntry)) {
+                    Debug.echoDebug(scriptEntry, "WaitUntil completed after <A>" + counter + "<W> re-checks.");
+                    scriptEntry.setFinished(true);
+                    return true;
+                }
+            }
+            if (timedOut) {
+                Debug.echoDebug(scriptEntry, "WaitUntil stopping early due to time out.");
+                scriptEntry.setFinished(true);
+                return true;
+            }
+            return false;
+        }
+    }
+
+    public static ArrayList<Watcher> watchers = new ArrayList<>();
+
+    /**
+     * Checks all watched waituntils, removing any that are done. Called once per tick by DenizenCore.
+     */
+    public static void tickWatchers() {
+        if (watchers.isEmpty()) {
+            return;
+        }
+        int kept = 0;
+        for (int i = 0; i < watchers.size(); i++) {
+            Watcher watcher = watchers.get(i);
+            boolean done;
+            try {
+                done = watcher.check();
+            }
+            catch (Throwable ex) {
+                Debug.echoError(ex);
+                watcher.scriptEntry.setFinished(true);
+                done = true;
+            }
+            if (!done) {
+                watchers.set(kept++, watcher);
+            }
+        }
+        watchers.subList(kept, watchers.size()).clear();
+    }
+
+    public static final HashSet<String> DEFINITION_BASES = new HashSet<>(Arrays.asList("", "def", "definition"));
+
+    public static final HashSet<String> FLAG_ATTRIBUTES = new HashSet<>(Arrays.asList("flag", "has_flag", "flag_expiration", "list_flags", "flag_map"));
+
+    /**
+     * Base tags that only look up a flaggable object (without side effects or other state), so that their flag tags can be watched.
+     * Only holds the core bases by default, implementations add their own via 'registerFlaggableBase'.
+     */
+    public static final HashSet<String> FLAGGABLE_BASES = new HashSet<>(Arrays.asList("queue", "script", "server"));
+
+    /**
+     * Registers base tags that only look up a flaggable object, so that waituntil can watch their flag tags rather than polling them.
+     * Should be called by the implementation while registering its tags.
+     */
+    public static void registerFlaggableBase(String... names) {
+        FLAGGABLE_BASES.addAll(Arrays.asList(names));
+    }
+
+    /**
+     * Tags that only transform the value they're called on, and so don't add any dependencies.
+     */
+    public static final HashSet<String> PURE_ATTRIBUTES = new HashSet<>(Arrays.asList(
+            "is_more_than", "is_less_than", "is_more_than_or_equal_to", "is_less_than_or_equal_to", "equals", "is", "to", "not", "and", "or", "xor",
+            "is_truthy", "exists", "if_null", "if_true", "if_false", "is_empty", "size", "length", "contains", "contains_text", "contains_any_text", "contains_all_text",
+            "contains_key", "contains_any", "contains_all", "contains_single", "starts_with", "ends_with", "to_lowercase", "to_uppercase", "trim",
+            "abs", "add", "sub", "mul", "div", "mod", "round", "round_up", "round_down", "get", "first", "last", "keys", "values", "find", "count",
+            "sum", "min", "max", "is_integer", "is_decimal", "is_boolean", "is_odd", "is_even", "as_element", "as_list", "as_map", "advanced_matches", "is_in"));
+
+    /**
+     * Returns whether the comparisons of a waituntil can be watched rather than polled (ie, all tags within depend only on flags and definitions).
+     * The result is cached on the script entry.
+     */
+    public static boolean isWatchable(ScriptEntry scriptEntry, List<ScriptEntry.InternalArgument> comparisons) {
+        if (scriptEntry.internal.specialProcessedData instanceof Boolean) {
+            return (Boolean) scriptEntry.internal.specialProcessedData;
+        }
+        TagContext context = DenizenCore.implementation.getTagContext(scriptEntry);
+        boolean result = true;
+        for (ScriptEntry.InternalArgument argument : comparisons) {
+            if (!isWatchableText(argument.fullOriginalRawValue, context)) {
+                result = false;
+                break;
+            }
+        }
+        scriptEntry.internal.specialProcessedData = result;
+        return result;
+    }
+
+    public static boolean isWatchableText(String text, TagContext context) {
+        if (text == null || text.indexOf('<') == -1) {
+            return true;
+        }
+        ParseableTag parsed = TagManager.parseTextToTag(text, context);
+        if (parsed == null) {
+            return false;
+        }
+        for (TagManager.ParseableTagPiece piece : parsed.pieces) {
+            if (piece.isError) {
+                return false;
+            }
+            if (piece.isTag && !isWatchableTag(piece.tagData, context)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static boolean isWatchableTag(ReplaceableTagEvent.ReferenceData tagData, TagContext context) {
+        if (tagData == null || tagData.attribs == null) {
+            return false;
+        }
+        Attribute.AttributeComponent[] components = tagData.attribs.attributes;
+        if (components.length == 0) {
+            return false;
+        }
+        int pureStart;
+        if (DEFINITION_BASES.contains(components[0].key)) {
+            pureStart = 1;
+        }
+        else if (components.length > 1 && FLAGGABLE_BASES.contains(components[0].key) && FLAG_ATTRIBUTES.contains(components[1].key)) {
+            pureStart = 2;
+        }
+        else {
+            return false;
+        }
+        for (int i = 0; i < components.length; i++) {
+            if (i >= pureStart && !PURE_ATTRIBUTES.contains(components[i].key)) {
+                return false;
+            }
+            if (!isWatchableText(components[i].rawParam, context)) {
+                return false;
+            }
+        }
+        return isWatchableText(tagData.alternative, context);
+    }
 }
@@ -48,9 +48,9 @@ public class WhileCommand extends BracedCommand {
     //
     // -->
 
-    private static class WhileData {
+    private static class WhileData extends LoopData {
         public int index;
-        public List<String> value;
+        public CompiledComparison comparison;
         public long LastChecked;
         public int instaTicks;
         public ObjectTag originalIndexValue;
@@ -60,6 +60,13 @@ public class WhileCommand extends BracedCommand {
         }
     }
 
+    @Override
+    public void prepareShared(ScriptEntry entry) {
+        if (entry.getInsideList() != null) {
+            CompiledComparison.getFor(entry, IfCommand.getComparisonArgs(entry));
+        }
+    }
+
     @Override
     public void parseArgs(ScriptEntry scriptEntry) throws InvalidArgumentsException {
         List<String> comparisons = new ArrayList<>();
@@ -168,21 +175,13 @@ public class WhileCommand extends BracedCommand {
                     data.instaTicks = 0;
                 }
                 data.LastChecked = CoreUtilities.monotonicMillis();
-                boolean run = new IfCommand.ArgComparer().compare(new ArrayList(data.value), scriptEntry);
+                boolean run = data.comparison.test(scriptEntry);
                 if (run) {
                     if (scriptEntry.dbCallShouldDebug()) {
                         Debug.echoDebug(scriptEntry, Debug.DebugElement.Header, "While loop " + data.index);
                     }
                     queue.addDefinition("loop_index", String.valueOf(data.index));
-                    List<ScriptEntry> bracedCommands = BracedCommand.getBracedCommandsDirect(scriptEntry.getOwner(), scriptEntry);
-                    ScriptEntry callbackEntry = scriptEntry.clone();
-                    callbackEntry.copyFrom(scriptEntry);
-                    callbackEntry.setOwner(scriptEntry.getOwner());
-                    bracedCommands.add(callbackEntry);
-                    for (int i = 0; i < bracedCommands.size(); i++) {
-                        bracedCommands.get(i).setInstant(true);
-                    }
-                    queue.injectEntriesAtStart(bracedCommands);
+                    queue.injectEntriesAtStart(data.body.next(scriptEntry.entryData));
                 }
                 else {
                     data.reapplyAtEnd(queue);
@@ -197,36 +196,34 @@ public class WhileCommand extends BracedCommand {
         }
         else {
             List<String> comparisons = (List<String>) scriptEntry.getObject("comparisons");
-            boolean run = new IfCommand.ArgComparer().compare(comparisons, scriptEntry);
+            CompiledComparison comparison = CompiledComparison.getFor(scriptEntry, comparisons);
+            boolean run = comparison.test(scriptEntry);
             if (scriptEntry.dbCallShouldDebug()) {
                 Debug.report(scriptEntry, getName(), db("run_first_loop", run));
             }
             if (!run) {
                 return;
             }
+            LoopBody body = getLoopBody(scriptEntry, WhileCommand::makeCallback);
             WhileData datum = new WhileData();
             datum.index = 1;
-            datum.value = comparisons;
+            datum.comparison = comparison;
             datum.LastChecked = CoreUtilities.monotonicMillis();
             datum.instaTicks = 1;
+            datum.body = body;
             scriptEntry.setData(datum);
-            ScriptEntry callbackEntry = new ScriptEntry("WHILE", new String[] {"\0CALLBACK"},
-                    (scriptEntry.getScript() != null ? scriptEntry.getScript().getContainer() : null));
-            callbackEntry.copyFrom(scriptEntry);
-            callbackEntry.setOwner(scriptEntry);
-            List<ScriptEntry> bracedCommandsList = getBracedCommandsDirect(scriptEntry, scriptEntry);
-            if (bracedCommandsList == null || bracedCommandsList.isEmpty()) {
+            if (body == null) {
                 Debug.echoError(scriptEntry, "Empty subsection - did you forget a ':'?");
                 return;
             }
             datum.originalIndexValue = queue.getDefinitionObject("loop_index");
             queue.addDefinition("loop_index", "1");
-            bracedCommandsList.add(callbackEntry);
-            for (int i = 0; i < bracedCommandsList.size(); i++) {
-                bracedCommandsList.get(i).setInstant(true);
-            }
             scriptEntry.setInstant(true);
-            queue.injectEntriesAtStart(bracedCommandsList);
+            queue.injectEntriesAtStart(body.start(scriptEntry));
         }
     }
+
+    public static ScriptEntry makeCallback(ScriptEntry forEntry) {
+        return new ScriptEntry("WHILE", new String[] {"\0CALLBACK"}, (forEntry.getScript() != null ? forEntry.getScript().getContainer() : null));
+    }
 }
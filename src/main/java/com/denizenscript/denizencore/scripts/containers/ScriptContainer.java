@@ -1,23 +1,26 @@
 package com.denizenscript.denizencore.scripts.containers;
 
 import com.denizenscript.denizencore.objects.ObjectTag;
+import com.denizenscript.denizencore.objects.core.DurationTag;
 import com.denizenscript.denizencore.objects.core.ListTag;
 import com.denizenscript.denizencore.scripts.*;
 import com.denizenscript.denizencore.tags.TagContext;
 import com.denizenscript.denizencore.tags.TagManager;
 import com.denizenscript.denizencore.utilities.CoreConfiguration;
 import com.denizenscript.denizencore.utilities.CoreUtilities;
+import com.denizenscript.denizencore.utilities.DefinitionSlots;
 import com.denizenscript.denizencore.utilities.YamlConfiguration;
 import com.denizenscript.denizencore.utilities.debugging.DebugInternals;
+import com.denizenscript.denizencore.utilities.scheduling.ProcedurePool;
 import com.denizenscript.denizencore.utilities.debugging.Debuggable;
 import com.denizenscript.denizencore.utilities.debugging.Debug;
 import com.denizenscript.denizencore.DenizenCore;
 import com.denizenscript.denizencore.objects.core.ScriptTag;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ScriptContainer implements Debuggable {
 
@@ -105,6 +108,11 @@ public class ScriptContainer implements Debuggable {
      */
     public boolean canRunScripts = true;
 
+    /**
+     * How long queues have spent running entries from this script, and how many entries they ran (see QueueWatchdog).
+     */
+    public long cpuNanos = 0, entriesExecuted = 0;
+
     /**
      * The contents of the script container
      */
@@ -304,23 +312,25 @@ public class ScriptContainer implements Debuggable {
     public ScriptEntrySet baseEntries = null;
 
     public List<ScriptEntry> getBaseEntries(ScriptEntryData data) {
-        if (baseEntries == null) {
-            baseEntries = getSetFor("script");
-        }
-        return cleanDup(data, baseEntries);
+        return cleanDup(data, getBaseEntrySet());
     }
 
     public static List<ScriptEntry> cleanDup(ScriptEntryData data, ScriptEntrySet set) {
         if (set == null) {
             return null;
         }
-        set = set.duplicate();
+        List<ScriptEntry> entries = new ArrayList<>(set.entries.size());
         for (ScriptEntry entry : set.entries) {
-            entry.entryData = data.clone();
-            entry.updateContext();
-            entry.entryData.scriptEntry = entry;
+            entries.add(entry.createFrame(data));
+        }
+        return entries;
+    }
+
+    public ScriptEntrySet getBaseEntrySet() {
+        if (baseEntries == null) {
+            baseEntries = getSharedSetFor("script");
         }
-        return set.entries;
+        return ProcedurePool.isWorkerThread() ? ProcedurePool.getWorkerCopy(this, "script", baseEntries) : baseEntries;
     }
 
     public List<ScriptEntry> getEntries(ScriptEntryData data, String path) {
@@ -330,7 +340,19 @@ public class ScriptContainer implements Debuggable {
         return cleanDup(data, getSetFor(path));
     }
 
+    /**
+     * Returns the entry set for the given path, or null if there is none.
+     * On a procedure pool worker thread, this is a private copy for that thread (see ProcedurePool.getWorkerCopy).
+     */
     public ScriptEntrySet getSetFor(String path) {
+        ScriptEntrySet got = getSharedSetFor(path);
+        return ProcedurePool.isWorkerThread() ? ProcedurePool.getWorkerCopy(this, path, got) : got;
+    }
+
+    /**
+     * Returns the entry set for the given path that's shared by all normal (non-worker) threads, building it on first use.
+     */
+    public ScriptEntrySet getSharedSetFor(String path) {
         ScriptEntrySet got = scriptsMap.get(path);
         if (got != null) {
             return got;
@@ -344,30 +366,91 @@ public class ScriptContainer implements Debuggable {
             return null;
         }
         got = new ScriptEntrySet(entries);
-        scriptsMap.put(path, got);
-        return got;
+        ScriptEntrySet existing = scriptsMap.putIfAbsent(path, got);
+        return existing != null ? existing : got;
     }
 
-    private Map<String, ScriptEntrySet> scriptsMap = new HashMap<>();
+    // Concurrent, as procedures can be ran from several threads at once (see ProcedurePool)
+    private Map<String, ScriptEntrySet> scriptsMap = new ConcurrentHashMap<>();
 
     /////////////
     // DEBUGGABLE
     /////////
 
     // Cached debug value to avoid repeated complex YAML calls
-    private Boolean shouldDebug = null;
+    /**
+     * The script keys needed to start and run queues for this container, read from the YAML once so that starting a queue never has to.
+     */
+    public static class RuntimeData {
+
+        /**
+         * The queue speed in ticks from the 'speed' key, or -1 if the key isn't set (to use the configured default speed).
+         */
+        public long speedTicks = -1;
+
+        /**
+         * The definition names from the 'definitions' key in order, with any [descriptions] removed, or an empty array if the key isn't set.
+         */
+        public String[] definitionNames;
+
+        /**
+         * The definition slot for each of the definition names (see DefinitionSlots), or -1 for names that can't have one.
+         */
+        public int[] definitionSlots;
+
+        /**
+         * The resolved 'debug' key (or the configured default debug mode if unset).
+         */
+        public boolean debug;
+    }
 
-    @Override
-    public boolean shouldDebug() {
-        if (shouldDebug == null) {
-            if (!contents.contains("debug")) {
-                shouldDebug = CoreConfiguration.defaultDebugMode;
+    private RuntimeData runtimeData = null;
+
+    /**
+     * Returns the container's runtime data, reading it from the script keys if it hasn't been already.
+     * Containers are rebuilt on reload, so this is read at most once per load.
+     */
+    public RuntimeData getRuntimeData() {
+        RuntimeData result = runtimeData;
+        if (result == null) {
+            result = buildRuntimeData();
+            runtimeData = result;
+        }
+        return result;
+    }
+
+    public RuntimeData buildRuntimeData() {
+        RuntimeData result = new RuntimeData();
+        if (contains("SPEED", String.class)) {
+            DurationTag speed = DurationTag.valueOf(getString("SPEED", "0"), DenizenCore.implementation.getTagContext(this));
+            if (speed != null) {
+                result.speedTicks = speed.getTicks();
             }
-            else {
-                shouldDebug = !CoreUtilities.equalsIgnoreCase(contents.getString("debug"), "false");
+        }
+        List<String> names = contains("definitions", String.class) ? CoreUtilities.split(getString("definitions"), '|') : new ArrayList<>();
+        result.definitionNames = new String[names.size()];
+        result.definitionSlots = new int[names.size()];
+        for (int i = 0; i < names.size(); i++) {
+            String name = names.get(i).trim();
+            int squareBracket = name.indexOf('[');
+            if (squareBracket != -1) {
+                name = name.substring(0, squareBracket).trim();
             }
+            result.definitionNames[i] = name;
+            result.definitionSlots[i] = DefinitionSlots.assignSlot(CoreUtilities.toLowerCase(name));
+        }
+        if (!contents.contains("debug")) {
+            result.debug = CoreConfiguration.defaultDebugMode;
+        }
+        else {
+            result.debug = !CoreUtilities.equalsIgnoreCase(contents.getString("debug"), "false");
         }
-        return shouldDebug;
+        return result;
+    }
+
+    @Override
+    public boolean shouldDebug() {
+        return getRuntimeData().debug;
     }
 
     @Override
@@ -131,6 +131,7 @@ public class CustomScriptContainer extends ScriptContainer {
                 cscs.obj = obj;
                 cscs.value = val;
                 queue.setContextSource(cscs);
+                queue.resultReadInstantly = true;
                 queue.addEntries(listOfEntries);
                 queue.start();
                 return queue.determinations;
@@ -152,6 +153,7 @@ public class CustomScriptContainer extends ScriptContainer {
                 cscs.obj = obj;
                 cscs.value = value;
                 queue.setContextSource(cscs);
+                queue.resultReadInstantly = true;
                 queue.addEntries(listOfEntries);
                 queue.start();
                 return queue.determinations;
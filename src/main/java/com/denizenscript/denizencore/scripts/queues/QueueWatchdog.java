@@ -0,0 +1,214 @@
+package com.denizenscript.denizencore.scripts.queues;
+
+import com.denizenscript.denizencore.objects.core.*;
+import com.denizenscript.denizencore.scripts.ScriptEntry;
+import com.denizenscript.denizencore.scripts.ScriptRegistry;
+import com.denizenscript.denizencore.scripts.containers.ScriptContainer;
+import com.denizenscript.denizencore.scripts.queues.core.TimedQueue;
+import com.denizenscript.denizencore.utilities.CoreConfiguration;
+import com.denizenscript.denizencore.utilities.debugging.Debug;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Tracks how long each queue (and each script) spends running script entries, and handles runaway queues that go over
+ * the per-queue or global per-tick time limits (CoreConfiguration.queueTickTimeLimitMillis and allQueuesTickTimeLimitMillis).
+ * Time is counted as 'self time': time spent in another queue that was started from within an entry (eg via 'run') only counts for that other queue.
+ */
+public class QueueWatchdog {
+
+    /**
+     * Incremented at the start of every tick, to know when per-queue tick times need resetting.
+     */
+    public static long currentTick = 0;
+
+    /**
+     * How long all queues together have spent running entries in the current tick.
+     */
+    public static long tickNanos = 0;
+
+    /**
+     * Time spent in nested revolves (queues started from within an entry) since the current revolve last recorded an entry.
+     */
+    public static long nestedNanos = 0;
+
+    /**
+     * When the entry currently running in the innermost revolve started.
+     */
+    public static long entryStartNanos = 0;
+
+    public static long totalThrottled = 0, totalStopped = 0;
+
+    /**
+     * Returns whether either time limit is set. When neither is, entries aren't timed at all (so the cpu stats tags stay empty).
+     */
+    public static boolean isEnabled() {
+        return CoreConfiguration.queueTickTimeLimitMillis > 0 || CoreConfiguration.allQueuesTickTimeLimitMillis > 0;
+    }
+
+    public static void startTick() {
+        currentTick++;
+        tickNanos = 0;
+    }
+
+    /**
+     * Records that the given entry just finished running in the queue (see 'record'), and starts timing the next entry.
+     * Returns true if the queue shouldn't be revolved any further right now.
+     */
+    public static boolean finishEntry(ScriptQueue queue, ScriptEntry entry) {
+        if (!isEnabled()) {
+            return false;
+        }
+        long now = System.nanoTime();
+        if (entryStartNanos == 0) {
+            // The watchdog was enabled partway through an untimed revolve (eg by a reload), so start timing from here
+            nestedNanos = 0;
+            entryStartNanos = now;
+            return false;
+        }
+        long entryNanos = now - entryStartNanos - nestedNanos;
+        nestedNanos = 0;
+        entryStartNanos = now;
+        return record(queue, entry, entryNanos);
+    }
+
+    /**
+     * Records that the given entry took the given number of nanoseconds to run in the queue.
+     * Returns true if the queue went over a time limit and has been delayed to the next tick or stopped, meaning it shouldn't be revolved any further right now.
+     */
+    public static boolean record(ScriptQueue queue, ScriptEntry entry, long nanos) {
+        if (queue.replacementQueue != null) {
+            queue = queue.replacementQueue;
+        }
+        if (queue.cpuTick != currentTick) {
+            queue.cpuTick = currentTick;
+            queue.tickCpuNanos = 0;
+        }
+        queue.cpuNanos += nanos;
+        queue.tickCpuNanos += nanos;
+        queue.entriesExecuted++;
+        tickNanos += nanos;
+        ScriptTag script = entry.getScript();
+        if (script != null && script.getContainer() != null) {
+            ScriptContainer container = script.getContainer();
+            container.cpuNanos += nanos;
+            container.entriesExecuted++;
+        }
+        if (queue.isStopped || queue.is_stopping) {
+            return false;
+        }
+        long queueLimit = CoreConfiguration.queueTickTimeLimitMillis;
+        long globalLimit = CoreConfiguration.allQueuesTickTimeLimitMillis;
+        if (queueLimit > 0 && queue.tickCpuNanos > queueLimit * 1_000_000L) {
+            handleRunaway(queue, entry, "ran for " + formatMillis(queue.tickCpuNanos) + " in one tick (the limit per queue is " + queueLimit + "ms)");
+            return true;
+        }
+        if (globalLimit > 0 && tickNanos > globalLimit * 1_000_000L) {
+            handleRunaway(queue, entry, "was running when all queues together went over their time limit for the tick (" + globalLimit + "ms)");
+            return true;
+        }
+        return false;
+    }
+
+    public static String formatMillis(long nanos) {
+        return (nanos / 1000) / 1000.0 + "ms";
+    }
+
+    /**
+     * Returns whether the queue can be delayed to a later tick without losing anything.
+     * Procedure queues, and queues whose determinations are read as soon as they return (such as events), have to finish instantly.
+     */
+    public static boolean canDelay(ScriptQueue queue) {
+        return !queue.procedural && queue.determinationTarget == null && !queue.resultReadInstantly;
+    }
+
+    /**
+     * Either stops the queue, or delays it to the next tick (forcing it to a timed queue if needed), based on CoreConfiguration.runawayQueuesStop.
+     * Queues that can't be delayed (see 'canDelay') are always stopped.
+     */
+    public static void handleRunaway(ScriptQueue queue, ScriptEntry entry, String reason) {
+        if (CoreConfiguration.runawayQueuesStop || !canDelay(queue)) {
+            totalStopped++;
+            Debug.echoError(entry, "Queue '" + queue.getDebugId() + "' " + reason + ", and has been stopped"
+                    + (CoreConfiguration.runawayQueuesStop ? "" : " (it can't be delayed, as its result is needed instantly)")
+                    + ". The last command it ran was '" + entry.getCommandName() + "'.");
+            queue.stop();
+            return;
+        }
+        totalThrottled++;
+        queue.throttleCount++;
+        if (queue.throttleCount == 1) {
+            queue.queueDebug("Queue '<QUEUE>' " + reason + ", and will continue next tick.");
+        }
+        TimedQueue.DeltaTimeDelayTracker nextTick = new TimedQueue.DeltaTimeDelayTracker(1);
+        if (queue instanceof TimedQueue) {
+            TimedQueue timedQueue = (TimedQueue) queue;
+            if (!timedQueue.isDelayed() && !timedQueue.isPaused() && !timedQueue.isHeld()) {
+                timedQueue.setDelay(nextTick);
+            }
+        }
+        else {
+            queue.forceToTimed(nextTick);
+        }
+    }
+
+    /**
+     * Returns stats about the most expensive currently running queues, up to the given count, sorted by total time (highest first).
+     */
+    public static ListTag getQueueStats(int count) {
+        List<ScriptQueue> queues = new ArrayList<>(ScriptQueue.getQueues());
+        queues.sort(Comparator.comparingLong((ScriptQueue queue) -> queue.cpuNanos).reversed());
+        ListTag result = new ListTag();
+        for (int i = 0; i < queues.size() && i < count; i++) {
+            ScriptQueue queue = queues.get(i);
+            MapTag map = new MapTag();
+            map.putObject("queue", new QueueTag(queue));
+            map.putObject("time", new DurationTag(queue.cpuNanos / 1_000_000_000.0));
+            map.putObject("current_tick_time", new DurationTag((queue.cpuTick == currentTick ? queue.tickCpuNanos : 0) / 1_000_000_000.0));
+            map.putObject("entries", new ElementTag(queue.entriesExecuted));
+            map.putObject("throttled", new ElementTag(queue.throttleCount));
+            result.addObject(map);
+        }
+        return result;
+    }
+
+    /**
+     * Returns stats about the most expensive scripts since the last reload, up to the given count, sorted by total time (highest first).
+     */
+    public static ListTag getScriptStats(int count) {
+        List<ScriptContainer> scripts = new ArrayList<>();
+        for (ScriptContainer container : ScriptRegistry.scriptContainers.values()) {
+            if (container.entriesExecuted > 0) {
+                scripts.add(container);
+            }
+        }
+        scripts.sort(Comparator.comparingLong((ScriptContainer container) -> container.cpuNanos).reversed());
+        ListTag result = new ListTag();
+        for (int i = 0; i < scripts.size() && i < count; i++) {
+            ScriptContainer container = scripts.get(i);
+            MapTag map = new MapTag();
+            map.putObject("script", new ScriptTag(container));
+            map.putObject("time", new DurationTag(container.cpuNanos / 1_000_000_000.0));
+            map.putObject("entries", new ElementTag(container.entriesExecuted));
+            result.addObject(map);
+        }
+        return result;
+    }
+
+    public static MapTag getStats() {
+        MapTag map = new MapTag();
+        map.putObject("current_tick_time", new DurationTag(tickNanos / 1_000_000_000.0));
+        map.putObject("total_throttled", new ElementTag(totalThrottled));
+        map.putObject("total_stopped", new ElementTag(totalStopped));
+        return map;
+    }
+
+    public static void resetScriptStats() {
+        for (ScriptContainer container : ScriptRegistry.scriptContainers.values()) {
+            container.cpuNanos = 0;
+            container.entriesExecuted = 0;
+        }
+    }
+}
@@ -45,6 +45,35 @@ public class ScriptEngine {
         if (shouldHold(scriptQueue)) {
             return;
         }
+        if (scriptQueue.isolated) {
+            revolveEntries(scriptQueue);
+            return;
+        }
+        if (!QueueWatchdog.isEnabled()) {
+            long outerEntryStart = QueueWatchdog.entryStartNanos;
+            QueueWatchdog.entryStartNanos = 0;
+            try {
+                revolveEntries(scriptQueue);
+            }
+            finally {
+                QueueWatchdog.entryStartNanos = outerEntryStart;
+            }
+            return;
+        }
+        long outerNestedNanos = QueueWatchdog.nestedNanos, outerEntryStart = QueueWatchdog.entryStartNanos;
+        QueueWatchdog.nestedNanos = 0;
+        long revolveStart = System.nanoTime();
+        QueueWatchdog.entryStartNanos = revolveStart;
+        try {
+            revolveEntries(scriptQueue);
+        }
+        finally {
+            QueueWatchdog.nestedNanos = outerNestedNanos + (System.nanoTime() - revolveStart);
+            QueueWatchdog.entryStartNanos = outerEntryStart;
+        }
+    }
+
+    static void revolveEntries(ScriptQueue scriptQueue) {
         ScriptEntry scriptEntry = scriptQueue.getNext();
         while (scriptEntry != null) {
             scriptEntry.setSendingQueue(scriptQueue);
@@ -54,6 +83,9 @@ public class ScriptEngine {
                 scriptQueue.holdingOn = scriptEntry;
             }
             CommandExecutor.execute(scriptEntry);
+            if (!scriptQueue.isolated && QueueWatchdog.finishEntry(scriptQueue, scriptEntry)) {
+                return;
+            }
             if (scriptQueue instanceof TimedQueue) {
                 TimedQueue delayedQueue = (TimedQueue) scriptQueue;
                 if (delayedQueue.isDelayed() || delayedQueue.isPaused()) {
@@ -5,20 +5,28 @@ import com.denizenscript.denizencore.events.ScriptEvent;
 import com.denizenscript.denizencore.objects.ObjectTag;
 import com.denizenscript.denizencore.objects.core.*;
 import com.denizenscript.denizencore.scripts.ScriptEntry;
+import com.denizenscript.denizencore.scripts.ScriptEntryData;
+import com.denizenscript.denizencore.scripts.ScriptEntrySet;
+import com.denizenscript.denizencore.scripts.queues.core.InstantQueue;
 import com.denizenscript.denizencore.scripts.queues.core.TimedQueue;
 import com.denizenscript.denizencore.utilities.*;
 import com.denizenscript.denizencore.utilities.debugging.Debug;
 import com.denizenscript.denizencore.utilities.debugging.Debuggable;
 import com.denizenscript.denizencore.utilities.scheduling.OneTimeSchedulable;
+import com.denizenscript.denizencore.utilities.scheduling.ProcedurePool;
 import com.denizenscript.denizencore.utilities.scheduling.Schedulable;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 public abstract class ScriptQueue implements Debuggable, DefinitionProvider {
 
-    protected static long total_queues = 0;
+    /**
+     * How many queues were ever created. Atomic as isolated queues (see 'isolated') are created from worker threads.
+     */
+    protected static final AtomicLong total_queues = new AtomicLong();
 
     public static String getStats() {
         String c1 = DenizenCore.implementation.applyDebugColors("<W>"), c2 = DenizenCore.implementation.applyDebugColors("<A>");
@@ -36,9 +44,9 @@ public abstract class ScriptQueue implements Debuggable, DefinitionProvider {
             }
         }
         return "Total number of queues created: "
-                + total_queues
+                + total_queues.get()
                 + ", currently active queues: "
-                + allQueues.size() + ",\n" + String.join("", statsSet.stream().map(Map.Entry::getValue).collect(Collectors.joining()));
+                + (allQueues.size() + unregisteredQueues.size()) + ",\n" + String.join("", statsSet.stream().map(Map.Entry::getValue).collect(Collectors.joining()));
     }
 
     public static ListTag getStatsRawData() {
@@ -58,17 +66,37 @@ public abstract class ScriptQueue implements Debuggable, DefinitionProvider {
 
     protected static LinkedHashMap<String, ScriptQueue> allQueues = new LinkedHashMap<>();
 
+    /**
+     * Running instant queues that haven't had their ID generated yet, and so aren't in 'allQueues'.
+     * Instant queues nest, so this generally acts as a stack.
+     */
+    protected static ArrayList<ScriptQueue> unregisteredQueues = new ArrayList<>();
+
     public static Collection<ScriptQueue> getQueues() {
-        return allQueues.values();
+        if (unregisteredQueues.isEmpty()) {
+            return allQueues.values();
+        }
+        ArrayList<ScriptQueue> queues = new ArrayList<>(allQueues.size() + unregisteredQueues.size());
+        queues.addAll(allQueues.values());
+        queues.addAll(unregisteredQueues);
+        return queues;
     }
 
     public static boolean queueExists(String id) {
         return allQueues.containsKey(id);
     }
 
-    public String id;
+    /**
+     * The ID and colored debug ID, which are only generated when first requested (see 'getId' and 'getDebugId').
+     */
+    private String id, debugId;
+
+    private final String idPrefix;
 
-    public String debugId;
+    /**
+     * Whether this queue is currently in 'allQueues'.
+     */
+    private boolean isRegistered = false;
 
     /**
      * Whether this queue is locked to procedural commands only.
@@ -89,8 +117,21 @@ public abstract class ScriptQueue implements Debuggable, DefinitionProvider {
      */
     private long delay_time = 0;
 
+    /**
+     * Definitions that don't have a slot (see DefinitionSlots), such as dynamically named definitions.
+     */
     public MapTag definitions = new MapTag();
 
+    /**
+     * Definitions that have a slot (see DefinitionSlots). A given name is only ever in one of 'definitions' or 'slottedDefinitions'.
+     */
+    public SlottedDefinitions slottedDefinitions = new SlottedDefinitions();
+
+    /**
+     * Incremented whenever a definition is changed through 'addDefinition'.
+     */
+    public int definitionChangeCount = 0;
+
     public ListTag determinations = null;
 
     public ScriptTag script;
@@ -99,6 +140,11 @@ public abstract class ScriptQueue implements Debuggable, DefinitionProvider {
 
     public DeterminationTarget determinationTarget = null;
 
+    /**
+     * Whether the code that started this queue reads its determinations as soon as it returns, meaning the queue can't be delayed to a later tick (see QueueWatchdog).
+     */
+    public boolean resultReadInstantly = false;
+
     public ScriptQueue replacementQueue = null;
 
     public boolean is_stopping = false;
@@ -113,6 +159,13 @@ public abstract class ScriptQueue implements Debuggable, DefinitionProvider {
      */
     public boolean waitWhenEmpty = false;
 
+    /**
+     * If set true, the queue is running on a worker thread (see ProcedurePool), so it's never registered as a running queue,
+     * and isn't timed (see QueueWatchdog), as that relies on main thread state.
+     * Set automatically when the queue is started from a worker thread.
+     */
+    public boolean isolated = false;
+
     public boolean is_started;
 
     public long startTime = 0;
@@ -123,10 +176,55 @@ public abstract class ScriptQueue implements Debuggable, DefinitionProvider {
 
     public long numericId;
 
+    /**
+     * How long this queue has spent running entries in total, and in the tick 'cpuTick' (see QueueWatchdog).
+     */
+    public long cpuNanos = 0, tickCpuNanos = 0, cpuTick = -1;
+
+    /**
+     * How many entries this queue has ran, and how many times it's been delayed for going over a time limit (see QueueWatchdog).
+     */
+    public long entriesExecuted = 0, throttleCount = 0;
+
     protected ScriptQueue(String id) {
-        numericId = total_queues++;
-        this.id = id;
-        generateId(id, numericId, 0);
+        numericId = total_queues.getAndIncrement();
+        idPrefix = id;
+    }
+
+    /**
+     * Returns the queue's ID, generating it if needed. Running queues that weren't yet registered are registered once their ID exists.
+     */
+    public final String getId() {
+        if (id == null) {
+            generateId(idPrefix, numericId, 0);
+            if (is_started && !isStopped && !isRegistered && !isolated) {
+                register();
+            }
+        }
+        return id;
+    }
+
+    /**
+     * Returns the colored form of the queue's ID, for debug output.
+     */
+    public final String getDebugId() {
+        getId();
+        return debugId;
+    }
+
+    private void register() {
+        removeUnregistered();
+        allQueues.put(id, this);
+        isRegistered = true;
+    }
+
+    private void removeUnregistered() {
+        for (int i = unregisteredQueues.size() - 1; i >= 0; i--) {
+            if (unregisteredQueues.get(i) == this) {
+                unregisteredQueues.remove(i);
+                return;
+            }
+        }
     }
 
     public final void setContextSource(ContextSource source) {
@@ -144,7 +242,49 @@ public abstract class ScriptQueue implements Debuggable, DefinitionProvider {
                 return value;
             }
         }
-        return definitions.getDeepObject(definition);
+        int dot = definition.indexOf('.');
+        ObjectTag value = getRootDefinition(dot == -1 ? definition : definition.substring(0, dot));
+        if (dot == -1 || value == null) {
+            return value;
+        }
+        return value instanceof MapTag ? ((MapTag) value).getDeepObject(definition.substring(dot + 1)) : null;
+    }
+
+    /**
+     * Gets a definition by its slot (see DefinitionSlots), optionally followed by a sub-key path within a MapTag definition (like "<[root.sub.key]>").
+     */
+    public ObjectTag getDefinitionObject(int slot, String subKey) {
+        ObjectTag value = slottedDefinitions.get(slot);
+        if (value == null && !definitions.isEmpty()) {
+            value = definitions.getObject(DefinitionSlots.getName(slot));
+        }
+        if (subKey == null || value == null) {
+            return value;
+        }
+        return value instanceof MapTag ? ((MapTag) value).getDeepObject(subKey) : null;
+    }
+
+    private ObjectTag getRootDefinition(String name) {
+        int slot = DefinitionSlots.getSlot(CoreUtilities.toLowerCase(name));
+        if (slot != -1) {
+            ObjectTag value = slottedDefinitions.get(slot);
+            if (value != null || definitions.isEmpty()) {
+                return value;
+            }
+        }
+        return definitions.getObject(name);
+    }
+
+    private void setRootDefinition(String name, ObjectTag value) {
+        int slot = DefinitionSlots.getSlot(CoreUtilities.toLowerCase(name));
+        if (slot == -1) {
+            definitions.putObject(name, value);
+            return;
+        }
+        slottedDefinitions.set(slot, value);
+        if (!definitions.isEmpty()) {
+            definitions.remove(name);
+        }
     }
 
     @Override
@@ -154,7 +294,33 @@ public abstract class ScriptQueue implements Debuggable, DefinitionProvider {
                 return;
             }
         }
-        definitions.putDeepObject(definition, value);
+        definitionChangeCount++;
+        int dot = definition.indexOf('.');
+        if (dot == -1) {
+            setRootDefinition(definition, value);
+            return;
+        }
+        String root = definition.substring(0, dot);
+        ObjectTag rootValue = getRootDefinition(root);
+        if (!(rootValue instanceof MapTag)) {
+            if (value == null) {
+                return;
+            }
+            rootValue = new MapTag();
+            setRootDefinition(root, rootValue);
+        }
+        ((MapTag) rootValue).putDeepObject(definition.substring(dot + 1), value);
+    }
+
+    /**
+     * Sets a definition by its slot (see DefinitionSlots), or removes it if the value is null.
+     */
+    public void addDefinition(int slot, ObjectTag value) {
+        definitionChangeCount++;
+        slottedDefinitions.set(slot, value);
+        if (!definitions.isEmpty()) {
+            definitions.remove(DefinitionSlots.getName(slot));
+        }
     }
 
     @Override
@@ -180,8 +346,14 @@ public abstract class ScriptQueue implements Debuggable, DefinitionProvider {
         addDefinition(definition, (ObjectTag) null);
     }
 
+    /**
+     * Returns the map of all definitions. Any slotted definitions are moved into the map first, so that changes made to the returned map apply to the queue.
+     */
     @Override
     public MapTag getAllDefinitions() {
+        if (!slottedDefinitions.isEmpty()) {
+            slottedDefinitions.moveInto(definitions);
+        }
         return definitions;
     }
 
@@ -200,7 +372,9 @@ public abstract class ScriptQueue implements Debuggable, DefinitionProvider {
     public final void generateId(String prefix, long numericId, int depth) {
         if (prefix.startsWith("FORCE:")) {
             id = prefix.substring("FORCE:".length());
-            debugId = id;
+            if (debugId == null) {
+                debugId = id;
+            }
             return;
         }
         // DUUIDs v2.5
@@ -235,6 +409,9 @@ public abstract class ScriptQueue implements Debuggable, DefinitionProvider {
 
     /**
      * Converts any queue type to a timed queue.
+     * The remaining entries, definitions (including saved entries), and other state are handed to the new queue as-is rather than copied,
+     * so this takes the same time regardless of how much of the script is left.
+     * The new queue runs at instant speed, so the remaining entries still run instantly (other than any delays they apply).
      *
      * @param delay how long to delay initially.
      * @return the newly created queue.
@@ -243,29 +420,31 @@ public abstract class ScriptQueue implements Debuggable, DefinitionProvider {
         queueDebug("Forcing queue '<QUEUE>' into a timed queue...");
         Runnable r = callback;
         callback = null;
-        TimedQueue newQueue = new TimedQueue("FORCE:" + id, 0);
+        TimedQueue newQueue = new TimedQueue("FORCE:" + getId(), 0);
+        ((ScriptQueue) newQueue).debugId = getDebugId();
         replacementQueue = newQueue;
         stopSilent();
-        newQueue.id = id;
-        newQueue.debugId = debugId;
         newQueue.debugOutput = this.debugOutput;
-        for (ScriptEntry entry : getEntries()) {
-            entry = entry.clone();
-            entry.entryData.scriptEntry = entry;
-            entry.setInstant(true);
-            entry.setSendingQueue(newQueue);
-            entry.updateContext();
-            newQueue.script_entries.add(entry);
-        }
+        script_entries.moveAllTo(newQueue.script_entries);
+        // Converted entries keep running within the same tick, regardless of the new queue's speed
+        newQueue.script_entries.markAllInstant();
         newQueue.determinations = determinations;
-        newQueue.definitions = definitions.duplicate();
+        newQueue.definitions = definitions;
+        newQueue.slottedDefinitions = slottedDefinitions;
+        newQueue.definitionChangeCount = definitionChangeCount;
         newQueue.setContextSource(contextSource);
         newQueue.determinationTarget = determinationTarget;
+        newQueue.resultReadInstantly = resultReadInstantly;
         newQueue.setLastEntryExecuted(getLastEntryExecuted());
         clear();
         newQueue.delay = delay;
         newQueue.startTime = startTime;
         newQueue.startTimeMilli = startTimeMilli;
+        newQueue.cpuNanos = cpuNanos;
+        newQueue.tickCpuNanos = tickCpuNanos;
+        newQueue.cpuTick = cpuTick;
+        newQueue.entriesExecuted = entriesExecuted;
+        newQueue.throttleCount = throttleCount;
         newQueue.script = script;
         newQueue.holdingOn = holdingOn;
         newQueue.callBack(r);
@@ -285,7 +464,7 @@ public abstract class ScriptQueue implements Debuggable, DefinitionProvider {
     }
 
     public final void queueDebug(String message) {
-        Debug.echoDebug(this, "<O>" + message.replace("<QUEUE>", debugId + "<O>"));
+        Debug.echoDebug(this, "<O>" + message.replace("<QUEUE>", getDebugId() + "<O>"));
     }
 
     public final void start() {
@@ -299,7 +478,10 @@ public abstract class ScriptQueue implements Debuggable, DefinitionProvider {
         if (script_entries.isEmpty() && holdingOn == null) {
             return;
         }
-        if (CoreConfiguration.verifyThreadMatches && !DenizenCore.isMainThread()) {
+        if (ProcedurePool.isWorkerThread()) {
+            isolated = true;
+        }
+        if (CoreConfiguration.verifyThreadMatches && !isolated && !DenizenCore.isMainThread()) {
             try {
                 throw new RuntimeException("Invalid thread access - starting queue from thread " + Thread.currentThread());
             }
@@ -307,7 +489,16 @@ public abstract class ScriptQueue implements Debuggable, DefinitionProvider {
                 Debug.echoError(ex);
             }
         }
-        allQueues.put(id, this);
+        if (isolated) {
+            // Isolated queues are never registered
+        }
+        else if (id == null && this instanceof InstantQueue) {
+            unregisteredQueues.add(this);
+        }
+        else {
+            getId();
+            register();
+        }
         is_started = true;
         long delay = delay_time - DenizenCore.serverTimeMillis;
         boolean is_delayed = delay > 0;
@@ -363,9 +554,22 @@ public abstract class ScriptQueue implements Debuggable, DefinitionProvider {
 
     private void stopSilent() {
         is_stopping = true;
-        allQueues.remove(id);
+        if (isRegistered) {
+            allQueues.remove(id);
+            isRegistered = false;
+        }
+        else if (!isolated) {
+            removeUnregistered();
+        }
         is_started = false;
         isStopped = true;
+        onStop();
+    }
+
+    /**
+     * Called when the queue is stopped (including silent stops, such as being replaced by 'forceToTimed').
+     */
+    protected void onStop() {
     }
 
     public final void stop() {
@@ -409,6 +613,14 @@ public abstract class ScriptQueue implements Debuggable, DefinitionProvider {
         script_entries.addAll(entries);
     }
 
+    /**
+     * Adds the shared entries of a script path to the end of the queue, to be ran with a copy of the given entry data.
+     * The per-execution entries are only created as each entry is reached.
+     */
+    public final void addEntries(ScriptEntrySet set, ScriptEntryData data) {
+        script_entries.addAll(set.entries, data.clone());
+    }
+
     public final ListQueue getEntries() {
         return script_entries;
     }
@@ -417,6 +629,14 @@ public abstract class ScriptQueue implements Debuggable, DefinitionProvider {
         script_entries.addAllToStart(entries);
     }
 
+    /**
+     * Injects the shared entries of a script path at the start of the queue, to be ran with a copy of the given entry data.
+     * The per-execution entries are only created as each entry is reached.
+     */
+    public final void injectEntriesAtStart(ScriptEntrySet set, ScriptEntryData data) {
+        script_entries.addAllToStart(set.entries, data.clone());
+    }
+
     public final boolean removeFirst() {
         if (script_entries.isEmpty()) {
             return false;
@@ -451,6 +671,6 @@ public abstract class ScriptQueue implements Debuggable, DefinitionProvider {
 
     @Override
     public String toString() {
-        return id;
+        return getId();
     }
 }
@@ -1,10 +1,12 @@
 package com.denizenscript.denizencore.scripts.queues.core;
 
+import com.denizenscript.denizencore.scripts.ScriptEntry;
 import com.denizenscript.denizencore.scripts.queues.ScriptEngine;
 import com.denizenscript.denizencore.utilities.CoreConfiguration;
 import com.denizenscript.denizencore.DenizenCore;
 import com.denizenscript.denizencore.objects.core.DurationTag;
 import com.denizenscript.denizencore.scripts.queues.ScriptQueue;
+import com.denizenscript.denizencore.utilities.scheduling.TimingWheel;
 
 public class TimedQueue extends ScriptQueue {
 
@@ -12,6 +14,14 @@ public class TimedQueue extends ScriptQueue {
     public interface DelayTracker {
 
         boolean isDelayed();
+
+        /**
+         * Returns the DenizenCore.serverTimeMillis value the queue should sleep until before checking 'isDelayed' again,
+         * or -1 if unknown (in which case the queue is checked every tick).
+         */
+        default long getWakeupServerTime() {
+            return -1;
+        }
     }
 
     public static class DeltaTimeDelayTracker implements DelayTracker {
@@ -26,6 +36,11 @@ public class TimedQueue extends ScriptQueue {
         public boolean isDelayed() {
             return serverTimeEnd > DenizenCore.serverTimeMillis;
         }
+
+        @Override
+        public long getWakeupServerTime() {
+            return serverTimeEnd;
+        }
     }
 
     private long ticks;
@@ -34,8 +49,31 @@ public class TimedQueue extends ScriptQueue {
 
     public DelayTracker delay;
 
+    /**
+     * Whether this queue is currently in DenizenCore.timedQueues (ie, is checked every tick).
+     */
+    public boolean isAwake = false;
+
+    /**
+     * Whether this queue was taken out of the per-tick revolve list by 'trySleep', and is waiting for 'wakeUp'.
+     */
+    public boolean isSleeping = false;
+
+    /**
+     * If the queue is sleeping until its delay ends, this is its entry in DenizenCore.sleepingQueues.
+     */
+    public TimingWheel.Entry<TimedQueue> wakeupEntry = null;
+
     public void delayFor(DurationTag duration) {
-        delay = new DeltaTimeDelayTracker(duration.getMillis());
+        setDelay(new DeltaTimeDelayTracker(duration.getMillis()));
+    }
+
+    /**
+     * Sets the queue's delay tracker, and wakes the queue if it was sleeping on a previous delay.
+     */
+    public void setDelay(DelayTracker delay) {
+        this.delay = delay;
+        wakeUp();
     }
 
     public boolean isDelayed() {
@@ -71,14 +109,16 @@ public class TimedQueue extends ScriptQueue {
     }
 
     /**
-     * Pauses the queue. Paused queues will check
-     * to be re-resumed every 'rotation', defined
-     * by the speed of the queue.
+     * Pauses the queue. Paused queues are taken out
+     * of the per-tick revolve list until resumed.
      *
      * @param paused whether the queue should be paused
      */
     public TimedQueue setPaused(boolean paused) {
         this.paused = paused;
+        if (!paused) {
+            wakeUp();
+        }
         return this;
     }
 
@@ -105,12 +145,79 @@ public class TimedQueue extends ScriptQueue {
     @Override
     public void onStart() {
         revolve();
-        if (script_entries.isEmpty() && holdingOn == null) {
+        if (isStopped || (script_entries.isEmpty() && holdingOn == null) || isAwake) {
+            return;
+        }
+        cancelWakeup();
+        isSleeping = false;
+        if (!trySleep()) {
+            isAwake = true;
+            DenizenCore.timedQueues.add(this);
+        }
+    }
+
+    /**
+     * Moves the queue back into the per-tick revolve list if it was sleeping or parked (due to a pause, delay, or held command).
+     * Safe to call from any thread.
+     */
+    public void wakeUp() {
+        if (!DenizenCore.isMainThread()) {
+            DenizenCore.runOnMainThread(this::wakeUp);
+            return;
+        }
+        if (!isSleeping || isStopped) {
             return;
         }
+        cancelWakeup();
+        isSleeping = false;
+        isAwake = true;
+        tickCounter = (int) ticks;
         DenizenCore.timedQueues.add(this);
     }
 
+    /**
+     * Called after the queue revolves. If the queue can't do anything until an explicit wakeup or a known delay end,
+     * marks it as no longer awake (and indexes it in DenizenCore.sleepingQueues if relevant) and returns true.
+     */
+    public boolean trySleep() {
+        if (paused || isHeld()) {
+            isAwake = false;
+            isSleeping = true;
+            return true;
+        }
+        if (delay != null && delay.isDelayed()) {
+            long wakeupTime = delay.getWakeupServerTime();
+            if (wakeupTime == -1) {
+                return false;
+            }
+            isAwake = false;
+            isSleeping = true;
+            wakeupEntry = DenizenCore.sleepingQueues.add(this, wakeupTime);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns true if the queue is waiting for a held ('~') command to finish.
+     */
+    public boolean isHeld() {
+        ScriptEntry last = getLastEntryExecuted();
+        return holdingOn != null && last != null && last.shouldWaitFor();
+    }
+
+    public void cancelWakeup() {
+        if (wakeupEntry != null) {
+            wakeupEntry.cancel();
+            wakeupEntry = null;
+        }
+    }
+
+    @Override
+    protected void onStop() {
+        cancelWakeup();
+    }
+
     /**
      * Tick counter for 'tryRevolveOnce'.
      */
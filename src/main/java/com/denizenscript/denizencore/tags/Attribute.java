@@ -5,9 +5,11 @@ import com.denizenscript.denizencore.objects.ObjectTag;
 import com.denizenscript.denizencore.objects.core.ElementTag;
 import com.denizenscript.denizencore.objects.core.MapTag;
 import com.denizenscript.denizencore.scripts.ScriptEntry;
+import com.denizenscript.denizencore.utilities.BoundedCache;
 import com.denizenscript.denizencore.utilities.CoreConfiguration;
 import com.denizenscript.denizencore.utilities.CoreUtilities;
 import com.denizenscript.denizencore.utilities.DefinitionProvider;
+import com.denizenscript.denizencore.utilities.DefinitionSlots;
 import com.denizenscript.denizencore.utilities.debugging.Debug;
 
 import java.util.*;
@@ -26,6 +28,16 @@ public class Attribute {
 
         public ObjectTagProcessor.TagData<? extends ObjectTag, ? extends ObjectTag> data;
 
+        /**
+         * For the base of a definition tag with a constant name (like "<[x]>"), the slot of the root definition name (see DefinitionSlots), otherwise -1.
+         */
+        public int definitionSlot = -1;
+
+        /**
+         * For the base of a definition tag with a constant deep name (like "<[x.y.z]>"), the sub-key path after the root name ("y.z"), otherwise null.
+         */
+        public String definitionSubKey = null;
+
         public AttributeComponent(String inp) {
             if (inp.endsWith("]") && CoreUtilities.contains(inp, '[')) {
                 int ind = inp.indexOf('[');
@@ -48,7 +60,7 @@ public class Attribute {
         }
     }
 
-    public static HashMap<String, AttributeComponent[]> attribsLookup = new HashMap<>();
+    public static BoundedCache<String, AttributeComponent[]> attribsLookup = new BoundedCache<>("attributes", () -> CoreConfiguration.tagAttributeCacheLimit, () -> CoreConfiguration.tagCacheWeakKeys);
 
     private static boolean isNumber(char c) {
         return c >= '0' && c <= '9';
@@ -93,10 +105,11 @@ public class Attribute {
                     if (baseTag != null && baseTag.processor != null) {
                         proc = baseTag.processor;
                     }
+                    resolveDefinitionSlot(component);
                 }
                 else if (proc != null) {
                     component.data = proc.registeredObjectTags.get(component.key);
-                    proc = component.data == null ? null : component.data.processor;
+                    proc = component.data == null ? null : component.data.getReturnProcessor();
                 }
                 matches.add(component);
                 x2 = -1;
@@ -115,6 +128,22 @@ public class Attribute {
         return matchesRes;
     }
 
+    private static void resolveDefinitionSlot(AttributeComponent component) {
+        if (component.rawParam == null || CoreUtilities.contains(component.rawParam, '<')) {
+            return;
+        }
+        if (!component.key.isEmpty() && !component.key.equals("def") && !component.key.equals("definition")) {
+            return;
+        }
+        String name = CoreUtilities.toLowerCase(component.rawParam);
+        int dot = name.indexOf('.');
+        int slot = DefinitionSlots.assignSlot(dot == -1 ? name : name.substring(0, dot));
+        if (slot != -1) {
+            component.definitionSlot = slot;
+            component.definitionSubKey = dot == -1 ? null : name.substring(dot + 1);
+        }
+    }
+
     public AttributeComponent[] attributes;
     public ObjectTag[] contexts;
 
@@ -126,8 +155,16 @@ public class Attribute {
 
     ScriptEntry scriptEntry;
 
+    /**
+     * The context the tag is being parsed in. This is generally shared with the caller (and other tags), so must not be modified directly - use 'getMutableContext' for that.
+     */
     public TagContext context;
 
+    /**
+     * Whether 'context' is a private copy for this attribute, rather than shared.
+     */
+    private boolean ownsContext = false;
+
     String origin;
 
     public ArrayList<String> seemingSuccesses = new ArrayList<>(2);
@@ -167,36 +204,89 @@ public class Attribute {
         this(ref, scriptEntry, context, 0);
     }
 
+    /**
+     * Uses the given context by reference where that's equivalent to a private copy, ie where this attribute's own error display rule (show errors unless there's a fallback) would have the same result as the context's.
+     * Must be called after the attribute chain, fulfilled count and hadAlternative are set.
+     */
     private void setContext(TagContext context) {
         if (context == null) {
             context = CoreUtilities.basicContext;
         }
-        this.context = context.clone();
-        this.context.showErrors = () -> !hasAlternative();
+        this.context = context;
+        ownsContext = false;
+        if (!context.debug && (context.showErrors != TagContext.DEFAULT_SHOW_ERRORS || hasAlternative())) {
+            getMutableContext();
+        }
+        if (hadAlternative) {
+            getMutableContext().debug = false;
+        }
+    }
+
+    /**
+     * Returns a context that is private to this attribute (copying the shared one the first time this is called), for tags that need to modify it.
+     */
+    public final TagContext getMutableContext() {
+        if (!ownsContext) {
+            context = context.clone();
+            context.showErrors = () -> !hasAlternative();
+            ownsContext = true;
+        }
+        return context;
     }
 
     public Attribute(Attribute ref, ScriptEntry scriptEntry, TagContext context, int skippable) {
+        reset(ref, scriptEntry, context, skippable);
+    }
+
+    /**
+     * Sets this attribute back to the start of the given reference attribute's chain, exactly as the equivalent constructor would, but reusing this attribute's arrays and lists where possible.
+     */
+    public final void reset(Attribute ref, ScriptEntry scriptEntry, TagContext context, int skippable) {
         origin = ref.origin;
         this.scriptEntry = scriptEntry;
-        setContext(context);
         attributes = ref.attributes;
-        contexts = new ObjectTag[attributes.length];
-        setHadAlternative(ref.hadAlternative);
+        if (contexts == null || contexts.length < attributes.length) {
+            contexts = new ObjectTag[attributes.length];
+        }
+        else {
+            Arrays.fill(contexts, 0, attributes.length, null);
+        }
+        fulfilled = skippable;
+        hadAlternative = ref.hadAlternative;
+        hadManualFulfill = false;
+        lastValid = null;
+        if (!seemingSuccesses.isEmpty()) {
+            seemingSuccesses.clear();
+        }
+        hasContextFailed = false;
+        setContext(context);
         if (this.context.debug) {
             filled = new int[attributes.length];
             for (int i = 0; i < skippable; i++) {
                 filled[i] = 3;
             }
         }
-        fulfilled = skippable;
+        else {
+            filled = null;
+        }
+    }
+
+    /**
+     * Drops references to the objects of the last parse, so that a pooled attribute doesn't keep them alive.
+     */
+    final void clearReferences() {
+        scriptEntry = null;
+        context = null;
+        lastValid = null;
+        Arrays.fill(contexts, null);
     }
 
     public Attribute(String attributes, ScriptEntry scriptEntry, TagContext context) throws TagProcessingException {
         origin = attributes;
         this.scriptEntry = scriptEntry;
-        setContext(context);
         this.attributes = separate_attributes(attributes);
         contexts = new ObjectTag[this.attributes.length];
+        setContext(context);
         if (this.context.debug) {
             filled = new int[this.attributes.length];
         }
@@ -274,6 +364,27 @@ public class Attribute {
         fulfilled++;
     }
 
+    /* Referenced by TagCodeGenerator */
+    public final int getFulfilled() {
+        return fulfilled;
+    }
+
+    /**
+     * Skips ahead to the fallback tag (like 'if_null') at the given index after an earlier part of the tag failed, and runs it (as ReplaceableTagEvent.getAlternative would).
+     * Returns the fallback's value (which is also fulfilled), or null if the fallback failed too.
+     */
+    /* Referenced by TagCodeGenerator */
+    public final ObjectTag runFallback(int index) {
+        trackLastTagFailure();
+        fulfilled = index;
+        TagManager.TagBaseData fallback = fallbackTags.get(attributes[index].key);
+        ObjectTag result = fallback == null ? null : fallback.baseForm.run(this);
+        if (result != null) {
+            fulfillOne(result);
+        }
+        return result;
+    }
+
     /* Referenced by TagCodeGenerator */
     public final void trackLastTagFailure() {
         if (fulfilled < attributes.length) {
@@ -365,6 +476,16 @@ public class Attribute {
         }
     }
 
+    /**
+     * Returns the current (not yet fulfilled) attribute component, or null if the attribute is complete.
+     */
+    public final AttributeComponent getCurrentComponent() {
+        if (fulfilled >= attributes.length) {
+            return null;
+        }
+        return attributes[fulfilled];
+    }
+
     public final String getRawParam() {
         if (fulfilled >= attributes.length) {
             return null;
@@ -377,6 +498,7 @@ public class Attribute {
         if (inp == null) {
             return null;
         }
+        TagContext context = getMutableContext();
         DefinitionProvider originalProvider = context.definitionProvider;
         context.definitionProvider = customProvider;
         try {
@@ -560,9 +682,8 @@ public class Attribute {
 
     public void setHadAlternative(boolean hadAlternative) {
         this.hadAlternative = hadAlternative;
-        if (context != null && context.debug && hadAlternative) {
-            context = context.clone();
-            context.debug = false;
+        if (context != null && hadAlternative) {
+            getMutableContext().debug = false;
         }
     }
 
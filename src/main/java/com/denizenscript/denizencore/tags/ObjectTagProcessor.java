@@ -40,6 +40,19 @@ public class ObjectTagProcessor<T extends ObjectTag> {
             ObjectType<R> type = ObjectFetcher.getType(returnType);
             this.processor = type == null ? null : type.tagProcessor;
         }
+
+        /**
+         * Returns the tag processor for the return type, looking it up again if the type wasn't registered yet when the tag was.
+         */
+        public ObjectTagProcessor<R> getReturnProcessor() {
+            if (processor == null) {
+                ObjectType<R> type = ObjectFetcher.getType(returnType);
+                if (type != null) {
+                    processor = type.tagProcessor;
+                }
+            }
+            return processor;
+        }
     }
 
     public HashMap<String, TagData<T, ? extends ObjectTag>> registeredObjectTags = new HashMap<>();
@@ -104,12 +117,12 @@ public class ObjectTagProcessor<T extends ObjectTag> {
                 return null;
             }
             ObjectTag param = attribute.getParamObject();
-            if (TagManager.isStaticParsing && paramObjType != null && !paramObjType.canConvertStatic) {
+            if (TagManager.isStaticParsing() && paramObjType != null && !paramObjType.canConvertStatic) {
                 return null;
             }
             P result = param.asType(paramType, attribute.context);
             if (result == null) {
-                if (!TagManager.isStaticParsing) {
+                if (!TagManager.isStaticParsing()) {
                     attribute.echoError("Tag '<Y>" + name + "<W>' requires input of type '<Y>" + DebugInternals.getClassNameOpti(paramType) + "<W>' but received input '<LR>" + param + "<W>'.");
                 }
                 return null;
@@ -152,6 +165,7 @@ public class ObjectTagProcessor<T extends ObjectTag> {
             }
             return object;
         }
+        TagWatchdog.check();
         Attribute.AttributeComponent nextComponent = attribute.attributes[attribute.fulfilled];
         ObjectTag returned;
         TagData data = nextComponent.data;
@@ -5,10 +5,11 @@ import com.denizenscript.denizencore.objects.core.ElementTag;
 import com.denizenscript.denizencore.objects.ObjectTag;
 import com.denizenscript.denizencore.objects.core.ScriptTag;
 import com.denizenscript.denizencore.scripts.ScriptEntry;
+import com.denizenscript.denizencore.utilities.BoundedCache;
 import com.denizenscript.denizencore.utilities.CoreConfiguration;
 import com.denizenscript.denizencore.utilities.debugging.Debug;
 
-import java.util.HashMap;
+import java.util.ArrayDeque;
 
 public class ReplaceableTagEvent {
 
@@ -21,7 +22,17 @@ public class ReplaceableTagEvent {
 
     public ObjectTag replaced_obj;
 
+    /**
+     * The raw tag text, for the placeholder value (an ElementTag of the raw text) that an event has before it's replaced.
+     * Only built if actually requested, as most tags are replaced successfully.
+     */
+    private String placeholderText;
+
     public ObjectTag getReplacedObj() {
+        if (placeholderText != null) {
+            replaced_obj = new ElementTag(placeholderText);
+            placeholderText = null;
+        }
         return replaced_obj;
     }
 
@@ -48,13 +59,13 @@ public class ReplaceableTagEvent {
 
     public ReferenceData mainRef = null;
 
-    public static HashMap<String, ReferenceData> refs = new HashMap<>();
+    public static BoundedCache<String, ReferenceData> refs = new BoundedCache<>("tag_references", () -> CoreConfiguration.tagReferenceCacheLimit, () -> CoreConfiguration.tagCacheWeakKeys);
 
     public ReplaceableTagEvent(ReferenceData ref, String tag, TagContext context) {
         // If tag is not replaced, return the tag
         // TODO: Possibly make this return "null" ... might break some
         // scripts using tags incorrectly, but makes more sense overall
-        this.replaced_obj = new ElementTag(tag);
+        this.placeholderText = tag;
         if (ref != null) {
             mainRef = ref;
             core_attributes = new Attribute(ref.attribs, context.entry, context, ref.skippable);
@@ -62,6 +73,44 @@ public class ReplaceableTagEvent {
         }
     }
 
+    /**
+     * Events (and their attributes) that are free for reuse on the current thread, see 'obtain'.
+     */
+    private static final ThreadLocal<ArrayDeque<ReplaceableTagEvent>> pool = ThreadLocal.withInitial(ArrayDeque::new);
+
+    public static final int MAX_POOLED_PER_THREAD = 32;
+
+    /**
+     * Returns an event for the (already parsed) tag, reusing a released one from the current thread if available.
+     * The event must be given back via 'release' once the tag is read, and neither it nor its attributes may be used after that.
+     */
+    public static ReplaceableTagEvent obtain(ReferenceData ref, String tag, TagContext context) {
+        ReplaceableTagEvent event = pool.get().pollLast();
+        if (event == null) {
+            return new ReplaceableTagEvent(ref, tag, context);
+        }
+        event.placeholderText = tag;
+        event.mainRef = ref;
+        event.raw_tag = ref.rawTag;
+        event.core_attributes.reset(ref.attribs, context.entry, context, ref.skippable);
+        return event;
+    }
+
+    public void release() {
+        wasReplaced = false;
+        replaced_obj = null;
+        value_tagged = null;
+        placeholderText = null;
+        alternateBase = null;
+        mainRef = null;
+        raw_tag = null;
+        core_attributes.clearReferences();
+        ArrayDeque<ReplaceableTagEvent> free = pool.get();
+        if (free.size() < MAX_POOLED_PER_THREAD) {
+            free.addLast(this);
+        }
+    }
+
     public ReplaceableTagEvent(String tag, TagContext context) throws TagProcessingException {
         this(refs.get(tag), tag, context);
         if (mainRef != null) {
@@ -222,6 +271,7 @@ public class ReplaceableTagEvent {
     }
 
     public void setReplacedObject(ObjectTag obj) {
+        placeholderText = null;
         replaced_obj = obj;
         wasReplaced = obj != null;
     }
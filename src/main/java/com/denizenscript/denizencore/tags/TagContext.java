@@ -20,8 +20,10 @@ public abstract class TagContext implements Debuggable, Cloneable {
         return true;
     }
 
+    public static final ShowErrorsMethod DEFAULT_SHOW_ERRORS = TagContext::defaultShowErrors;
+
     public boolean debug;
-    public ShowErrorsMethod showErrors = TagContext::defaultShowErrors;
+    public ShowErrorsMethod showErrors = DEFAULT_SHOW_ERRORS;
     public ScriptEntry entry;
     public ScriptTag script;
     public DefinitionProvider definitionProvider;
@@ -1,15 +1,18 @@
 package com.denizenscript.denizencore.tags;
 
 import com.denizenscript.denizencore.exceptions.TagProcessingException;
+import com.denizenscript.denizencore.exceptions.TagTimeoutException;
 import com.denizenscript.denizencore.objects.*;
 import com.denizenscript.denizencore.objects.core.ElementTag;
 import com.denizenscript.denizencore.scripts.ScriptEntry;
 import com.denizenscript.denizencore.tags.core.*;
 import com.denizenscript.denizencore.utilities.AsciiMatcher;
+import com.denizenscript.denizencore.utilities.BoundedCache;
 import com.denizenscript.denizencore.utilities.CoreConfiguration;
 import com.denizenscript.denizencore.utilities.CoreUtilities;
 import com.denizenscript.denizencore.utilities.codegen.TagCodeGenerator;
 import com.denizenscript.denizencore.utilities.codegen.TagNamer;
+import com.denizenscript.denizencore.utilities.scheduling.ProcedurePool;
 import com.denizenscript.denizencore.utilities.debugging.Debug;
 import com.denizenscript.denizencore.DenizenCore;
 import com.denizenscript.denizencore.utilities.debugging.DebugInternals;
@@ -17,14 +20,29 @@ import com.denizenscript.denizencore.utilities.debugging.DebugInternals;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
-import java.util.concurrent.*;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
 public class TagManager {
 
-    /** If true: a static tag parsing is occurring. Tags should return null if non-static output. */
+    /** If true: a static tag parsing is occurring. Tags should return null if non-static output. Prefer 'isStaticParsing()', as procedure pool workers track their own value. */
     public static boolean isStaticParsing = false;
 
+    private static final ThreadLocal<Boolean> workerStaticParsing = new ThreadLocal<>();
+
+    public static boolean isStaticParsing() {
+        return ProcedurePool.isWorkerThread() ? workerStaticParsing.get() == Boolean.TRUE : isStaticParsing;
+    }
+
+    public static void setStaticParsing(boolean staticParsing) {
+        if (ProcedurePool.isWorkerThread()) {
+            workerStaticParsing.set(staticParsing);
+        }
+        else {
+            isStaticParsing = staticParsing;
+        }
+    }
+
     public static void registerCoreTags() {
         // Objects
         new ListTagBase();
@@ -93,7 +111,7 @@ public class TagManager {
             ObjectTag param = attribute.getParamObject();
             P result = param.asType(paramType, attribute.context);
             if (result == null) {
-                if (!TagManager.isStaticParsing) {
+                if (!TagManager.isStaticParsing()) {
                     attribute.echoError("Tag '<Y>" + name + "<W>' requires input of type '<Y>" + DebugInternals.getClassNameOpti(paramType) + "<W>' but received input '<LR>" + param + "<W>'.");
                 }
                 return null;
@@ -128,6 +146,7 @@ public class TagManager {
         if (CoreConfiguration.debugVerbose) {
             Debug.log("Tag fire: " + event.raw_tag + ", " + event.getAttributes().attributes[0].rawKey.contains("@") + ", " + event.hasAlternative() + "...");
         }
+        TagWatchdog.check();
         TagBaseData baseHandler = event.alternateBase != null ? event.alternateBase : event.mainRef.tagBase;
         if (baseHandler != null) {
             Attribute attribute = event.getAttributes();
@@ -153,6 +172,9 @@ public class TagManager {
                     }
                 }
             }
+            catch (TagTimeoutException ex) {
+                throw ex;
+            }
             catch (Throwable ex) {
                 Debug.echoError(ex);
             }
@@ -174,61 +196,77 @@ public class TagManager {
 
     public static boolean isInTag = false;
 
+    /**
+     * @deprecated Time-limited tags run on the calling thread (see TagWatchdog), so this is never set anymore.
+     */
+    @Deprecated
     public static volatile Thread tagThread = null;
 
+    /**
+     * Fires the tag event on the current thread, aborting it (with an error message) if it runs for longer than the given number of seconds.
+     */
     public static void executeWithTimeLimit(final ReplaceableTagEvent event, int seconds) {
-        ExecutorService executor = Executors.newFixedThreadPool(4);
-        Future<?> future = executor.submit(() -> {
-            try {
-                tagThread = Thread.currentThread();
-                DenizenCore.implementation.preTagExecute();
-                if (isInTag) {
-                    fireEvent(event);
-                }
-                else {
-                    isInTag = true;
-                    fireEvent(event);
-                    isInTag = false;
-                }
-            }
-            finally {
-                DenizenCore.implementation.postTagExecute();
-                tagThread = null;
-            }
-        });
-        executor.shutdown();
+        TagWatchdog.arm(TimeUnit.SECONDS.toNanos(seconds));
         try {
-            future.get(seconds, TimeUnit.SECONDS);
-        }
-        catch (InterruptedException e) {
-            Debug.echoError("Tag filling was interrupted!");
+            DenizenCore.implementation.preTagExecute();
+            isInTag = true;
+            fireEvent(event);
         }
-        catch (ExecutionException e) {
-            Debug.echoError(e);
+        catch (TagTimeoutException ex) {
+            Debug.echoError(ex.getMessage());
         }
-        catch (TimeoutException e) {
-            future.cancel(true);
-            Debug.echoError("Tag filling timed out!");
+        finally {
+            isInTag = false;
+            TagWatchdog.disarm();
+            DenizenCore.implementation.postTagExecute();
         }
-        executor.shutdownNow();
     }
 
     public static ObjectTag readSingleTagObject(ParseableTagPiece tag, TagContext context) {
-        ReplaceableTagEvent event = new ReplaceableTagEvent(tag.tagData, tag.content, context);
-        return readSingleTagObject(context, event);
+        if (tag.tagData == null) {
+            return readSingleTagObject(context, new ReplaceableTagEvent(tag.tagData, tag.content, context));
+        }
+        ReplaceableTagEvent event = ReplaceableTagEvent.obtain(tag.tagData, tag.content, context);
+        try {
+            return readSingleTagObject(context, event);
+        }
+        finally {
+            event.release();
+        }
     }
 
+    /**
+     * Whether a tag failed since the current command started, on the main thread (and other non-worker threads). Prefer 'hasRecentTagError'.
+     */
     public static boolean recentTagError = true;
 
+    /**
+     * Same as 'recentTagError', for procedure pool worker threads (see ProcedurePool), which never touch the shared field.
+     */
+    private static final ThreadLocal<Boolean> workerRecentTagError = new ThreadLocal<>();
+
+    public static boolean hasRecentTagError() {
+        return ProcedurePool.isWorkerThread() ? workerRecentTagError.get() == Boolean.TRUE : recentTagError;
+    }
+
+    public static void setRecentTagError(boolean error) {
+        if (ProcedurePool.isWorkerThread()) {
+            workerRecentTagError.set(error);
+        }
+        else {
+            recentTagError = error;
+        }
+    }
+
     public static ObjectTag readSingleTagObjectNoDebug(TagContext context, ReplaceableTagEvent event) {
         int tT = CoreConfiguration.tagTimeoutUnsafe ? CoreConfiguration.tagTimeout : 0;
         if (CoreConfiguration.debugVerbose) {
             Debug.log("Tag read: " + event.raw_tag + ", " + tT + "...");
         }
-        TagContext last = Debug.currentContext;
-        Debug.currentContext = context;
+        TagContext last = Debug.getCurrentContext();
+        Debug.setCurrentContext(context);
         try {
-            if (tT <= 0 || isInTag || (!Debug.shouldDebug(context) && !CoreConfiguration.tagTimeoutWhenSilent)) {
+            if (tT <= 0 || isInTag || ProcedurePool.isWorkerThread() || (!Debug.shouldDebug(context) && !CoreConfiguration.tagTimeoutWhenSilent)) {
                 fireEvent(event);
             }
             else {
@@ -240,7 +278,7 @@ public class TagManager {
             return event.getReplacedObj();
         }
         finally {
-            Debug.currentContext = last;
+            Debug.setCurrentContext(last);
         }
     }
 
@@ -252,7 +290,7 @@ public class TagManager {
         if (!event.replaced()) {
             String tagStr = "<LG><" + event + "<LG>><W>";
             Debug.echoError(context, "Tag " + tagStr + " is invalid!");
-            recentTagError = true;
+            setRecentTagError(true);
             if (OBJECTTAG_CONFUSION_PATTERN.matcher(tagStr).matches()) {
                 Debug.echoError(context, "'ObjectTag' notation is for documentation purposes, and not to be used literally."
                     + " An actual object must be inserted instead. If confused, join our Discord at https://discord.gg/Q6pZGSR to ask for help!");
@@ -282,7 +320,7 @@ public class TagManager {
 
     public static Pattern OBJECTTAG_CONFUSION_PATTERN = Pattern.compile("<\\w+tag[\\[.>].*", Pattern.CASE_INSENSITIVE);
 
-    public static HashMap<String, ParseableTag> preCalced = new HashMap<>();
+    public static BoundedCache<String, ParseableTag> preCalced = new BoundedCache<>("parsed_text", () -> CoreConfiguration.tagTextCacheLimit, () -> CoreConfiguration.tagCacheWeakKeys);
 
     public static ParseableTag DEFAULT_PARSEABLE_EMPTY = new ParseableTag("");
 
@@ -353,7 +391,9 @@ public class TagManager {
             return preParsed;
         }
         ParseableTag result = parseTextToTagInternal(arg, context, false);
-        preCalced.put(arg, result);
+        if (result != null) {
+            preCalced.put(arg, result);
+        }
         return result;
     }
 
@@ -0,0 +1,135 @@
+package com.denizenscript.denizencore.tags;
+
+import com.denizenscript.denizencore.exceptions.TagTimeoutException;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Enforces the tag time limit (CoreConfiguration.tagTimeout) for tags that run on the calling thread.
+ * Each thread that runs a time-limited tag has its own deadline (see 'Watch'), and a single long-lived daemon thread waits for the earliest armed deadline and marks it as expired.
+ * Tag dispatch (see 'check') then aborts the tag by throwing a TagTimeoutException.
+ * This means a time-limited tag costs only a few field writes to start, and a single volatile read per dispatch while no deadline has expired.
+ * Only outermost tags are time-limited, so a thread has at most one deadline armed at a time.
+ */
+public class TagWatchdog {
+
+    /**
+     * The deadline of a single thread.
+     */
+    public static class Watch {
+
+        /**
+         * The System.nanoTime() value the tag must finish by, or 0 if not armed.
+         */
+        public long deadline = 0;
+
+        /**
+         * Whether the watchdog thread saw the deadline pass.
+         */
+        public volatile boolean expired = false;
+    }
+
+    private static final ThreadLocal<Watch> currentWatch = ThreadLocal.withInitial(Watch::new);
+
+    public static Watch getWatch() {
+        return currentWatch.get();
+    }
+
+    /**
+     * Makes the current thread use the given watch, so that it's held to another thread's deadline (used by procedure pool workers, see ProcedurePool.map).
+     */
+    public static void setWatch(Watch watch) {
+        currentWatch.set(watch);
+    }
+
+    /**
+     * Every currently armed watch.
+     */
+    public static final Set<Watch> armed = ConcurrentHashMap.newKeySet();
+
+    /**
+     * How many armed watches have expired, so that 'check' can skip the thread-local lookup entirely while this is 0.
+     */
+    public static final AtomicInteger expiredCount = new AtomicInteger();
+
+    private static Thread watchdogThread = null;
+
+    private static synchronized Thread getWatchdogThread() {
+        if (watchdogThread == null) {
+            watchdogThread = new Thread(TagWatchdog::runWatchdog, "Denizen-Tag-Watchdog");
+            watchdogThread.setDaemon(true);
+            watchdogThread.start();
+        }
+        return watchdogThread;
+    }
+
+    private static void runWatchdog() {
+        while (true) {
+            long now = System.nanoTime();
+            long wait = Long.MAX_VALUE;
+            for (Watch watch : armed) {
+                synchronized (watch) {
+                    if (watch.deadline == 0 || watch.expired) {
+                        continue;
+                    }
+                    long remaining = watch.deadline - now;
+                    if (remaining <= 0) {
+                        watch.expired = true;
+                        expiredCount.incrementAndGet();
+                    }
+                    else {
+                        wait = Math.min(wait, remaining);
+                    }
+                }
+            }
+            if (wait == Long.MAX_VALUE) {
+                LockSupport.park();
+            }
+            else {
+                LockSupport.parkNanos(wait);
+            }
+        }
+    }
+
+    /**
+     * Arms a deadline the given number of nanoseconds from now, for the current thread.
+     */
+    public static void arm(long nanos) {
+        Thread watchdog = getWatchdogThread();
+        Watch watch = currentWatch.get();
+        synchronized (watch) {
+            watch.deadline = System.nanoTime() + nanos;
+        }
+        armed.add(watch);
+        LockSupport.unpark(watchdog);
+    }
+
+    /**
+     * Disarms the current thread's deadline, if any.
+     */
+    public static void disarm() {
+        Watch watch = currentWatch.get();
+        armed.remove(watch);
+        synchronized (watch) {
+            watch.deadline = 0;
+            if (watch.expired) {
+                watch.expired = false;
+                expiredCount.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Throws a TagTimeoutException if the current thread's deadline has passed.
+     */
+    public static void check() {
+        if (expiredCount.get() != 0) {
+            if (currentWatch.get().expired) {
+                throw new TagTimeoutException("Tag filling timed out!");
+            }
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.denizenscript.denizencore.tags.core;
 
 import com.denizenscript.denizencore.objects.core.ElementTag;
+import com.denizenscript.denizencore.scripts.queues.ScriptQueue;
+import com.denizenscript.denizencore.tags.Attribute;
 import com.denizenscript.denizencore.tags.TagRunnable;
 import com.denizenscript.denizencore.objects.ObjectTag;
 import com.denizenscript.denizencore.tags.TagManager;
@@ -35,7 +37,14 @@ public class DefinitionTagBase {
                 attribute.echoError("No definitions are provided in this tag's context!");
                 return null;
             }
-            ObjectTag def = definitionProvider.getDefinitionObject(defName.asLowerString());
+            Attribute.AttributeComponent component = attribute.getCurrentComponent();
+            ObjectTag def;
+            if (component != null && component.definitionSlot != -1 && definitionProvider instanceof ScriptQueue) {
+                def = ((ScriptQueue) definitionProvider).getDefinitionObject(component.definitionSlot, component.definitionSubKey);
+            }
+            else {
+                def = definitionProvider.getDefinitionObject(defName.asLowerString());
+            }
             if (def == null) {
                 attribute.echoError("Invalid definition name '" + defName + "'.");
                 return null;
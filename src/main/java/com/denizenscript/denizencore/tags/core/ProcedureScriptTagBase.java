@@ -1,6 +1,10 @@
 package com.denizenscript.denizencore.tags.core;
 
+import com.denizenscript.denizencore.objects.ObjectTag;
 import com.denizenscript.denizencore.objects.core.DurationTag;
+import com.denizenscript.denizencore.scripts.ScriptEntryData;
+import com.denizenscript.denizencore.scripts.ScriptEntrySet;
+import com.denizenscript.denizencore.scripts.containers.ScriptContainer;
 import com.denizenscript.denizencore.scripts.queues.ScriptQueue;
 import com.denizenscript.denizencore.tags.TagRunnable;
 import com.denizenscript.denizencore.objects.core.ListTag;
@@ -11,6 +15,7 @@ import com.denizenscript.denizencore.tags.ReplaceableTagEvent;
 import com.denizenscript.denizencore.utilities.CoreUtilities;
 import com.denizenscript.denizencore.utilities.ScriptUtilities;
 import com.denizenscript.denizencore.utilities.debugging.Debug;
+import com.denizenscript.denizencore.utilities.scheduling.ProcedurePool;
 import com.denizenscript.denizencore.tags.TagManager;
 
 public class ProcedureScriptTagBase {
@@ -63,6 +68,48 @@ public class ProcedureScriptTagBase {
         }
         ListTag definitions = null;
 
+        // <--[tag]
+        // @attribute <proc[<procedure_script_name>].parallel_context[<list>]>
+        // @returns ListTag
+        // @description
+        // Runs the procedure script once for each item in the list, with that item as its only context, and returns a list of the 'determine' results in the same order.
+        // If enabled in the Denizen config, the calls are spread across multiple threads, which can speed up heavy computations over large lists.
+        // The procedure must be fully self-contained: it should only compute a result from its input (and read-only data), as the calls may run at the same time as each other.
+        // Some platform tags that are only safe on the main thread may not work within a parallel procedure.
+        // The 'run' and 'adjust' commands can't be used within a parallel procedure, as they could change shared state.
+        // Debug output from calls that run on other threads may be out of order.
+        // -->
+        if (attribute.startsWith("parallel_context", 2)) {
+            attribute.fulfill(1);
+            ListTag inputs = attribute.paramAsType(ListTag.class);
+            if (inputs == null) {
+                return;
+            }
+            ScriptContainer container = script.getContainer();
+            String procPath = path;
+            ScriptEntryData data = attribute.context.getScriptEntryData();
+            ScriptEntrySet entries = procPath == null ? container.getBaseEntrySet() : container.getSetFor(procPath);
+            if (entries != null && !ProcedurePool.isWorkerThread()) {
+                ProcedurePool.prepareEntries(entries.entries, data);
+            }
+            ObjectTag[] results = ProcedurePool.map(inputs.objectForms, (input) -> {
+                ListTag context = new ListTag();
+                context.addObject(input);
+                return runProcedure(container, procPath, data, context);
+            });
+            ListTag resultList = new ListTag(results.length);
+            for (int i = 0; i < results.length; i++) {
+                if (results[i] == null) {
+                    attribute.echoError("Procedure call for item " + (i + 1) + " of the parallel context list did not determine any value.");
+                    return;
+                }
+                resultList.addObject(results[i]);
+            }
+            attribute.fulfill(1);
+            event.setReplacedObject(CoreUtilities.autoAttribTyped(resultList, attribute));
+            return;
+        }
+
         // <--[tag]
         // @attribute <proc[<procedure_script_name>].context[<object>|...]>
         // @returns ObjectTag
@@ -73,9 +120,7 @@ public class ProcedureScriptTagBase {
             definitions = attribute.contextAsType(2, ListTag.class);
             attribute.fulfill(1);
         }
-        ScriptQueue queue = ScriptUtilities.createAndStartQueue(script.getContainer(), path, attribute.context.getScriptEntryData(), null, (q) -> {
-            q.procedural = true;
-        }, new DurationTag(0), null, definitions, script.getContainer());
+        ScriptQueue queue = startProcedureQueue(script.getContainer(), path, attribute.context.getScriptEntryData(), definitions);
         if (queue == null) {
             attribute.echoError("Procedure queue start failed.");
             return;
@@ -87,4 +132,24 @@ public class ProcedureScriptTagBase {
         }
         event.setReplacedObject(CoreUtilities.autoAttribTyped(queue.determinations.getObject(0), attribute));
     }
+
+    /**
+     * Starts (and, as procedures are instant, runs) a procedure queue.
+     */
+    public static ScriptQueue startProcedureQueue(ScriptContainer container, String path, ScriptEntryData data, ListTag definitions) {
+        return ScriptUtilities.createAndStartQueue(container, path, data, null, (q) -> {
+            q.procedural = true;
+        }, new DurationTag(0), null, definitions, container);
+    }
+
+    /**
+     * Runs a procedure and returns its first determination, or null if it failed or didn't determine anything.
+     */
+    public static ObjectTag runProcedure(ScriptContainer container, String path, ScriptEntryData data, ListTag definitions) {
+        ScriptQueue queue = startProcedureQueue(container, path, data, definitions);
+        if (queue == null || queue.determinations == null || queue.determinations.size() == 0) {
+            return null;
+        }
+        return queue.determinations.getObject(0);
+    }
 }
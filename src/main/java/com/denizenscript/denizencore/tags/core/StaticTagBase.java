@@ -20,13 +20,13 @@ public class StaticTagBase {
         // - narrate <static[<util.random_decimal>]>
         // -->
         TagManager.registerStaticTagBaseHandler(ObjectTag.class, "static", (attribute) -> {
-            boolean isStatic = TagManager.isStaticParsing;
-            TagManager.isStaticParsing = false;
+            boolean isStatic = TagManager.isStaticParsing();
+            TagManager.setStaticParsing(false);
             try {
                 return attribute.getParamObject();
             }
             finally {
-                TagManager.isStaticParsing = isStatic;
+                TagManager.setStaticParsing(isStatic);
             }
         });
         TagManager.baseTags.get("static").doesStaticOverride = true;
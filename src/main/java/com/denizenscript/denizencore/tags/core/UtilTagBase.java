@@ -13,12 +13,18 @@ import com.denizenscript.denizencore.scripts.commands.core.AdjustCommand;
 import com.denizenscript.denizencore.scripts.commands.core.MongoCommand;
 import com.denizenscript.denizencore.scripts.commands.core.SQLCommand;
 import com.denizenscript.denizencore.scripts.commands.queue.RunLaterCommand;
+import com.denizenscript.denizencore.scripts.queues.QueueWatchdog;
 import com.denizenscript.denizencore.scripts.queues.ScriptQueue;
 import com.denizenscript.denizencore.tags.PseudoObjectTagBase;
 import com.denizenscript.denizencore.tags.TagManager;
 import com.denizenscript.denizencore.utilities.*;
+import com.denizenscript.denizencore.utilities.codegen.CodeGenUtil;
+import com.denizenscript.denizencore.utilities.codegen.TagCodeGenerator;
 import com.denizenscript.denizencore.utilities.debugging.Debug;
 import com.denizenscript.denizencore.utilities.debugging.DebugInternals;
+import com.denizenscript.denizencore.utilities.debugging.TickProfiler;
+import com.denizenscript.denizencore.utilities.scheduling.AsyncExecutor;
+import com.denizenscript.denizencore.utilities.scheduling.ProcedurePool;
 
 import java.io.File;
 import java.nio.charset.Charset;
@@ -608,6 +614,171 @@ public class UtilTagBase extends PseudoObjectTagBase<UtilTagBase> {
             return ScriptQueue.getStatsRawData();
         });
 
+        // <--[tag]
+        // @attribute <util.after_event_stats>
+        // @returns MapTag
+        // @description
+        // Returns stats about the buffer of 'after' event paths, which are ran in order once per tick.
+        // Keys are "depth" (paths currently waiting), "max_depth" (highest depth seen), "last_tick_drained", and "total_drained".
+        // -->
+        tagProcessor.registerTag(MapTag.class, "after_event_stats", (attribute, object) -> {
+            return ScriptEvent.afterEventBuffer.getStats();
+        });
+
+        // <--[tag]
+        // @attribute <util.main_thread_inbox_stats>
+        // @returns MapTag
+        // @description
+        // Returns stats about tasks sent to the main thread from other threads (such as the results of '~sql', '~webget', redis, mongo, etc).
+        // Keys are "backlog" (tasks currently waiting), "backlog_high_water" (highest backlog seen), "total_enqueued", "enqueued_last_second",
+        // "total_drained", "last_tick_drained", and "max_tick_drained".
+        // The number of tasks run per tick can be limited in the Denizen config.
+        // -->
+        tagProcessor.registerTag(MapTag.class, "main_thread_inbox_stats", (attribute, object) -> {
+            return DenizenCore.mainThreadInbox.getStats();
+        });
+
+        // <--[tag]
+        // @attribute <util.tick_budget_stats>
+        // @returns MapTag
+        // @description
+        // Returns stats about the per-tick time budget, if enabled in the Denizen config.
+        // When a tick runs out of budget, remaining timed queue revolutions, runlater launches, and main thread tasks are deferred to the next tick.
+        // Keys are "budget", "budgeted_ticks", "overrun_ticks" (ticks that deferred work), "last_tick_overran", "last_tick_time", "last_overrun_time", "max_overrun_time", "total_overrun_time",
+        // and "sources" (a map of work source names to maps of "last_tick_ran", "last_tick_deferred", "total_ran", and "total_deferred").
+        // -->
+        tagProcessor.registerTag(MapTag.class, "tick_budget_stats", (attribute, object) -> {
+            return DenizenCore.tickBudget.getStats();
+        });
+
+        // <--[tag]
+        // @attribute <util.tick_stats>
+        // @returns ElementTag
+        // @description
+        // Returns a simple debuggable report of how long each phase of the core tick took, over the last few ticks.
+        // Requires tick profiling to be enabled, either in the Denizen config or via <@link mechanism system.tick_profiling>.
+        // -->
+        tagProcessor.registerTag(ElementTag.class, "tick_stats", (attribute, object) -> {
+            return new ElementTag(TickProfiler.getStats());
+        });
+
+        // <--[tag]
+        // @attribute <util.tick_stats_data>
+        // @returns MapTag
+        // @description
+        // Returns the raw data for <@link tag util.tick_stats>, as a MapTag of phase names to MapTags of "average", "p50", "p95", "p99", and "max" DurationTags,
+        // plus a "sample_count" key with the number of ticks the data covers.
+        // Phases are "debug", "tick_event", "runlater", "once_per_second", "main_thread_tasks", "after_events", "scheduled", "timed_queues", "budgeted_work", and "total".
+        // -->
+        tagProcessor.registerTag(MapTag.class, "tick_stats_data", (attribute, object) -> {
+            return TickProfiler.getStatsRawData();
+        });
+
+        // <--[tag]
+        // @attribute <util.queue_cpu_stats[(<#>)]>
+        // @returns ListTag(MapTag)
+        // @description
+        // Returns stats about the currently running queues that have spent the most time running commands, sorted from most to least.
+        // Optionally specify how many queues to list (defaults to 10).
+        // Each MapTag has keys "queue", "time" (total time spent running commands), "current_tick_time", "entries" (how many commands it has ran),
+        // and "throttled" (how many times it was delayed for going over the time limits in the Denizen config).
+        // Time spent in other queues started by a queue (eg via 'run') only counts for those other queues.
+        // Only tracked while a queue time limit is set in the Denizen config.
+        // -->
+        tagProcessor.registerTag(ListTag.class, "queue_cpu_stats", (attribute, object) -> {
+            int count = attribute.hasParam() ? attribute.getIntParam() : 10;
+            return QueueWatchdog.getQueueStats(count);
+        });
+
+        // <--[tag]
+        // @attribute <util.script_cpu_stats[(<#>)]>
+        // @returns ListTag(MapTag)
+        // @description
+        // Returns stats about the scripts that queues have spent the most time running commands from since the last reload, sorted from most to least.
+        // Optionally specify how many scripts to list (defaults to 10).
+        // Each MapTag has keys "script", "time", and "entries" (how many commands were ran).
+        // Can be reset with <@link mechanism system.reset_script_cpu_stats>.
+        // Only tracked while a queue time limit is set in the Denizen config.
+        // -->
+        tagProcessor.registerTag(ListTag.class, "script_cpu_stats", (attribute, object) -> {
+            int count = attribute.hasParam() ? attribute.getIntParam() : 10;
+            return QueueWatchdog.getScriptStats(count);
+        });
+
+        // <--[tag]
+        // @attribute <util.queue_watchdog_stats>
+        // @returns MapTag
+        // @description
+        // Returns stats about the runaway queue watchdog, which can limit how long queues may run each tick in the Denizen config.
+        // Queues that go over the limit are either delayed to the next tick or stopped, depending on config.
+        // Keys are "current_tick_time" (time all queues together have spent running commands this tick), "total_throttled", and "total_stopped".
+        // -->
+        tagProcessor.registerTag(MapTag.class, "queue_watchdog_stats", (attribute, object) -> {
+            return QueueWatchdog.getStats();
+        });
+
+        // <--[tag]
+        // @attribute <util.async_stats>
+        // @returns MapTag
+        // @description
+        // Returns stats about the executor that runs async tasks (such as '~sql', '~yaml load', flag saves, and webserver responses).
+        // Keys are "mode" (CACHED, BOUNDED, or VIRTUAL, as set in the Denizen config), "active_tasks", "queued_tasks", "pool_threads", "completed_tasks", "rejected_tasks",
+        // "overflow_tasks" (rejected tasks from the main thread that were handed to the overflow thread rather than running on the main thread),
+        // "average_wait" and "max_wait" (time tasks spent queued before starting), and "average_run" (time tasks spent running).
+        // -->
+        tagProcessor.registerTag(MapTag.class, "async_stats", (attribute, object) -> {
+            return AsyncExecutor.getStats();
+        });
+
+        // <--[tag]
+        // @attribute <util.procedure_pool_stats>
+        // @returns MapTag
+        // @description
+        // Returns stats about the thread pool used by <@link tag proc.parallel_context>.
+        // Keys are "threads" (as set in the Denizen config, 0 means disabled), "total_batches", "total_calls", and "total_worker_calls" (calls that ran on a pool thread rather than the calling thread).
+        // -->
+        tagProcessor.registerTag(MapTag.class, "procedure_pool_stats", (attribute, object) -> {
+            return ProcedurePool.getStats();
+        });
+
+        // <--[tag]
+        // @attribute <util.tag_cache_stats>
+        // @returns MapTag
+        // @description
+        // Returns stats about the internal caches used to speed up tag and matcher parsing, which are limited in size in the Denizen config.
+        // The map has a key for each cache ("parsed_text", "tag_references", "attributes", and "matchers"), each with a map value of
+        // "size" (number of entries), "weight" (total entry weight, usually the same as size), "limit", "weak_keys", "hits", "misses", and "evictions".
+        // -->
+        tagProcessor.registerTag(MapTag.class, "tag_cache_stats", (attribute, object) -> {
+            return BoundedCache.getAllStats();
+        });
+
+        // <--[tag]
+        // @attribute <util.tag_codegen_stats>
+        // @returns MapTag
+        // @description
+        // Returns stats about tags compiled to Java code (which happens as scripts load, and is much faster than processing each part of a tag separately).
+        // Keys are "generated" (total compiled tags), "full_chains" (tags compiled all the way to the end), "partial_chains" (tags that fall back to normal processing partway),
+        // "stop_reasons" (a map of why tags stopped compiling early, to the number of times, with reasons "unknown_return_type", "unregistered_sub_tag", and "generation_error"),
+        // and "recent_stops" (a list of descriptions for the most recent tags that stopped early, and where).
+        // -->
+        tagProcessor.registerTag(MapTag.class, "tag_codegen_stats", (attribute, object) -> {
+            return TagCodeGenerator.getStats();
+        });
+
+        // <--[tag]
+        // @attribute <util.generated_class_stats>
+        // @returns MapTag
+        // @description
+        // Returns stats about the Java classes generated at runtime (for compiled tags, event paths, commands, etc).
+        // Classes generated from scripts are grouped by script reload, and the classes for old scripts are unloaded by the garbage collector some time after nothing uses them anymore.
+        // Keys are "script_generation" (incremented each reload), "live_loaders" (groups of classes not yet unloaded, including the permanent group), "live_classes" (classes not yet unloaded),
+        // "live_script_classes" (the part of live_classes generated from scripts), "permanent_classes" (classes that are never unloaded), "total_loaders", and "collected_loaders".
+        // -->
+        tagProcessor.registerTag(MapTag.class, "generated_class_stats", (attribute, object) -> {
+            return CodeGenUtil.getStats();
+        });
+
         // <--[tag]
         // @attribute <util.default_encoding>
         // @returns ElementTag
@@ -1037,10 +1208,7 @@ public class UtilTagBase extends PseudoObjectTagBase<UtilTagBase> {
         // Use <@link tag util.runlater_ids> to check whether there is already a scheduled task with the given ID.
         // -->
         tagProcessor.registerMechanism("cancel_runlater", false, ElementTag.class, (object, mechanism, input) -> {
-            RunLaterCommand.FutureRunData runner = RunLaterCommand.trackedById.remove(input.asLowerString());
-            if (runner != null) {
-                runner.cancelled = true;
-            }
+            RunLaterCommand.cancel(input.asLowerString());
         });
 
         // <--[mechanism]
@@ -1061,6 +1229,39 @@ public class UtilTagBase extends PseudoObjectTagBase<UtilTagBase> {
             }
         });
 
+        // <--[mechanism]
+        // @object system
+        // @name reset_script_cpu_stats
+        // @input None
+        // @description
+        // Resets the per-script time statistics used for <@link tag util.script_cpu_stats>.
+        // @tags
+        // <util.script_cpu_stats[(<#>)]>
+        // -->
+        tagProcessor.registerMechanism("reset_script_cpu_stats", false, (object, mechanism) -> {
+            QueueWatchdog.resetScriptStats();
+        });
+
+        // <--[mechanism]
+        // @object system
+        // @name tick_profiling
+        // @input ElementTag(Boolean)
+        // @description
+        // Enables or disables tick phase profiling for <@link tag util.tick_stats>. Disabling it also resets the collected data.
+        // @tags
+        // <util.tick_stats>
+        // <util.tick_stats_data>
+        // -->
+        tagProcessor.registerMechanism("tick_profiling", false, ElementTag.class, (object, mechanism, input) -> {
+            if (!mechanism.requireBoolean()) {
+                return;
+            }
+            CoreConfiguration.tickProfiling = input.asBoolean();
+            if (!CoreConfiguration.tickProfiling) {
+                TickProfiler.reset();
+            }
+        });
+
         // <--[mechanism]
         // @object system
         // @name cleanmem
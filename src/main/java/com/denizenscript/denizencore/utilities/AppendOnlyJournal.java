@@ -0,0 +1,200 @@
+package com.denizenscript.denizencore.utilities;
+
+import com.denizenscript.denizencore.DenizenCore;
+import com.denizenscript.denizencore.utilities.debugging.Debug;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * A line-based append-only journal file.
+ * Writes are queued and performed in order on the async executor (or on the calling thread, for synchronous writes),
+ * so the main thread never blocks on file IO unless it explicitly asks to.
+ * A compaction rewrites the whole file (via CoreUtilities.journallingFileSave) with a fresh set of lines.
+ */
+public class AppendOnlyJournal {
+
+    public final String filePath;
+
+    private final ConcurrentLinkedQueue<Runnable> pendingWrites = new ConcurrentLinkedQueue<>();
+
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    private final AtomicInteger pendingCount = new AtomicInteger();
+
+    private final Object writeLock = new Object();
+
+    public AppendOnlyJournal(String filePath) {
+        this.filePath = filePath;
+    }
+
+    /**
+     * Returns true if there are writes that haven't completed yet.
+     */
+    public boolean isWriting() {
+        return pendingCount.get() > 0;
+    }
+
+    /**
+     * Loads the journal file, returning null if it doesn't exist.
+     */
+    public String load() {
+        return CoreUtilities.journallingLoadFile(filePath);
+    }
+
+    /**
+     * Appends the given lines to the end of the journal.
+     */
+    public void append(List<String> lines, boolean async) {
+        if (lines.isEmpty()) {
+            return;
+        }
+        submit(() -> {
+            File file = new File(filePath);
+            file.getParentFile().mkdirs();
+            try (Writer writer = openWriter(file, true)) {
+                for (String line : lines) {
+                    writer.write(line);
+                    writer.write('\n');
+                }
+            }
+            catch (Throwable ex) {
+                Debug.echoError("Failed to append to journal file '" + filePath + "'");
+                Debug.echoError(ex);
+            }
+        }, async);
+    }
+
+    /**
+     * Replaces the journal with a new set of lines. The supplier is called at write time, which may be on another thread.
+     */
+    public void compact(Supplier<String> contents, boolean async) {
+        compact(contents, null, async);
+    }
+
+    /**
+     * Replaces the journal with a new set of lines, then reads the file back and passes 'onWritten' whether it matches exactly (ie whether the write is confirmed).
+     * The supplier and the callback are both called at write time, which may be on another thread.
+     */
+    public void compact(Supplier<String> contents, Consumer<Boolean> onWritten, boolean async) {
+        submit(() -> {
+            String text = contents.get();
+            CoreUtilities.journallingFileSave(filePath, text);
+            if (onWritten != null) {
+                onWritten.accept(text.equals(load()));
+            }
+        }, async);
+    }
+
+    /**
+     * Deletes the journal file (including any leftover backup), for when its content can't be trusted.
+     */
+    public void delete() {
+        for (String suffix : new String[] { "", "~1", "~2" }) {
+            File file = new File(filePath + suffix);
+            if (file.exists()) {
+                file.delete();
+            }
+        }
+    }
+
+    private static Writer openWriter(File file, boolean append) throws java.io.IOException {
+        Charset charset = CoreConfiguration.scriptEncoding == null ? null : CoreConfiguration.scriptEncoding.charset();
+        FileOutputStream output = new FileOutputStream(file, append);
+        return charset == null ? new OutputStreamWriter(output) : new OutputStreamWriter(output, charset);
+    }
+
+    private void submit(Runnable write, boolean async) {
+        pendingCount.incrementAndGet();
+        pendingWrites.add(write);
+        if (!async) {
+            drain();
+        }
+        else if (draining.compareAndSet(false, true)) {
+            DenizenCore.runAsync(this::drainAsync);
+        }
+    }
+
+    private void drainAsync() {
+        do {
+            drain();
+            draining.set(false);
+        } while (!pendingWrites.isEmpty() && draining.compareAndSet(false, true));
+    }
+
+    /**
+     * Runs all queued writes, in order, on the current thread.
+     */
+    public void drain() {
+        synchronized (writeLock) {
+            Runnable write;
+            while ((write = pendingWrites.poll()) != null) {
+                try {
+                    write.run();
+                }
+                catch (Throwable ex) {
+                    Debug.echoError(ex);
+                }
+                finally {
+                    pendingCount.decrementAndGet();
+                }
+            }
+        }
+    }
+
+    /**
+     * Escapes a value to be safe to store within a single tab-separated journal line.
+     */
+    public static String escape(String input) {
+        if (input == null) {
+            return "";
+        }
+        StringBuilder output = new StringBuilder(input.length() + 16);
+        for (int i = 0; i < input.length(); i++) {
+            char c = input.charAt(i);
+            switch (c) {
+                case '\\': output.append("\\\\"); break;
+                case '\n': output.append("\\n"); break;
+                case '\r': output.append("\\r"); break;
+                case '\t': output.append("\\t"); break;
+                default: output.append(c);
+            }
+        }
+        return output.toString();
+    }
+
+    /**
+     * Reverses 'escape'.
+     */
+    public static String unescape(String input) {
+        if (input.indexOf('\\') == -1) {
+            return input;
+        }
+        StringBuilder output = new StringBuilder(input.length());
+        for (int i = 0; i < input.length(); i++) {
+            char c = input.charAt(i);
+            if (c == '\\' && i + 1 < input.length()) {
+                char next = input.charAt(++i);
+                switch (next) {
+                    case 'n': output.append('\n'); break;
+                    case 'r': output.append('\r'); break;
+                    case 't': output.append('\t'); break;
+                    default: output.append(next);
+                }
+            }
+            else {
+                output.append(c);
+            }
+        }
+        return output.toString();
+    }
+}
@@ -0,0 +1,269 @@
+package com.denizenscript.denizencore.utilities;
+
+import com.denizenscript.denizencore.objects.core.ElementTag;
+import com.denizenscript.denizencore.objects.core.MapTag;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntSupplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * A thread-safe memoization cache with a capped total weight (by default, each entry weighs 1, so the cap is an entry count).
+ * Reads are lock-free. When a write puts the cache over its limit, entries are evicted in 'clock' order (an approximation of least-recently-used):
+ * entries are checked in insertion order, and any entry that was read since it was last checked gets a second chance rather than being evicted.
+ * Optionally, keys can be held weakly, so that an entry is dropped as soon as nothing else holds its key.
+ * The limit is read on every write, so config changes apply immediately. The weak keys setting applies the next time the cache is cleared.
+ * Only suitable for caches of values that can always be recomputed, as any entry may be evicted at any time.
+ */
+public class BoundedCache<K, V> {
+
+    public static final List<BoundedCache<?, ?>> allCaches = new CopyOnWriteArrayList<>();
+
+    private static final class Node<V> {
+
+        final Object mapKey;
+
+        final V value;
+
+        final int weight;
+
+        volatile boolean accessed;
+
+        volatile boolean removed;
+
+        Node(Object mapKey, V value, int weight) {
+            this.mapKey = mapKey;
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    private static Object referentOf(Object key) {
+        if (key instanceof WeakKey) {
+            return ((WeakKey) key).get();
+        }
+        if (key instanceof LookupKey) {
+            return ((LookupKey) key).key;
+        }
+        return key;
+    }
+
+    private static final class WeakKey extends WeakReference<Object> {
+
+        final int hash;
+
+        WeakKey(Object key, ReferenceQueue<Object> queue) {
+            super(key, queue);
+            hash = key.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (other == this) {
+                return true;
+            }
+            Object key = get();
+            return key != null && key.equals(referentOf(other));
+        }
+    }
+
+    private static final class LookupKey {
+
+        final Object key;
+
+        LookupKey(Object key) {
+            this.key = key;
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return key.equals(referentOf(other));
+        }
+    }
+
+    public final String name;
+
+    public final IntSupplier limit;
+
+    public final BooleanSupplier weakKeysSetting;
+
+    public final ToIntFunction<K> weigher;
+
+    private volatile ConcurrentHashMap<Object, Node<V>> map = new ConcurrentHashMap<>();
+
+    private volatile ConcurrentLinkedQueue<Node<V>> clock = new ConcurrentLinkedQueue<>();
+
+    private volatile ReferenceQueue<Object> referenceQueue = null;
+
+    private final AtomicLong totalWeight = new AtomicLong();
+
+    /**
+     * How many nodes in the clock are marked as removed (replaced or collected), see 'dropFromClock'.
+     */
+    private final AtomicInteger removedNodes = new AtomicInteger();
+
+    public final LongAdder hits = new LongAdder(), misses = new LongAdder(), evictions = new LongAdder();
+
+    /**
+     * @param name the name of the cache, for stats.
+     * @param limit the maximum total weight of the cache (0 or less for no limit).
+     * @param weakKeys whether keys should be held weakly.
+     * @param weigher the weight of an entry, based on its key (or null for a weight of 1 each).
+     */
+    public BoundedCache(String name, IntSupplier limit, BooleanSupplier weakKeys, ToIntFunction<K> weigher) {
+        this.name = name;
+        this.limit = limit;
+        this.weakKeysSetting = weakKeys;
+        this.weigher = weigher;
+        if (weakKeys.getAsBoolean()) {
+            referenceQueue = new ReferenceQueue<>();
+        }
+        allCaches.add(this);
+    }
+
+    public BoundedCache(String name, IntSupplier limit, BooleanSupplier weakKeys) {
+        this(name, limit, weakKeys, null);
+    }
+
+    public V get(K key) {
+        Node<V> node = map.get(referenceQueue != null ? new LookupKey(key) : key);
+        if (node == null) {
+            misses.increment();
+            return null;
+        }
+        if (!node.accessed) {
+            node.accessed = true;
+        }
+        hits.increment();
+        return node.value;
+    }
+
+    public void put(K key, V value) {
+        ReferenceQueue<Object> queue = referenceQueue;
+        if (queue != null) {
+            removeCollectedKeys(queue);
+        }
+        Node<V> node = new Node<>(queue != null ? new WeakKey(key, queue) : key, value, weigher == null ? 1 : weigher.applyAsInt(key));
+        Node<V> old = map.put(node.mapKey, node);
+        if (old != null) {
+            totalWeight.addAndGet(-old.weight);
+            dropFromClock(old);
+        }
+        totalWeight.addAndGet(node.weight);
+        clock.add(node);
+        int max = limit.getAsInt();
+        if (max > 0 && totalWeight.get() > max) {
+            evict(max);
+        }
+    }
+
+    private void removeCollectedKeys(ReferenceQueue<Object> queue) {
+        Reference<?> collected;
+        while ((collected = queue.poll()) != null) {
+            Node<V> node = map.remove(collected);
+            if (node != null) {
+                totalWeight.addAndGet(-node.weight);
+                dropFromClock(node);
+            }
+        }
+    }
+
+    /**
+     * Marks a node that's no longer in the map as removed, so that the clock skips it.
+     * Removing from the middle of the clock is slow, so removed nodes are left in place and purged all at once when they outnumber the live entries.
+     */
+    private void dropFromClock(Node<V> node) {
+        node.removed = true;
+        if (removedNodes.incrementAndGet() > map.size() + 16) {
+            purgeClock();
+        }
+    }
+
+    private synchronized void purgeClock() {
+        if (removedNodes.get() <= map.size() + 16) {
+            return;
+        }
+        removedNodes.set(0);
+        clock.removeIf(node -> node.removed);
+    }
+
+    private synchronized void evict(int max) {
+        int scanned = 0;
+        int scanLimit = map.size() * 2 + 16;
+        while (totalWeight.get() > max) {
+            Node<V> node = clock.poll();
+            if (node == null) {
+                return;
+            }
+            if (node.removed) {
+                removedNodes.decrementAndGet();
+                continue;
+            }
+            if (node.accessed && scanned++ < scanLimit) {
+                node.accessed = false;
+                clock.add(node);
+                continue;
+            }
+            if (map.remove(node.mapKey, node)) {
+                totalWeight.addAndGet(-node.weight);
+                evictions.increment();
+            }
+        }
+    }
+
+    public void clear() {
+        map = new ConcurrentHashMap<>();
+        clock = new ConcurrentLinkedQueue<>();
+        referenceQueue = weakKeysSetting.getAsBoolean() ? new ReferenceQueue<>() : null;
+        totalWeight.set(0);
+        removedNodes.set(0);
+    }
+
+    public int size() {
+        return map.size();
+    }
+
+    public long getWeight() {
+        return totalWeight.get();
+    }
+
+    public MapTag getStats() {
+        MapTag map = new MapTag();
+        map.putObject("size", new ElementTag(size()));
+        map.putObject("weight", new ElementTag(getWeight()));
+        map.putObject("limit", new ElementTag(limit.getAsInt()));
+        map.putObject("weak_keys", new ElementTag(referenceQueue != null));
+        map.putObject("hits", new ElementTag(hits.sum()));
+        map.putObject("misses", new ElementTag(misses.sum()));
+        map.putObject("evictions", new ElementTag(evictions.sum()));
+        return map;
+    }
+
+    public static MapTag getAllStats() {
+        MapTag map = new MapTag();
+        for (BoundedCache<?, ?> cache : allCaches) {
+            map.putObject(cache.name, cache.getStats());
+        }
+        return map;
+    }
+}
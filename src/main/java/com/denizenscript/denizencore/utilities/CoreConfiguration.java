@@ -24,6 +24,11 @@ public class CoreConfiguration {
 
     public static boolean tagTimeoutWhenSilent = false, tagTimeoutUnsafe = false;
 
+    /**
+     * Time limit in seconds for outermost tags (see TagWatchdog).
+     * Tags are only aborted when they next dispatch a tag or tag part, so a single tag implementation that runs long without dispatching again
+     * (such as a slow Java-side lookup) runs to completion, where the old separate-thread approach could give up on it and return.
+     */
     public static int tagTimeout = 0;
 
     public static boolean defaultDebugMode = true;
@@ -32,6 +37,32 @@ public class CoreConfiguration {
 
     public static double scriptQueueSpeed = 0;
 
+    public static int mainThreadTaskLimitPerTick = 0;
+
+    public static long tickBudgetMillis = 0;
+
+    public static boolean tickProfiling = false;
+
+    public static long queueTickTimeLimitMillis = 0, allQueuesTickTimeLimitMillis = 0;
+
+    public static boolean runawayQueuesStop = false;
+
+    public static int tickProfilerSampleSize = 200;
+
+    public static long waitUntilWatcherRecheckMillis = 1000;
+
+    public static String asyncExecutorMode = "cached", asyncExecutorRejectionPolicy = "caller_runs";
+
+    public static int asyncExecutorThreads = 16, asyncExecutorQueueLimit = 1000;
+
+    public static int parallelProcedureThreads = 0;
+
+    public static int tagTextCacheLimit = 100000, tagReferenceCacheLimit = 50000, tagAttributeCacheLimit = 50000, matcherCacheLimit = 20000;
+
+    public static boolean tagCacheWeakKeys = false;
+
+    public static int tagGeneratedClassLimit = 20000;
+
     public static volatile CharsetDecoder scriptEncoding;
 
     public static boolean skipAllFlagCleanings = false;
@@ -0,0 +1,92 @@
+package com.denizenscript.denizencore.utilities;
+
+import com.denizenscript.denizencore.scripts.queues.ScriptQueue;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Assigns numeric slots to definition names that appear literally in scripts (eg the 'x' in "<[x]>" or "- define x 3"),
+ * so that queues can store those definitions in a flat array rather than a map (see SlottedDefinitions).
+ * Slots are only assigned while scripts are being built or first ran, never for dynamic names.
+ * A slot number always refers to the same lowercase name until the table is reset (see 'resetIfUnused'), which only happens on a script reload while no queue is alive.
+ * Names that contain a '.' (deep map paths), contain tags, or start with '__' (special definitions) never have a slot.
+ */
+public class DefinitionSlots {
+
+    private static final ConcurrentHashMap<String, Integer> slotsByName = new ConcurrentHashMap<>();
+
+    private static volatile String[] names = new String[64];
+
+    private static int count = 0;
+
+    /**
+     * Returns whether the given lowercase name is allowed to have a slot.
+     */
+    public static boolean isSlottable(String name) {
+        return !name.isEmpty() && !name.startsWith("__") && !CoreUtilities.contains(name, '.') && !CoreUtilities.contains(name, '<');
+    }
+
+    /**
+     * Returns the slot for the given lowercase name, or -1 if it has none.
+     */
+    public static int getSlot(String name) {
+        Integer slot = slotsByName.get(name);
+        return slot == null ? -1 : slot;
+    }
+
+    /**
+     * Returns the slot for the given lowercase name, assigning a new one if needed. Returns -1 if the name isn't slottable.
+     */
+    public static int assignSlot(String name) {
+        Integer slot = slotsByName.get(name);
+        if (slot != null) {
+            return slot;
+        }
+        if (!isSlottable(name)) {
+            return -1;
+        }
+        synchronized (DefinitionSlots.class) {
+            slot = slotsByName.get(name);
+            if (slot != null) {
+                return slot;
+            }
+            if (count == names.length) {
+                names = Arrays.copyOf(names, count * 2);
+            }
+            names[count] = name;
+            slot = count++;
+            slotsByName.put(name, slot);
+            return slot;
+        }
+    }
+
+    /**
+     * Returns the lowercase name of a slot.
+     */
+    public static String getName(int slot) {
+        return names[slot];
+    }
+
+    public static int getSlotCount() {
+        return count;
+    }
+
+    /**
+     * Clears all slots, so that names only used by old scripts don't stay around forever. Called when scripts reload, before the new scripts are built.
+     * Any queue that is still alive could be holding (or running script entries that hold) slot numbers from the current table,
+     * so if there are any, the table is kept as-is (and is reset by a later reload instead).
+     * Returns whether the table was reset. Caches that may hold slot numbers (parsed tags and attributes) must be cleared along with it.
+     */
+    public static boolean resetIfUnused() {
+        if (!ScriptQueue.getQueues().isEmpty()) {
+            return false;
+        }
+        synchronized (DefinitionSlots.class) {
+            slotsByName.clear();
+            names = new String[64];
+            count = 0;
+        }
+        return true;
+    }
+}
@@ -1,14 +1,32 @@
 package com.denizenscript.denizencore.utilities;
 
 import com.denizenscript.denizencore.scripts.ScriptEntry;
+import com.denizenscript.denizencore.scripts.ScriptEntryData;
 
 import java.util.Iterator;
 import java.util.List;
 
+/**
+ * The queue of script entries waiting to run.
+ * Entries can be added either as ready-to-run entries, or as shared template entries (ie the compiled entries of a script path) along with the entry data to run them with.
+ * Templates are only turned into per-execution entries (via ScriptEntry.createFrame) when they're first accessed, so entries that never get reached are never copied.
+ */
 public class ListQueue implements Iterable<ScriptEntry> {
 
     public ScriptEntry[] values;
 
+    /**
+     * For each slot in 'values', the entry data to create a frame with if the slot holds a template, or null if it holds a ready entry.
+     * Null entirely if no templates have been added.
+     */
+    public ScriptEntryData[] frameData;
+
+    /**
+     * For each slot in 'values', whether the entry must be set to instant when it's reached (see 'markAllInstant').
+     * Null entirely if never needed.
+     */
+    public boolean[] instantSlots;
+
     public int count;
 
     public int start;
@@ -23,9 +41,29 @@ public class ListQueue implements Iterable<ScriptEntry> {
         start = 0;
     }
 
+    private ScriptEntry materialize(int realIndex) {
+        ScriptEntry entry = values[realIndex];
+        if (frameData != null) {
+            ScriptEntryData data = frameData[realIndex];
+            if (data != null) {
+                entry = entry.createFrame(data);
+                values[realIndex] = entry;
+                frameData[realIndex] = null;
+            }
+        }
+        if (instantSlots != null && instantSlots[realIndex]) {
+            entry.setInstant(true);
+            instantSlots[realIndex] = false;
+        }
+        return entry;
+    }
+
     public final ScriptEntry removeFirst() {
+        ScriptEntry entry = materialize(start);
+        values[start] = null;
         count--;
-        return values[start++];
+        start++;
+        return entry;
     }
 
     public final int size() {
@@ -37,17 +75,56 @@ public class ListQueue implements Iterable<ScriptEntry> {
     }
 
     public final ScriptEntry get(int index) {
-        return values[index + start];
+        return materialize(index + start);
+    }
+
+    private void resize(int cap, int newStart) {
+        ScriptEntry[] newSet = new ScriptEntry[cap];
+        System.arraycopy(values, start, newSet, newStart, count);
+        values = newSet;
+        if (frameData != null) {
+            ScriptEntryData[] newData = new ScriptEntryData[cap];
+            System.arraycopy(frameData, start, newData, newStart, count);
+            frameData = newData;
+        }
+        if (instantSlots != null) {
+            boolean[] newInstant = new boolean[cap];
+            System.arraycopy(instantSlots, start, newInstant, newStart, count);
+            instantSlots = newInstant;
+        }
+        start = newStart;
     }
 
     public final void ensureCapacity(int cap) {
         if (cap < values.length - start) {
             return;
         }
-        ScriptEntry[] newSet = new ScriptEntry[cap];
-        System.arraycopy(values, start, newSet, 0, count);
-        values = newSet;
-        start = 0;
+        resize(cap, 0);
+    }
+
+    private void set(int realIndex, ScriptEntry entry, ScriptEntryData data) {
+        values[realIndex] = entry;
+        if (data != null && frameData == null) {
+            frameData = new ScriptEntryData[values.length];
+        }
+        if (frameData != null) {
+            frameData[realIndex] = data;
+        }
+        if (instantSlots != null) {
+            instantSlots[realIndex] = false;
+        }
+    }
+
+    /**
+     * Marks every entry currently in the queue to be set to instant when it's reached, without having to create frames for template entries up front.
+     */
+    public final void markAllInstant() {
+        if (instantSlots == null) {
+            instantSlots = new boolean[values.length];
+        }
+        for (int i = start; i < start + count; i++) {
+            instantSlots[i] = true;
+        }
     }
 
     public final void injectAtStart(ScriptEntry entry) {
@@ -58,58 +135,76 @@ public class ListQueue implements Iterable<ScriptEntry> {
             start--;
         }
         else {
-            ScriptEntry[] newSet = new ScriptEntry[Math.max(count + 5, values.length)];
-            System.arraycopy(values, start, newSet, 3, count);
-            values = newSet;
+            resize(Math.max(count + 5, values.length), 3);
             start = 2;
         }
-        values[start] = entry;
+        set(start, entry, null);
         count++;
     }
 
     public final void add(ScriptEntry entry) {
         ensureCapacity(count * 2 + 1);
-        values[count + start] = entry;
+        set(count + start, entry, null);
         count++;
     }
 
     public final void addAll(List<ScriptEntry> entries) {
+        addAll(entries, null);
+    }
+
+    /**
+     * Adds a list of entries to the end of the queue. If 'data' is non-null, the entries are shared templates to be turned into frames with that data when reached.
+     */
+    public final void addAll(List<ScriptEntry> entries, ScriptEntryData data) {
         ensureCapacity(count * 2 + entries.size());
         if (count == 0) {
             start = 0;
         }
         int firstIndex = start + count;
         for (int i = 0; i < entries.size(); i++) {
-            values[firstIndex + i] = entries.get(i);
+            set(firstIndex + i, entries.get(i), data);
         }
         count += entries.size();
     }
 
     public final void addAllToStart(List<ScriptEntry> entries) {
+        addAllToStart(entries, null);
+    }
+
+    /**
+     * Adds a list of entries to the start of the queue. If 'data' is non-null, the entries are shared templates to be turned into frames with that data when reached.
+     */
+    public final void addAllToStart(List<ScriptEntry> entries, ScriptEntryData data) {
         if (count == 0) {
-            addAll(entries);
+            addAll(entries, data);
             return;
         }
-        if (start >= entries.size()) {
-            start -= entries.size();
-            for (int i = 0; i < entries.size(); i++) {
-                values[start + i] = entries.get(i);
-            }
+        if (start < entries.size()) {
+            resize(values.length + entries.size(), entries.size());
         }
-        else {
-            ScriptEntry[] newSet = new ScriptEntry[values.length + entries.size()];
-            for (int i = 0; i < entries.size(); i++) {
-                newSet[i] = entries.get(i);
-            }
-            if (count > 0) {
-                System.arraycopy(values, start, newSet, entries.size(), count);
-            }
-            values = newSet;
-            start = 0;
+        start -= entries.size();
+        for (int i = 0; i < entries.size(); i++) {
+            set(start + i, entries.get(i), data);
         }
         count += entries.size();
     }
 
+    /**
+     * Moves all entries (including not-yet-created frames) into the given empty queue without copying them, leaving this queue empty.
+     */
+    public final void moveAllTo(ListQueue target) {
+        target.values = values;
+        target.frameData = frameData;
+        target.instantSlots = instantSlots;
+        target.count = count;
+        target.start = start;
+        values = new ScriptEntry[4];
+        frameData = null;
+        instantSlots = null;
+        count = 0;
+        start = 0;
+    }
+
     public class ListQueueIterator implements Iterator<ScriptEntry> {
 
         public int index;
@@ -9,17 +9,18 @@ import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 public class ReflectionHelper {
 
     public static boolean hasInitialized = false;
 
-    private static final Map<Class, FieldCache> cachedFields = new HashMap<>();
+    // Concurrent, as reflection helpers can be reached from any thread (eg tag code generation within parallel procedures)
+    private static final Map<Class, FieldCache> cachedFields = new ConcurrentHashMap<>();
 
-    private static final Map<Class, Map<String, MethodHandle>> cachedFieldSetters = new HashMap<>();
+    private static final Map<Class, Map<String, MethodHandle>> cachedFieldSetters = new ConcurrentHashMap<>();
 
     public static void echoError(String message) {
         if (hasInitialized) {
@@ -67,7 +68,7 @@ public class ReflectionHelper {
 
         public Class<?> clazz;
         public Field[] allFields;
-        public Map<String, Field> fieldCache = new HashMap<>();
+        public Map<String, Field> fieldCache = new ConcurrentHashMap<>();
 
         public FieldCache(Class<?> clazz) {
             this.clazz = clazz;
@@ -187,7 +188,7 @@ public class ReflectionHelper {
     }
 
     public static MethodHandle getFinalSetter(Class<?> clazz, String field, Class expected) {
-        Map<String, MethodHandle> map = cachedFieldSetters.computeIfAbsent(clazz, k -> new HashMap<>());
+        Map<String, MethodHandle> map = cachedFieldSetters.computeIfAbsent(clazz, k -> new ConcurrentHashMap<>());
         MethodHandle result = map.get(field);
         if (result != null) {
             return result;
@@ -245,10 +246,18 @@ public class ReflectionHelper {
         if (result == null) {
             return null;
         }
-        cachedFieldSetters.get(clazz).put(field, result);
+        map.put(field, result);
         return result;
     }
 
+    /**
+     * Removes the cached fields and setters for a class, so that the cache doesn't keep the class loaded (for classes that are meant to be unloaded later, like generated script code).
+     */
+    public static void forgetClass(Class<?> clazz) {
+        cachedFields.remove(clazz);
+        cachedFieldSetters.remove(clazz);
+    }
+
     private static void enableUnsafe() {
         if (UNSAFE == null) {
             try {
@@ -6,6 +6,7 @@ import com.denizenscript.denizencore.objects.core.DurationTag;
 import com.denizenscript.denizencore.objects.core.ListTag;
 import com.denizenscript.denizencore.scripts.ScriptEntry;
 import com.denizenscript.denizencore.scripts.ScriptEntryData;
+import com.denizenscript.denizencore.scripts.ScriptEntrySet;
 import com.denizenscript.denizencore.scripts.containers.ScriptContainer;
 import com.denizenscript.denizencore.scripts.queues.ContextSource;
 import com.denizenscript.denizencore.scripts.queues.ScriptQueue;
@@ -17,7 +18,6 @@ import com.denizenscript.denizencore.tags.TagManager;
 import com.denizenscript.denizencore.utilities.debugging.Debug;
 import com.denizenscript.denizencore.utilities.debugging.Debuggable;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Consumer;
 
@@ -64,53 +64,32 @@ public class ScriptUtilities {
         if (data == null) {
             data = DenizenCore.implementation.getEmptyScriptEntryData();
         }
-        List<ScriptEntry> entries;
-        if (path == null) {
-            entries = container.getBaseEntries(data.clone());
-        }
-        else {
-            entries = container.getEntries(data.clone(), path);
-        }
+        ScriptEntrySet entries = path == null ? container.getBaseEntrySet() : container.getSetFor(path);
         if (entries == null) {
             return null;
         }
-        ScriptQueue queue;
-        if (speed == null) {
-            if (container.contains("SPEED", String.class)) {
-                speed = DurationTag.valueOf(container.getString("SPEED", "0"), DenizenCore.implementation.getTagContext(container));
-            }
-            if (speed == null) {
-                speed = new DurationTag(CoreConfiguration.scriptQueueSpeed);
-            }
+        ScriptContainer.RuntimeData runtimeData = container.getRuntimeData();
+        long ticks;
+        if (speed != null) {
+            ticks = speed.getTicks();
+        }
+        else if (runtimeData.speedTicks != -1) {
+            ticks = runtimeData.speedTicks;
         }
-        if (speed.getTicks() > 0) {
-            queue = new TimedQueue(id).setSpeed(speed.getTicks());
+        else {
+            ticks = (long) (CoreConfiguration.scriptQueueSpeed * 20);
+        }
+        ScriptQueue queue;
+        if (ticks > 0) {
+            queue = new TimedQueue(id, ticks);
         }
         else {
             queue = new InstantQueue(id);
         }
-        queue.addEntries(entries);
+        queue.addEntries(entries, data);
         queue.contextSource = context;
         if (definitions != null) {
-            List<String> definition_names = null;
-            if (container.contains("definitions", String.class)) {
-                String str = container.getString("definitions");
-                definition_names = CoreUtilities.split(str, '|');
-            }
-            int x = 1;
-            for (ObjectTag definition : definitions.objectForms) {
-                String name = definition_names != null && definition_names.size() >= x ? definition_names.get(x - 1).trim() : String.valueOf(x);
-                int squareBracket = name.indexOf('[');
-                if (squareBracket != -1) {
-                    name = name.substring(0, squareBracket).trim();
-                }
-                queue.addDefinition(name, definition);
-                if (debugDefinitions != null && debugDefinitions.shouldDebug()) {
-                    Debug.echoDebug(debugDefinitions, "Adding definition '" + name + "' as " + definition);
-                }
-                x++;
-            }
-            queue.addDefinition("raw_context", definitions);
+            addDefinitions(queue, runtimeData, definitions, debugDefinitions);
         }
         if (configure != null) {
             configure.accept(queue);
@@ -119,6 +98,36 @@ public class ScriptUtilities {
         return queue;
     }
 
+    /**
+     * Adds a list of definitions to a queue, named in order by the 'definitions' key of the script (or by number, past the end of the named ones),
+     * along with the full list as 'raw_context'.
+     */
+    public static void addDefinitions(ScriptQueue queue, ScriptContainer.RuntimeData runtimeData, ListTag definitions, Debuggable debugDefinitions) {
+        String[] names = runtimeData.definitionNames;
+        for (int i = 0; i < definitions.objectForms.size(); i++) {
+            ObjectTag definition = definitions.objectForms.get(i);
+            String name;
+            if (i < names.length) {
+                name = names[i];
+                int slot = runtimeData.definitionSlots[i];
+                if (slot != -1) {
+                    queue.addDefinition(slot, definition);
+                }
+                else {
+                    queue.addDefinition(name, definition);
+                }
+            }
+            else {
+                name = String.valueOf(i + 1);
+                queue.addDefinition(name, definition);
+            }
+            if (debugDefinitions != null && debugDefinitions.shouldDebug()) {
+                Debug.echoDebug(debugDefinitions, "Adding definition '" + name + "' as " + definition);
+            }
+        }
+        queue.addDefinition("raw_context", definitions);
+    }
+
     /**
      * Creates and starts an arbitrary queue based on just a set of entries, useful for example with running a sub-script in a new queue.
      */
@@ -126,17 +135,8 @@ public class ScriptUtilities {
         if (data == null) {
             data = DenizenCore.implementation.getEmptyScriptEntryData();
         }
-        List<ScriptEntry> cleanedEntries = new ArrayList<>();
         InstantQueue queue = new InstantQueue(id);
-        for (ScriptEntry entry : entries) {
-            ScriptEntry newEntry = entry.clone();
-            newEntry.queue = queue;
-            newEntry.entryData = data.clone();
-            newEntry.entryData.scriptEntry = newEntry;
-            newEntry.updateContext();
-            cleanedEntries.add(newEntry);
-        }
-        queue.addEntries(cleanedEntries);
+        queue.addEntries(new ScriptEntrySet(entries), data);
         queue.contextSource = context;
         if (configure != null) {
             configure.accept(queue);
@@ -0,0 +1,107 @@
+package com.denizenscript.denizencore.utilities;
+
+import com.denizenscript.denizencore.objects.ObjectTag;
+import com.denizenscript.denizencore.objects.core.MapTag;
+
+/**
+ * A queue's definitions that have a slot (see DefinitionSlots), stored as a flat array of slot numbers alongside a flat array of values, in the order they were first set.
+ * Queues generally only have a handful of definitions, so a linear scan over the slot numbers beats hashing a lowercased name.
+ */
+public class SlottedDefinitions {
+
+    private static final int[] EMPTY_SLOTS = new int[0];
+
+    private static final ObjectTag[] EMPTY_VALUES = new ObjectTag[0];
+
+    public int[] slots = EMPTY_SLOTS;
+
+    public ObjectTag[] values = EMPTY_VALUES;
+
+    public int size = 0;
+
+    public final int indexOf(int slot) {
+        int[] slots = this.slots;
+        for (int i = 0; i < size; i++) {
+            if (slots[i] == slot) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public final ObjectTag get(int slot) {
+        int index = indexOf(slot);
+        return index == -1 ? null : values[index];
+    }
+
+    /**
+     * Sets the value of a slot, or removes it if the value is null.
+     */
+    public final void set(int slot, ObjectTag value) {
+        int index = indexOf(slot);
+        if (index != -1) {
+            if (value != null) {
+                values[index] = value;
+                return;
+            }
+            size--;
+            System.arraycopy(slots, index + 1, slots, index, size - index);
+            System.arraycopy(values, index + 1, values, index, size - index);
+            values[size] = null;
+            return;
+        }
+        if (value == null) {
+            return;
+        }
+        if (size == slots.length) {
+            int newLength = Math.max(8, size * 2);
+            int[] newSlots = new int[newLength];
+            ObjectTag[] newValues = new ObjectTag[newLength];
+            System.arraycopy(slots, 0, newSlots, 0, size);
+            System.arraycopy(values, 0, newValues, 0, size);
+            slots = newSlots;
+            values = newValues;
+        }
+        slots[size] = slot;
+        values[size] = value;
+        size++;
+    }
+
+    public final boolean isEmpty() {
+        return size == 0;
+    }
+
+    public final void clear() {
+        for (int i = 0; i < size; i++) {
+            values[i] = null;
+        }
+        size = 0;
+    }
+
+    /**
+     * Returns a copy of this set of definitions, with each value duplicated (matching MapTag.duplicate).
+     */
+    public SlottedDefinitions duplicate() {
+        SlottedDefinitions result = new SlottedDefinitions();
+        if (size > 0) {
+            result.slots = new int[slots.length];
+            result.values = new ObjectTag[slots.length];
+            System.arraycopy(slots, 0, result.slots, 0, size);
+            for (int i = 0; i < size; i++) {
+                result.values[i] = values[i].duplicate();
+            }
+            result.size = size;
+        }
+        return result;
+    }
+
+    /**
+     * Moves all definitions into the given map (by name), leaving this set empty.
+     */
+    public void moveInto(MapTag map) {
+        for (int i = 0; i < size; i++) {
+            map.putObject(DefinitionSlots.getName(slots[i]), values[i]);
+        }
+        clear();
+    }
+}
@@ -1,10 +1,20 @@
 package com.denizenscript.denizencore.utilities.codegen;
 
 import com.denizenscript.denizencore.objects.ObjectTag;
+import com.denizenscript.denizencore.objects.core.ElementTag;
+import com.denizenscript.denizencore.objects.core.MapTag;
 import com.denizenscript.denizencore.utilities.AsciiMatcher;
 import com.denizenscript.denizencore.utilities.debugging.Debug;
 import org.objectweb.asm.Type;
 
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
 public class CodeGenUtil {
 
     public static AsciiMatcher PERMITTED_NAME_CHARS = new AsciiMatcher(AsciiMatcher.LETTERS_LOWER + AsciiMatcher.LETTERS_UPPER + AsciiMatcher.DIGITS + "_");
@@ -13,7 +23,87 @@ public class CodeGenUtil {
     public static final String OBJECT_TAG_TYPE = Type.getInternalName(ObjectTag.class);
     public static final String OBJECT_LOCAL_TYPE = "L" + OBJECT_TAG_TYPE + ";";
 
-    public static DynamicClassLoader loader = new DynamicClassLoader(CodeGenUtil.class.getClassLoader());
+    /**
+     * The class loader for code that is generated once (eg at registration) and stays in use until shutdown.
+     */
+    public static DynamicClassLoader loader = new DynamicClassLoader(CodeGenUtil.class.getClassLoader(), 0);
+
+    /**
+     * The class loader for code generated from scripts (eg compiled tags and event paths), replaced by 'startScriptGeneration' each time scripts reload.
+     * Classes can only be unloaded along with their whole class loader, so this lets the classes generated for old scripts be unloaded once nothing uses them anymore, rather than adding up with every reload.
+     * Has 'loader' as its parent, so script code can use any permanent generated class.
+     */
+    private static volatile DynamicClassLoader scriptLoader = null;
+
+    public static volatile int scriptGeneration = 0;
+
+    public static int totalLoadersCreated = 0;
+
+    private static final List<WeakReference<DynamicClassLoader>> trackedLoaders = new ArrayList<>();
+
+    static {
+        track(loader);
+    }
+
+    private static synchronized void track(DynamicClassLoader newLoader) {
+        totalLoadersCreated++;
+        trackedLoaders.add(new WeakReference<>(newLoader));
+    }
+
+    /**
+     * Starts a new generation of script-generated code, to be called before scripts (re)load.
+     * Code generated by the previous generation continues to work for anything still using it.
+     */
+    public static synchronized void startScriptGeneration() {
+        scriptGeneration++;
+        scriptLoader = new DynamicClassLoader(loader, scriptGeneration);
+        track(scriptLoader);
+    }
+
+    /**
+     * Returns the class loader for code generated from the current set of scripts.
+     */
+    public static DynamicClassLoader getScriptLoader() {
+        DynamicClassLoader result = scriptLoader;
+        if (result == null) {
+            synchronized (CodeGenUtil.class) {
+                if (scriptLoader == null) {
+                    startScriptGeneration();
+                }
+                result = scriptLoader;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns stats about generated classes. Old loaders only count as collected once the garbage collector has actually unloaded them.
+     */
+    public static synchronized MapTag getStats() {
+        int liveLoaders = 0, liveClasses = 0, scriptClasses = 0;
+        Iterator<WeakReference<DynamicClassLoader>> iterator = trackedLoaders.iterator();
+        while (iterator.hasNext()) {
+            DynamicClassLoader tracked = iterator.next().get();
+            if (tracked == null) {
+                iterator.remove();
+                continue;
+            }
+            liveLoaders++;
+            liveClasses += tracked.definedClasses.get();
+            if (tracked.generation != 0) {
+                scriptClasses += tracked.definedClasses.get();
+            }
+        }
+        MapTag map = new MapTag();
+        map.putObject("script_generation", new ElementTag(scriptGeneration));
+        map.putObject("live_loaders", new ElementTag(liveLoaders));
+        map.putObject("live_classes", new ElementTag(liveClasses));
+        map.putObject("live_script_classes", new ElementTag(scriptClasses));
+        map.putObject("permanent_classes", new ElementTag(loader.definedClasses.get()));
+        map.putObject("total_loaders", new ElementTag(totalLoadersCreated));
+        map.putObject("collected_loaders", new ElementTag(totalLoadersCreated - liveLoaders));
+        return map;
+    }
 
     public static String cleanName(String text) {
         String result = PERMITTED_NAME_CHARS.trimToMatches(text);
@@ -24,13 +114,34 @@ public class CodeGenUtil {
     }
 
     public static class DynamicClassLoader extends ClassLoader {
-        public DynamicClassLoader(ClassLoader parent) {
+
+        /**
+         * The script generation this loader is for, or 0 for the permanent loader.
+         */
+        public final int generation;
+
+        public final AtomicInteger definedClasses = new AtomicInteger();
+
+        /**
+         * Generated code by the source it was generated from (eg compiled tags by tag text), so that the same source doesn't define a new class each time it's parsed again.
+         * Held by the loader so that it's dropped along with the loader's classes.
+         * As those classes can't be unloaded any sooner, this isn't an evicting cache: instead, tag codegen stops once this reaches CoreConfiguration.tagGeneratedClassLimit (see TagCodeGenerator).
+         */
+        public final Map<String, Object> generatedBySource = new ConcurrentHashMap<>();
+
+        public DynamicClassLoader(ClassLoader parent, int generation) {
             super(parent);
+            this.generation = generation;
+        }
+
+        public DynamicClassLoader(ClassLoader parent) {
+            this(parent, 0);
         }
 
         public Class<?> define(String className, byte[] bytecode) {
             Class<?> clazz = super.defineClass(className, bytecode, 0, bytecode.length);
             resolveClass(clazz);
+            definedClasses.incrementAndGet();
             return clazz;
         }
         @Override
@@ -133,6 +133,16 @@ public final class MethodGenerator {
         mv.visitJumpInsn(Opcodes.IFNONNULL, target);
     }
 
+    /** Jumps to a given label if the two integers on top of the stack are not equal. */
+    public void jumpIfIntsNotEqualTo(Label target) {
+        mv.visitJumpInsn(Opcodes.IF_ICMPNE, target);
+    }
+
+    /** Jumps to a given label if the two objects on top of the stack are not the same instance. */
+    public void jumpIfNotSameTo(Label target) {
+        mv.visitJumpInsn(Opcodes.IF_ACMPNE, target);
+    }
+
     /** Casts the object on top of the stack to the given type. */
     public void cast(Class<?> type) {
         mv.visitTypeInsn(Opcodes.CHECKCAST, Type.getInternalName(type));
@@ -291,6 +301,11 @@ public final class MethodGenerator {
         mv.visitTypeInsn(Opcodes.ANEWARRAY, Type.getInternalName(type));
     }
 
+    /** Loads a value from an object array on the stack, at the index on top of the stack. */
+    public void arrayLoadObject() {
+        mv.visitInsn(Opcodes.AALOAD);
+    }
+
     /** Stores a value into an array on the stack of the given type. */
     public void arrayStore(Class<?> arrayType) {
         arrayStore(Type.getDescriptor(arrayType));
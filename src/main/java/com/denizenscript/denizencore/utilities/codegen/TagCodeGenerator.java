@@ -1,22 +1,122 @@
 package com.denizenscript.denizencore.utilities.codegen;
 
 import com.denizenscript.denizencore.objects.ObjectTag;
+import com.denizenscript.denizencore.objects.core.ElementTag;
+import com.denizenscript.denizencore.objects.core.ListTag;
+import com.denizenscript.denizencore.objects.core.MapTag;
 import com.denizenscript.denizencore.tags.*;
 import com.denizenscript.denizencore.tags.Attribute;
+import com.denizenscript.denizencore.utilities.CoreConfiguration;
 import com.denizenscript.denizencore.utilities.ReflectionHelper;
 import com.denizenscript.denizencore.utilities.debugging.Debug;
+import com.denizenscript.denizencore.utilities.debugging.DebugInternals;
 import org.objectweb.asm.*;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 public class TagCodeGenerator {
 
-    public static long totalGenerated = 0;
+    /**
+     * Stats counters. Tags can be parsed off the main thread (eg in parallel procedures), so these and the stop reasons below are only touched while synchronized on this class.
+     */
+    public static long totalGenerated = 0, totalFullChains = 0, totalPartialChains = 0;
+
+    /**
+     * How many tags stopped compiling early (or couldn't compile at all), by reason.
+     */
+    public static final LinkedHashMap<String, Long> stopReasons = new LinkedHashMap<>();
+
+    /**
+     * Descriptions of the most recent tags that stopped compiling early, and why, see 'recordStop'.
+     */
+    public static final ArrayDeque<String> recentStops = new ArrayDeque<>();
+
+    public static final int MAX_RECENT_STOPS = 50;
 
     public static final Method ATTRIBUTE_FULFILLONE_METHOD = ReflectionHelper.getMethod(Attribute.class, "fulfillOne", ObjectTag.class);
     public static final Method ATTRIBUTE_TRACKLASTTAGFAILURE_METHOD = ReflectionHelper.getMethod(Attribute.class, "trackLastTagFailure");
+    public static final Method ATTRIBUTE_GETFULFILLED_METHOD = ReflectionHelper.getMethod(Attribute.class, "getFulfilled");
+    public static final Method ATTRIBUTE_RUNFALLBACK_METHOD = ReflectionHelper.getMethod(Attribute.class, "runFallback", int.class);
+    public static final Method OBJECT_GETCLASS_METHOD = ReflectionHelper.getMethod(Object.class, "getClass");
+    public static final Method TAGWATCHDOG_CHECK_METHOD = ReflectionHelper.getMethod(TagWatchdog.class, "check");
     public static final Field ATTRIBUTE_HADMANUALFULFILL_FIELD = ReflectionHelper.getFields(Attribute.class).get("hadManualFulfill", boolean.class);
+    public static final String CLASS_ARRAY_DESCRIPTOR = Type.getDescriptor(Class[].class);
+
+    /**
+     * Counts a tag that couldn't be (fully) compiled under the given reason, and keeps the description for 'util.tag_codegen_stats'.
+     */
+    public static synchronized void recordFailure(String tag, String reason, String description) {
+        stopReasons.merge(reason, 1L, Long::sum);
+        if (recentStops.size() >= MAX_RECENT_STOPS) {
+            recentStops.removeFirst();
+        }
+        recentStops.addLast("<" + tag + ">: " + description);
+        if (CoreConfiguration.debugVerbose) {
+            Debug.log("Tag codegen: <" + tag + ">: " + description);
+        }
+    }
+
+    /**
+     * Records why compiling the tag stopped at the given part (it'll continue in the tag processor from there).
+     */
+    public static void recordStop(String tag, Attribute.AttributeComponent[] pieces, int index, TagManager.TagBaseData base) {
+        ObjectTagProcessor<?> processor = index == 1 ? base.processor : pieces[index - 1].data.getReturnProcessor();
+        if (processor == null) {
+            ObjectTagProcessor.TagData<?, ?> previous = index == 1 ? null : pieces[index - 1].data;
+            String returnType = index == 1 ? DebugInternals.getClassNameOpti(base.returnType) : DebugInternals.getClassNameOpti(previous.returnType);
+            recordFailure(tag, "unknown_return_type", "stopped at '" + pieces[index].key + "': '" + pieces[index - 1].key + "' returns " + returnType + ", so the type of its value isn't known ahead of time");
+        }
+        else {
+            recordFailure(tag, "unregistered_sub_tag", "stopped at '" + pieces[index].key + "': not a registered tag of " + DebugInternals.getClassNameOpti(processor.type) + " (may be a property or a tag of a more specific type)");
+        }
+    }
+
+    public static synchronized long nextClassId() {
+        return totalGenerated++;
+    }
+
+    public static synchronized void recordChain(boolean full) {
+        if (full) {
+            totalFullChains++;
+        }
+        else {
+            totalPartialChains++;
+        }
+    }
+
+    public static synchronized MapTag getStats() {
+        MapTag map = new MapTag();
+        map.putObject("generated", new ElementTag(totalGenerated));
+        map.putObject("full_chains", new ElementTag(totalFullChains));
+        map.putObject("partial_chains", new ElementTag(totalPartialChains));
+        MapTag reasons = new MapTag();
+        for (Map.Entry<String, Long> reason : stopReasons.entrySet()) {
+            reasons.putObject(reason.getKey(), new ElementTag(reason.getValue()));
+        }
+        map.putObject("stop_reasons", reasons);
+        map.putObject("recent_stops", new ListTag(recentStops, true));
+        return map;
+    }
+
+    /**
+     * A generated tag, as kept in the script class loader (see CodeGenUtil.DynamicClassLoader.generatedBySource).
+     */
+    public static class GeneratedTag {
+
+        public final TagRunnable.BaseInterface<? extends ObjectTag> runner;
+
+        public final int skippable;
+
+        public GeneratedTag(TagRunnable.BaseInterface<? extends ObjectTag> runner, int skippable) {
+            this.runner = runner;
+            this.skippable = skippable;
+        }
+    }
 
     public static boolean hasStaticContext(Attribute.AttributeComponent component, TagContext genContext) {
         if (component.rawParam == null) {
@@ -39,6 +139,19 @@ public class TagCodeGenerator {
         if (data.compiledStart != null) {
             return data.compiledStart;
         }
+        // The generated class only depends on the tag text, so a tag that's parsed again (eg after its parse was evicted from a cache) reuses the same class
+        CodeGenUtil.DynamicClassLoader scriptLoader = CodeGenUtil.getScriptLoader();
+        GeneratedTag generated = (GeneratedTag) scriptLoader.generatedBySource.get(data.rawTag);
+        if (generated != null) {
+            data.skippable = generated.skippable;
+            return generated.runner;
+        }
+        // Tag text that's built at runtime can be different every time, so this limits how many classes it can define before the next reload
+        int limit = CoreConfiguration.tagGeneratedClassLimit;
+        if (limit > 0 && scriptLoader.generatedBySource.size() >= limit) {
+            recordFailure(data.rawTag, "class_limit", "not compiled, as " + limit + " tags were already compiled since scripts last loaded");
+            return null;
+        }
         Attribute.AttributeComponent[] pieces = data.attribs.attributes;
         boolean canBeStatic = data.tagBase.isStatic && (hasStaticContext(pieces[0], genContext) || data.tagBase.doesStaticOverride);
         int staticParts = canBeStatic ? 1 : 0;
@@ -63,9 +176,9 @@ public class TagCodeGenerator {
             try {
                 ReplaceableTagEvent staticParseEvent = new ReplaceableTagEvent(data, toParse.content, genContext);
                 Attribute staticParseAttrib = staticParseEvent.getAttributes();
-                TagManager.isStaticParsing = true;
+                TagManager.setStaticParsing(true);
                 staticParseResult = data.tagBase.baseForm.run(staticParseAttrib);
-                TagManager.isStaticParsing = false;
+                TagManager.setStaticParsing(false);
                 if (staticParseResult == null) {
                     staticParts = 0;
                 }
@@ -73,9 +186,9 @@ public class TagCodeGenerator {
                     staticParseAttrib.fulfillOne(staticParseResult);
                     for (int i = 1; i < staticParts; i++) {
                         TagRunnable.ObjectInterface<ObjectTag, ObjectTag> runner = (TagRunnable.ObjectInterface<ObjectTag, ObjectTag>) pieces[i].data.runner;
-                        TagManager.isStaticParsing = true;
+                        TagManager.setStaticParsing(true);
                         ObjectTag newResult = runner.run(staticParseAttrib, staticParseResult);
-                        TagManager.isStaticParsing = false;
+                        TagManager.setStaticParsing(false);
                         if (newResult != null) {
                             staticParseResult = newResult;
                             staticParseAttrib.fulfillOne(staticParseResult);
@@ -110,22 +223,71 @@ public class TagCodeGenerator {
                 Debug.echoError(ex);
             }
             finally {
-                TagManager.isStaticParsing = false;
+                TagManager.setStaticParsing(false);
+            }
+        }
+        int endIndex = 1 + applicableParts;
+        if (endIndex < pieces.length) {
+            recordStop(data.rawTag, pieces, endIndex, data.tagBase);
+        }
+        int startIndex = staticParseResult == null ? 1 : staticParts;
+        // Tag data for each part that gets compiled. Parts past 'endIndex' are only reached by resuming after a manual fulfill (a legacy handler that also handles the part(s) after its own),
+        // so they're looked up as if any unrecognized part was handled that way, and only ever run after checking the object is of the expected type.
+        ObjectTagProcessor.TagData<?, ?>[] partData = new ObjectTagProcessor.TagData<?, ?>[pieces.length];
+        for (int i = startIndex; i < endIndex; i++) {
+            partData[i] = pieces[i].data;
+        }
+        int compiledEnd = endIndex;
+        if (endIndex < pieces.length) {
+            ObjectTagProcessor<?> processor = endIndex == 1 ? data.tagBase.processor : pieces[endIndex - 1].data.getReturnProcessor();
+            for (int i = endIndex; i < pieces.length && processor != null; i++) {
+                ObjectTagProcessor.TagData<?, ?> continuation = processor.registeredObjectTags.get(pieces[i].key);
+                if (continuation != null && continuation.runner != null) {
+                    partData[i] = continuation;
+                    compiledEnd = i + 1;
+                    processor = continuation.getReturnProcessor();
+                }
             }
         }
-        if (applicableParts == 0 && staticParts == 0) {
+        int[] nextFallback = new int[pieces.length];
+        int fallbackIndex = -1;
+        for (int i = pieces.length - 1; i >= 0; i--) {
+            nextFallback[i] = fallbackIndex;
+            if (i > 0 && Attribute.fallbackTags.containsKey(pieces[i].key)) {
+                fallbackIndex = i;
+            }
+        }
+        boolean hasFallback = nextFallback[startIndex - 1] != -1;
+        if (startIndex >= compiledEnd && staticParts == 0 && !hasFallback) {
             return null;
         }
+        // Object types that each part can be resumed at (null if it can't be)
+        Class<?>[] resumeTypes = new Class<?>[pieces.length];
+        for (int i = startIndex; i < compiledEnd; i++) {
+            if (partData[i] == null) {
+                continue;
+            }
+            Attribute.AttributeComponent component = pieces[i];
+            if (component.rawParam != null && component.paramParsed == null) {
+                // Pre-parse params now, so that any tags inside get compiled along with this one, rather than the first time the tag runs
+                component.paramParsed = TagManager.parseTextToTag(component.rawParam, genContext);
+            }
+            Class<?> type = partData[i].source == null ? null : partData[i].source.type;
+            if (type != null && !type.isInterface() && !Modifier.isAbstract(type.getModifiers())) {
+                resumeTypes[i] = type;
+            }
+        }
         try {
             // ====== Gen class ======
             String tagFullName = CodeGenUtil.cleanName(data.rawTag.replace('.', '_'));
-            String className = CodeGenUtil.CORE_GEN_PACKAGE + "UserTags/UserTag" + (totalGenerated++) + "_" + tagFullName;
+            String className = CodeGenUtil.CORE_GEN_PACKAGE + "UserTags/UserTag" + nextClassId() + "_" + tagFullName;
             ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS | ClassWriter.COMPUTE_FRAMES);
             cw.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, className, null, "java/lang/Object", new String[] {TagNamer.BASE_INTERFACE_PATH});
             cw.visitSource("GENERATED_TAG", null);
             if (staticParseResult != null) {
                 cw.visitField(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "staticParseResult", CodeGenUtil.OBJECT_LOCAL_TYPE, null, null);
             }
+            cw.visitField(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "resumeTypes", CLASS_ARRAY_DESCRIPTOR, null, null);
             MethodGenerator.genDefaultConstructor(cw, className);
             // ====== Gen 'run' method ======
             {
@@ -134,6 +296,19 @@ public class TagCodeGenerator {
                 MethodGenerator.Local objectLocal = gen.addLocal("currentObject", ObjectTag.class);
                 Label returnLabel = new Label();
                 Label failLabel = new Label();
+                Label resumeLabel = new Label();
+                // Where to go once the parts that are known to follow on directly have run
+                Label afterChainLabel = compiledEnd > endIndex ? resumeLabel : returnLabel;
+                Label[] pieceLabels = new Label[pieces.length];
+                for (int i = startIndex; i < compiledEnd; i++) {
+                    pieceLabels[i] = new Label();
+                }
+                Label[] fallbackLabels = new Label[pieces.length];
+                for (int i = 0; i < pieces.length; i++) {
+                    if (nextFallback[i] != -1 && fallbackLabels[nextFallback[i]] == null) {
+                        fallbackLabels[nextFallback[i]] = new Label();
+                    }
+                }
                 // Run the initial tag base
                 if (staticParseResult != null) {
                     gen.loadStaticField(className, "staticParseResult", ObjectTag.class);
@@ -143,36 +318,92 @@ public class TagCodeGenerator {
                     gen.loadLocal(attributeLocal);
                     gen.invokeStatic(Type.getInternalName(data.tagBase.baseForm.getClass()), "staticRun", TagNamer.BASE_INTERFACE_RUN_DESCRIPTOR);
                     gen.storeLocal(objectLocal);
-                    // If tag base returned null, fail
+                    // If tag base returned null, fail (or go to the fallback)
                     gen.loadLocal(objectLocal);
-                    gen.jumpIfNullTo(failLabel);
+                    gen.jumpIfNullTo(nextFallback[0] == -1 ? failLabel : fallbackLabels[nextFallback[0]]);
                     // otherwise, fulfill one
                     gen.loadLocal(attributeLocal);
                     gen.loadLocal(objectLocal);
                     gen.invokeVirtual(ATTRIBUTE_FULFILLONE_METHOD);
+                    // If manual fulfill happened, the base handled more than one part itself, so continue from wherever it stopped
+                    gen.advanceAndLabel();
+                    gen.loadLocal(attributeLocal);
+                    gen.loadInstanceField(ATTRIBUTE_HADMANUALFULFILL_FIELD);
+                    gen.jumpIfTrueTo(resumeLabel);
+                }
+                if (startIndex >= endIndex) {
+                    gen.jumpTo(afterChainLabel);
                 }
-                for (int i = staticParseResult == null ? 1 : staticParts; i < applicableParts; i++) {
-                    ObjectTagProcessor.TagData<?,?> piece = pieces[i].data;
-                    // Run sub-tag
+                for (int i = startIndex; i < compiledEnd; i++) {
+                    ObjectTagProcessor.TagData<?,?> piece = partData[i];
+                    if (piece == null) {
+                        continue;
+                    }
+                    // Run sub-tag, after checking the tag time limit (as the tag processor would, see TagWatchdog)
+                    gen.advanceAndLabel(pieceLabels[i]);
+                    gen.invokeStatic(TAGWATCHDOG_CHECK_METHOD);
                     gen.advanceAndLabel();
                     gen.loadLocal(attributeLocal);
                     gen.loadLocal(objectLocal);
                     gen.invokeStatic(Type.getInternalName(piece.runner.getClass()), "staticRun", TagNamer.OBJECT_INTERFACE_RUN_DESCRIPTOR);
                     gen.storeLocal(objectLocal);
-                    // If null return, fail
+                    // If null return, fail (or go to the fallback)
                     gen.advanceAndLabel();
                     gen.loadLocal(objectLocal);
-                    gen.jumpIfNullTo(failLabel);
+                    gen.jumpIfNullTo(nextFallback[i] == -1 ? failLabel : fallbackLabels[nextFallback[i]]);
                     // otherwise, fulfill one
                     gen.advanceAndLabel();
                     gen.loadLocal(attributeLocal);
                     gen.loadLocal(objectLocal);
                     gen.invokeVirtual(ATTRIBUTE_FULFILLONE_METHOD);
-                    // If manual fulfill happened, a legacy multi-part tag handler was used, so code gen is no longer trustworthy - exit and let legacy handler run
+                    // If manual fulfill happened, a legacy multi-part tag handler was used, so the following parts may not be the ones expected - continue from wherever it stopped
                     gen.advanceAndLabel();
                     gen.loadLocal(attributeLocal);
                     gen.loadInstanceField(ATTRIBUTE_HADMANUALFULFILL_FIELD);
-                    gen.jumpIfTrueTo(returnLabel);
+                    gen.jumpIfTrueTo(resumeLabel);
+                    if (i + 1 >= endIndex) {
+                        gen.jumpTo(i + 1 >= compiledEnd ? returnLabel : afterChainLabel);
+                    }
+                }
+                // Fallbacks: skip ahead to the fallback tag and run it, then continue after it
+                for (int i = 0; i < pieces.length; i++) {
+                    if (fallbackLabels[i] == null) {
+                        continue;
+                    }
+                    gen.advanceAndLabel(fallbackLabels[i]);
+                    gen.invokeStatic(TAGWATCHDOG_CHECK_METHOD);
+                    gen.advanceAndLabel();
+                    gen.loadLocal(attributeLocal);
+                    gen.loadInt(i);
+                    gen.invokeVirtual(ATTRIBUTE_RUNFALLBACK_METHOD);
+                    gen.storeLocal(objectLocal);
+                    gen.loadLocal(objectLocal);
+                    gen.jumpIfNullTo(returnLabel);
+                    gen.jumpTo(resumeLabel);
+                }
+                // Resume: continue generated code at the part the attribute is now at, if the current object is of the type that part was compiled for, otherwise return and let the tag processor continue
+                gen.advanceAndLabel(resumeLabel);
+                gen.loadLocal(attributeLocal);
+                gen.loadInt(0);
+                gen.setInstanceField(ATTRIBUTE_HADMANUALFULFILL_FIELD);
+                for (int i = startIndex; i < compiledEnd; i++) {
+                    if (resumeTypes[i] == null || partData[i] == null) {
+                        continue;
+                    }
+                    Label nextCheck = new Label();
+                    gen.advanceAndLabel();
+                    gen.loadLocal(attributeLocal);
+                    gen.invokeVirtual(ATTRIBUTE_GETFULFILLED_METHOD);
+                    gen.loadInt(i);
+                    gen.jumpIfIntsNotEqualTo(nextCheck);
+                    gen.loadLocal(objectLocal);
+                    gen.invokeVirtual(OBJECT_GETCLASS_METHOD);
+                    gen.loadStaticField(className, "resumeTypes", CLASS_ARRAY_DESCRIPTOR);
+                    gen.loadInt(i);
+                    gen.arrayLoadObject();
+                    gen.jumpIfNotSameTo(nextCheck);
+                    gen.jumpTo(pieceLabels[i]);
+                    gen.advanceAndLabel(nextCheck);
                 }
                 gen.jumpTo(returnLabel);
                 gen.advanceAndLabel(failLabel);
@@ -186,14 +417,23 @@ public class TagCodeGenerator {
             // ====== Compile and return ======
             cw.visitEnd();
             byte[] compiled = cw.toByteArray();
-            Class<?> generatedClass = CodeGenUtil.loader.define(className.replace('/', '.'), compiled);
-            if (staticParseResult != null) {
-                ReflectionHelper.getFinalSetter(generatedClass, "staticParseResult").invoke(staticParseResult);
+            Class<?> generatedClass = scriptLoader.define(className.replace('/', '.'), compiled);
+            try {
+                if (staticParseResult != null) {
+                    ReflectionHelper.getFinalSetter(generatedClass, "staticParseResult").invoke(staticParseResult);
+                }
+                ReflectionHelper.getFinalSetter(generatedClass, "resumeTypes").invoke(resumeTypes);
+            }
+            finally {
+                ReflectionHelper.forgetClass(generatedClass);
             }
-            Object result = generatedClass.getConstructors()[0].newInstance();
-            return (TagRunnable.BaseInterface<? extends ObjectTag>) result;
+            TagRunnable.BaseInterface<? extends ObjectTag> result = (TagRunnable.BaseInterface<? extends ObjectTag>) generatedClass.getConstructors()[0].newInstance();
+            recordChain(endIndex >= pieces.length);
+            scriptLoader.generatedBySource.put(data.rawTag, new GeneratedTag(result, data.skippable));
+            return result;
         }
         catch (Throwable ex) {
+            recordFailure(data.rawTag, "generation_error", "Code generation failed: " + ex);
             Debug.echoError(ex);
             return null;
         }
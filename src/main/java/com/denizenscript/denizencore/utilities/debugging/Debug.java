@@ -3,9 +3,12 @@ package com.denizenscript.denizencore.utilities.debugging;
 import com.denizenscript.denizencore.DenizenCore;
 import com.denizenscript.denizencore.objects.ObjectTag;
 import com.denizenscript.denizencore.scripts.ScriptEntry;
+import com.denizenscript.denizencore.scripts.commands.CommandExecutor;
 import com.denizenscript.denizencore.scripts.containers.ScriptContainer;
+import com.denizenscript.denizencore.scripts.queues.ScriptQueue;
 import com.denizenscript.denizencore.tags.TagContext;
 import com.denizenscript.denizencore.utilities.CoreConfiguration;
+import com.denizenscript.denizencore.utilities.scheduling.ProcedurePool;
 
 import java.util.Stack;
 
@@ -14,9 +17,25 @@ public class Debug {
     /** Current debug recording text, if recording enabled, for submission to paste server. */
     public static StringBuilder debugRecording = new StringBuilder();
 
-    /** Current main thread context, maintained automatically by stacked calls, for error handling. */
+    /** Current main thread context, maintained automatically by stacked calls, for error handling. Prefer 'getCurrentContext'. */
     public static TagContext currentContext = null;
 
+    /** Same as 'currentContext', for procedure pool worker threads (see ProcedurePool), which never touch the shared field. */
+    private static final ThreadLocal<TagContext> workerContext = new ThreadLocal<>();
+
+    public static TagContext getCurrentContext() {
+        return ProcedurePool.isWorkerThread() ? workerContext.get() : currentContext;
+    }
+
+    public static void setCurrentContext(TagContext context) {
+        if (ProcedurePool.isWorkerThread()) {
+            workerContext.set(context);
+        }
+        else {
+            currentContext = context;
+        }
+    }
+
     /** Stack trace helper for current error context. */
     public static Stack<Object> errorContextStack = new Stack<>();
 
@@ -92,7 +111,7 @@ public class Debug {
 
     /** Echos an error message, using automatically gathered context. */
     public static void echoError(String error) {
-        echoError(currentContext, error);
+        echoError(getCurrentContext(), error);
     }
 
     /** Echos an error message, using manually specified context. */
@@ -103,7 +122,7 @@ public class Debug {
     /** Echos an error message, using manually specified context and optional extra text context. */
     public static void echoError(TagContext context, String addedContext, String error) {
         if (context == null) {
-            context = currentContext;
+            context = getCurrentContext();
         }
         if (context != null && context.entry != null) {
             echoError(context.entry, addedContext, error);
@@ -112,7 +131,9 @@ public class Debug {
             echoError(context.script.getContainer(), addedContext, error);
         }
         else {
-            DenizenCore.runOnMainThread(() -> DebugInternals.echoErrorInternal(null, addedContext, error, true));
+            ScriptQueue queue = CommandExecutor.getCurrentQueue();
+            ScriptEntry source = queue == null ? null : queue.getLastEntryExecuted();
+            DenizenCore.runOnMainThread(() -> DebugInternals.echoErrorInternal(source, addedContext, error, true));
         }
     }
 
@@ -144,7 +165,9 @@ public class Debug {
 
     /** Echos an exception error message, with automatic context filling. */
     public static void echoError(Throwable ex) {
-        DenizenCore.runOnMainThread(() -> DebugInternals.echoExceptionInternal(currentContext == null ? null : currentContext.entry, ex));
+        TagContext context = getCurrentContext();
+        ScriptEntry source = context == null ? null : context.entry;
+        DenizenCore.runOnMainThread(() -> DebugInternals.echoExceptionInternal(source, ex));
     }
     /** Echos an exception error message, with a specific script entry as the context source. */
     public static void echoError(ScriptEntry entry, Throwable error) {
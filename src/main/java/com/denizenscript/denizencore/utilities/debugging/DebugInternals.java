@@ -67,7 +67,7 @@ public class DebugInternals {
             return;
         }
         errorDuplicatePrevention = true;
-        ScriptQueue sourceQueue = CommandExecutor.currentQueue;
+        ScriptQueue sourceQueue = CommandExecutor.getCurrentQueue();
         if (source == null && sourceQueue != null) {
             source = sourceQueue.getLastEntryExecuted();
         }
@@ -97,7 +97,7 @@ public class DebugInternals {
             headerBuilder.append(" in script '<A>").append(sourceScript.getName()).append("<LR>'");
         }
         if (sourceQueue != null) {
-            headerBuilder.append(" in queue '").append(sourceQueue.debugId).append("<LR>'");
+            headerBuilder.append(" in queue '").append(sourceQueue.getDebugId()).append("<LR>'");
         }
         if (source != null) {
             headerBuilder.append(" while executing command '<A>").append(source.getCommandName()).append("<LR>'");
@@ -128,7 +128,7 @@ public class DebugInternals {
             }
             else if (context instanceof ScriptQueue queue) {
                 if (context != sourceQueue) {
-                    headerBuilder.append(" in queue '").append(queue.debugId).append("<LR>'");
+                    headerBuilder.append(" in queue '").append(queue.getDebugId()).append("<LR>'");
                 }
             }
             else if (context instanceof String str) {
@@ -216,7 +216,7 @@ public class DebugInternals {
                 while (thrown.getCause() != null) {
                     thrown = thrown.getCause();
                 }
-                ScriptQueue sourceQueue = CommandExecutor.currentQueue;
+                ScriptQueue sourceQueue = CommandExecutor.getCurrentQueue();
                 if (source == null && sourceQueue != null) {
                     source = sourceQueue.getLastEntryExecuted();
                 }
@@ -255,7 +255,7 @@ public class DebugInternals {
     /** Gets an extra path to send debug to, if relevant. */
     public static Consumer<String> getDebugSender(Debuggable caller) {
         if (caller == null) {
-            caller = CommandExecutor.currentQueue;
+            caller = CommandExecutor.getCurrentQueue();
         }
         if (caller instanceof TagContext context && context.entry != null) {
             caller = context.entry;
@@ -296,10 +296,10 @@ public class DebugInternals {
         }
         else if (caller instanceof ScriptQueue queue) {
             if (queue.script != null) {
-                callerId = "Queue:" + queue.id + " running Script:" + queue.script.getName();
+                callerId = "Queue:" + queue.getId() + " running Script:" + queue.script.getName();
             }
             else {
-                callerId = "Queue:" + queue.id;
+                callerId = "Queue:" + queue.getId();
             }
         }
         else if (caller instanceof TagContext context) {
@@ -0,0 +1,142 @@
+package com.denizenscript.denizencore.utilities.debugging;
+
+import com.denizenscript.denizencore.DenizenCore;
+import com.denizenscript.denizencore.objects.core.DurationTag;
+import com.denizenscript.denizencore.objects.core.ElementTag;
+import com.denizenscript.denizencore.objects.core.MapTag;
+import com.denizenscript.denizencore.utilities.CoreConfiguration;
+
+import java.util.Arrays;
+
+/**
+ * Optional profiler for the phases of DenizenCore.tick, enabled by CoreConfiguration.tickProfiling.
+ * Keeps the per-phase nanosecond times of the last CoreConfiguration.tickProfilerSampleSize ticks in a ring buffer.
+ */
+public class TickProfiler {
+
+    public static final int DEBUG = 0, TICK_EVENT = 1, RUNLATER = 2, ONCE_PER_SECOND = 3, MAIN_THREAD_TASKS = 4, AFTER_EVENTS = 5, SCHEDULED = 6, TIMED_QUEUES = 7, BUDGETED_WORK = 8, TOTAL = 9;
+
+    public static final String[] PHASE_NAMES = {"debug", "tick_event", "runlater", "once_per_second", "main_thread_tasks", "after_events", "scheduled", "timed_queues", "budgeted_work", "total"};
+
+    /**
+     * Sample ring buffer, as [phase][tick].
+     */
+    public static long[][] samples = new long[PHASE_NAMES.length][0];
+
+    public static int sampleIndex = 0, sampleCount = 0;
+
+    public static long ticksProfiled = 0;
+
+    /**
+     * Prepares the sample row for a new tick. Returns the current nano time, to be passed to the first 'record' call.
+     */
+    public static long startTick() {
+        int size = Math.max(1, CoreConfiguration.tickProfilerSampleSize);
+        if (samples[0].length != size) {
+            samples = new long[PHASE_NAMES.length][size];
+            sampleIndex = 0;
+            sampleCount = 0;
+        }
+        for (long[] phase : samples) {
+            phase[sampleIndex] = 0;
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * Adds the time since 'startNanos' to the given phase for the current tick, and returns the current nano time (for chaining into the next phase).
+     */
+    public static long record(int phase, long startNanos) {
+        long now = System.nanoTime();
+        samples[phase][sampleIndex] += now - startNanos;
+        return now;
+    }
+
+    /**
+     * Records the total tick time and moves on to the next sample row.
+     */
+    public static void endTick(long tickStartNanos) {
+        record(TOTAL, tickStartNanos);
+        sampleIndex = (sampleIndex + 1) % samples[0].length;
+        sampleCount = Math.min(sampleCount + 1, samples[0].length);
+        ticksProfiled++;
+    }
+
+    public static void reset() {
+        samples = new long[PHASE_NAMES.length][0];
+        sampleIndex = 0;
+        sampleCount = 0;
+        ticksProfiled = 0;
+    }
+
+    /**
+     * Returns the sorted samples for a phase, with the most recent (possibly still in progress) tick excluded.
+     */
+    public static long[] getSortedSamples(int phase) {
+        long[] sorted = new long[sampleCount];
+        int length = samples[phase].length;
+        for (int i = 0; i < sampleCount; i++) {
+            sorted[i] = samples[phase][(sampleIndex - 1 - i + length * 2) % length];
+        }
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    public static long percentile(long[] sorted, double percent) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percent * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    public static long average(long[] sorted) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        long sum = 0;
+        for (long value : sorted) {
+            sum += value;
+        }
+        return sum / sorted.length;
+    }
+
+    public static DurationTag nanosToDuration(long nanos) {
+        return new DurationTag(nanos / 1_000_000_000.0);
+    }
+
+    public static MapTag getStatsRawData() {
+        MapTag result = new MapTag();
+        for (int phase = 0; phase < PHASE_NAMES.length; phase++) {
+            long[] sorted = getSortedSamples(phase);
+            MapTag map = new MapTag();
+            map.putObject("average", nanosToDuration(average(sorted)));
+            map.putObject("p50", nanosToDuration(percentile(sorted, 0.5)));
+            map.putObject("p95", nanosToDuration(percentile(sorted, 0.95)));
+            map.putObject("p99", nanosToDuration(percentile(sorted, 0.99)));
+            map.putObject("max", nanosToDuration(sorted.length == 0 ? 0 : sorted[sorted.length - 1]));
+            result.putObject(PHASE_NAMES[phase], map);
+        }
+        result.putObject("sample_count", new ElementTag(sampleCount));
+        return result;
+    }
+
+    public static String getStats() {
+        if (!CoreConfiguration.tickProfiling && ticksProfiled == 0) {
+            return "Tick profiling is disabled.";
+        }
+        String c1 = DenizenCore.implementation.applyDebugColors("<W>"), c2 = DenizenCore.implementation.applyDebugColors("<A>");
+        StringBuilder stats = new StringBuilder();
+        stats.append(c1).append("Tick phase times over the last ").append(c2).append(sampleCount).append(c1).append(" ticks:\n");
+        for (int phase = 0; phase < PHASE_NAMES.length; phase++) {
+            long[] sorted = getSortedSamples(phase);
+            stats.append(c1).append("Phase '").append(c2).append(PHASE_NAMES[phase]).append(c1)
+                    .append("' averaged ").append(c2).append(average(sorted) / 1000000f)
+                    .append(c1).append("ms, p95 ").append(c2).append(percentile(sorted, 0.95) / 1000000f)
+                    .append(c1).append("ms, p99 ").append(c2).append(percentile(sorted, 0.99) / 1000000f)
+                    .append(c1).append("ms, max ").append(c2).append((sorted.length == 0 ? 0 : sorted[sorted.length - 1]) / 1000000f)
+                    .append(c1).append("ms.\n");
+        }
+        return stats.toString();
+    }
+}
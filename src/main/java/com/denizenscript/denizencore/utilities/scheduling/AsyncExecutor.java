@@ -0,0 +1,215 @@
+package com.denizenscript.denizencore.utilities.scheduling;
+
+import com.denizenscript.denizencore.DenizenCore;
+import com.denizenscript.denizencore.objects.core.DurationTag;
+import com.denizenscript.denizencore.objects.core.ElementTag;
+import com.denizenscript.denizencore.objects.core.MapTag;
+import com.denizenscript.denizencore.utilities.CoreConfiguration;
+import com.denizenscript.denizencore.utilities.CoreUtilities;
+import com.denizenscript.denizencore.utilities.debugging.Debug;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The executor behind DenizenCore.runAsync, configured by the CoreConfiguration 'asyncExecutor' settings.
+ * Modes are:
+ * CACHED: an unbounded cached thread pool (the legacy behavior).
+ * BOUNDED: a fixed maximum number of threads with a limited task queue, and a rejection policy for when the queue is full.
+ * VIRTUAL: a virtual thread per task, on Java versions that support it (otherwise falls back to CACHED).
+ * Rejection policies (for BOUNDED mode) are:
+ * CALLER_RUNS: the task runs on the thread that submitted it, unless that is the main thread, in which case it goes to a single overflow thread instead, so the main thread is never blocked by async work.
+ * ABORT: the task is dropped with an error.
+ */
+public class AsyncExecutor {
+
+    public enum Mode {CACHED, BOUNDED, VIRTUAL}
+
+    public enum RejectionPolicy {CALLER_RUNS, ABORT}
+
+    public static volatile ExecutorService executor;
+
+    /**
+     * Single thread that runs CALLER_RUNS tasks rejected while submitted from the main thread. Created when first needed.
+     */
+    public static ExecutorService overflowExecutor;
+
+    public static Mode currentMode;
+
+    public static String appliedModeSetting;
+
+    public static int currentThreads, currentQueueLimit;
+
+    public static final AtomicInteger activeTasks = new AtomicInteger(), queuedTasks = new AtomicInteger(), threadCounter = new AtomicInteger();
+
+    public static final AtomicLong completedTasks = new AtomicLong(), overflowTasks = new AtomicLong(), rejectedTasks = new AtomicLong(), totalWaitNanos = new AtomicLong(), totalRunNanos = new AtomicLong(), maxWaitNanos = new AtomicLong();
+
+    /**
+     * Runs a task on the async executor, (re)building the executor first if the configuration changed.
+     */
+    public static void execute(Runnable task) {
+        ExecutorService service = getExecutor();
+        long submitted = System.nanoTime();
+        queuedTasks.incrementAndGet();
+        Runnable wrapped = () -> {
+            long start = System.nanoTime();
+            queuedTasks.decrementAndGet();
+            activeTasks.incrementAndGet();
+            long wait = start - submitted;
+            totalWaitNanos.addAndGet(wait);
+            if (wait > maxWaitNanos.get()) {
+                maxWaitNanos.accumulateAndGet(wait, Math::max);
+            }
+            try {
+                task.run();
+            }
+            finally {
+                activeTasks.decrementAndGet();
+                completedTasks.incrementAndGet();
+                totalRunNanos.addAndGet(System.nanoTime() - start);
+            }
+        };
+        try {
+            service.execute(wrapped);
+        }
+        catch (RejectedExecutionException ex) {
+            queuedTasks.decrementAndGet();
+            rejectedTasks.incrementAndGet();
+            if (getRejectionPolicy() == RejectionPolicy.CALLER_RUNS) {
+                if (DenizenCore.isMainThread()) {
+                    overflowTasks.incrementAndGet();
+                    getOverflowExecutor().execute(task);
+                }
+                else {
+                    task.run();
+                }
+            }
+            else {
+                Debug.echoError("Async task rejected: the async executor queue is full (" + currentQueueLimit + " tasks). Consider raising the limit in the Denizen config.");
+            }
+        }
+    }
+
+    public static RejectionPolicy getRejectionPolicy() {
+        try {
+            return RejectionPolicy.valueOf(CoreUtilities.toUpperCase(CoreConfiguration.asyncExecutorRejectionPolicy));
+        }
+        catch (IllegalArgumentException ex) {
+            return RejectionPolicy.CALLER_RUNS;
+        }
+    }
+
+    /**
+     * Returns the configured mode, or CACHED if the setting is invalid.
+     */
+    public static Mode getConfiguredMode() {
+        try {
+            return Mode.valueOf(CoreUtilities.toUpperCase(CoreConfiguration.asyncExecutorMode));
+        }
+        catch (IllegalArgumentException ex) {
+            return Mode.CACHED;
+        }
+    }
+
+    private static boolean isUpToDate() {
+        return CoreConfiguration.asyncExecutorMode.equals(appliedModeSetting)
+                && CoreConfiguration.asyncExecutorThreads == currentThreads && CoreConfiguration.asyncExecutorQueueLimit == currentQueueLimit;
+    }
+
+    public static ExecutorService getExecutor() {
+        ExecutorService result = executor;
+        if (result != null && isUpToDate()) {
+            return result;
+        }
+        synchronized (AsyncExecutor.class) {
+            if (executor != null && isUpToDate()) {
+                return executor;
+            }
+            ExecutorService old = executor;
+            Mode mode = getConfiguredMode();
+            if (!mode.name().equals(CoreUtilities.toUpperCase(CoreConfiguration.asyncExecutorMode))) {
+                Debug.echoError("Invalid async executor mode '" + CoreConfiguration.asyncExecutorMode + "', must be CACHED, BOUNDED, or VIRTUAL. Using CACHED.");
+            }
+            String modeSetting = CoreConfiguration.asyncExecutorMode;
+            result = buildExecutor(mode);
+            appliedModeSetting = modeSetting;
+            executor = result;
+            if (old != null) {
+                old.shutdown();
+            }
+            return result;
+        }
+    }
+
+    public static synchronized ExecutorService getOverflowExecutor() {
+        if (overflowExecutor == null) {
+            overflowExecutor = Executors.newSingleThreadExecutor(namedThreadFactory("Denizen-Async-Overflow-"));
+        }
+        return overflowExecutor;
+    }
+
+    public static ThreadFactory namedThreadFactory(String prefix) {
+        return (run) -> {
+            Thread thread = new Thread(run, prefix + threadCounter.incrementAndGet());
+            thread.setDaemon(false);
+            return thread;
+        };
+    }
+
+    public static ExecutorService buildExecutor(Mode mode) {
+        currentMode = mode;
+        currentThreads = CoreConfiguration.asyncExecutorThreads;
+        currentQueueLimit = CoreConfiguration.asyncExecutorQueueLimit;
+        if (mode == Mode.VIRTUAL) {
+            ExecutorService virtual = tryBuildVirtualExecutor();
+            if (virtual != null) {
+                return virtual;
+            }
+            Debug.echoError("Virtual threads are not available on this Java version (" + System.getProperty("java.version") + "), using a cached thread pool instead.");
+            currentMode = Mode.CACHED;
+        }
+        if (currentMode == Mode.BOUNDED) {
+            int threads = Math.max(1, currentThreads);
+            BlockingQueue<Runnable> queue = currentQueueLimit > 0 ? new LinkedBlockingQueue<>(currentQueueLimit) : new LinkedBlockingQueue<>();
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS, queue, namedThreadFactory("Denizen-Async-"), new ThreadPoolExecutor.AbortPolicy());
+            pool.allowCoreThreadTimeOut(true);
+            return pool;
+        }
+        return new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS, new SynchronousQueue<>(), namedThreadFactory("Denizen-Async-"));
+    }
+
+    /**
+     * Builds a named virtual-thread-per-task executor via reflection (as the core is compiled against an older Java version), or returns null if unsupported.
+     */
+    public static ExecutorService tryBuildVirtualExecutor() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, "Denizen-Async-Virtual-", 0L);
+            ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            Method perTask = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) perTask.invoke(null, factory);
+        }
+        catch (Throwable ex) {
+            return null;
+        }
+    }
+
+    public static MapTag getStats() {
+        MapTag map = new MapTag();
+        long completed = completedTasks.get();
+        map.putObject("mode", new ElementTag(currentMode == null ? getConfiguredMode() : currentMode));
+        map.putObject("active_tasks", new ElementTag(activeTasks.get()));
+        map.putObject("queued_tasks", new ElementTag(queuedTasks.get()));
+        map.putObject("pool_threads", new ElementTag(executor instanceof ThreadPoolExecutor ? ((ThreadPoolExecutor) executor).getPoolSize() : activeTasks.get()));
+        map.putObject("completed_tasks", new ElementTag(completed));
+        map.putObject("rejected_tasks", new ElementTag(rejectedTasks.get()));
+        map.putObject("overflow_tasks", new ElementTag(overflowTasks.get()));
+        map.putObject("average_wait", new DurationTag(completed == 0 ? 0 : totalWaitNanos.get() / (double) completed / 1_000_000_000.0));
+        map.putObject("max_wait", new DurationTag(maxWaitNanos.get() / 1_000_000_000.0));
+        map.putObject("average_run", new DurationTag(completed == 0 ? 0 : totalRunNanos.get() / (double) completed / 1_000_000_000.0));
+        return map;
+    }
+}
@@ -1,11 +1,12 @@
 package com.denizenscript.denizencore.utilities.scheduling;
 
+import com.denizenscript.denizencore.DenizenCore;
+
 import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
 
 public class AsyncSchedulable extends Schedulable {
 
-    public static final Executor executor = Executors.newCachedThreadPool();
+    public static final Executor executor = AsyncExecutor::execute;
     protected final Schedulable schedulable;
 
     public AsyncSchedulable(Schedulable schedulable) {
@@ -14,6 +15,15 @@ public class AsyncSchedulable extends Schedulable {
         this.schedulable.run = () -> {
             executor.execute(runnable);
         };
+        schedulable.wrapper = this;
+        secondsLeft = schedulable.secondsLeft;
+    }
+
+    @Override
+    public void cancel() {
+        schedulable.cancelled = true;
+        cancelled = true;
+        DenizenCore.unschedule(this);
     }
 
     @Override
@@ -23,6 +33,8 @@ public class AsyncSchedulable extends Schedulable {
 
     @Override
     public boolean tick(float seconds) {
-        return this.schedulable.tick(seconds);
+        boolean result = this.schedulable.tick(seconds);
+        secondsLeft = schedulable.secondsLeft;
+        return result;
     }
 }
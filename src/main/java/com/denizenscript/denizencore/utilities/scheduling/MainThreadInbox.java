@@ -0,0 +1,132 @@
+package com.denizenscript.denizencore.utilities.scheduling;
+
+import com.denizenscript.denizencore.objects.core.ElementTag;
+import com.denizenscript.denizencore.objects.core.MapTag;
+import com.denizenscript.denizencore.utilities.debugging.Debug;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A lock-free multi-producer single-consumer inbox of tasks to run on the main thread.
+ * Any thread may 'add' to it, and the main thread 'drain's it once per tick.
+ */
+public class MainThreadInbox {
+
+    private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger backlog = new AtomicInteger();
+
+    private final AtomicLong totalEnqueued = new AtomicLong();
+
+    private final AtomicInteger backlogHighWater = new AtomicInteger();
+
+    public long totalDrained = 0;
+
+    public int lastTickDrained = 0;
+
+    public int currentTickDrained = 0;
+
+    public int maxTickDrained = 0;
+
+    public long enqueuedLastSecond = 0;
+
+    private long enqueuedAtLastSecond = 0;
+
+    /**
+     * Adds a task to be run on the main thread during the next drain. Safe to call from any thread.
+     */
+    public void add(Runnable task) {
+        tasks.add(task);
+        totalEnqueued.incrementAndGet();
+        int size = backlog.incrementAndGet();
+        if (size > backlogHighWater.get()) {
+            backlogHighWater.accumulateAndGet(size, Math::max);
+        }
+    }
+
+    /**
+     * Runs up to 'limit' queued tasks (or all of them if the limit is 0 or less), in the order they were added, then ends the tick.
+     * Returns how many tasks were run. Must only be called from the main thread.
+     */
+    public int drain(int limit) {
+        while ((limit <= 0 || currentTickDrained < limit) && runNext()) {
+        }
+        int drained = currentTickDrained;
+        endTick();
+        return drained;
+    }
+
+    /**
+     * Runs the next queued task, if any. Returns false if there was nothing to run. Must only be called from the main thread.
+     */
+    public boolean runNext() {
+        Runnable task = tasks.poll();
+        if (task == null) {
+            return false;
+        }
+        backlog.decrementAndGet();
+        currentTickDrained++;
+        try {
+            task.run();
+        }
+        catch (Throwable ex) {
+            Debug.echoError("DenizenCore - Main thread task failed");
+            Debug.echoError(ex);
+        }
+        return true;
+    }
+
+    /**
+     * Records the per-tick stats for the tasks ran since the last call.
+     */
+    public void endTick() {
+        lastTickDrained = currentTickDrained;
+        if (currentTickDrained > maxTickDrained) {
+            maxTickDrained = currentTickDrained;
+        }
+        totalDrained += currentTickDrained;
+        currentTickDrained = 0;
+    }
+
+    /**
+     * Returns true if there are no tasks waiting.
+     */
+    public boolean isEmpty() {
+        return tasks.isEmpty();
+    }
+
+    public int getBacklog() {
+        return backlog.get();
+    }
+
+    public int getBacklogHighWater() {
+        return backlogHighWater.get();
+    }
+
+    public long getTotalEnqueued() {
+        return totalEnqueued.get();
+    }
+
+    /**
+     * Called once per second to update the enqueue rate.
+     */
+    public void updateRate() {
+        long total = totalEnqueued.get();
+        enqueuedLastSecond = total - enqueuedAtLastSecond;
+        enqueuedAtLastSecond = total;
+    }
+
+    public MapTag getStats() {
+        MapTag map = new MapTag();
+        map.putObject("backlog", new ElementTag(getBacklog()));
+        map.putObject("backlog_high_water", new ElementTag(getBacklogHighWater()));
+        map.putObject("total_enqueued", new ElementTag(getTotalEnqueued()));
+        map.putObject("enqueued_last_second", new ElementTag(enqueuedLastSecond));
+        map.putObject("total_drained", new ElementTag(totalDrained));
+        map.putObject("last_tick_drained", new ElementTag(lastTickDrained));
+        map.putObject("max_tick_drained", new ElementTag(maxTickDrained));
+        return map;
+    }
+}
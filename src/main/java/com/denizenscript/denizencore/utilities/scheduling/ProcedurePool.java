@@ -0,0 +1,229 @@
+package com.denizenscript.denizencore.utilities.scheduling;
+
+import com.denizenscript.denizencore.DenizenCore;
+import com.denizenscript.denizencore.objects.ObjectTag;
+import com.denizenscript.denizencore.objects.core.ElementTag;
+import com.denizenscript.denizencore.objects.core.MapTag;
+import com.denizenscript.denizencore.scripts.ScriptBuilder;
+import com.denizenscript.denizencore.scripts.ScriptEntry;
+import com.denizenscript.denizencore.scripts.ScriptEntryData;
+import com.denizenscript.denizencore.scripts.ScriptEntrySet;
+import com.denizenscript.denizencore.scripts.commands.BracedCommand;
+import com.denizenscript.denizencore.scripts.containers.ScriptContainer;
+import com.denizenscript.denizencore.tags.TagWatchdog;
+import com.denizenscript.denizencore.utilities.CoreConfiguration;
+import com.denizenscript.denizencore.utilities.debugging.Debug;
+
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Runs a pure function (generally a procedure script) over many inputs at once, spread over a pool of worker threads (CoreConfiguration.parallelProcedureThreads).
+ * The calling thread blocks until every input is done, working through inputs itself as well, so workers never run alongside other main thread logic.
+ * Every input is duplicated on the calling thread before any work starts, so workers never share mutable objects with each other or with the caller.
+ * Script entries should be prepared with 'prepareEntries' first, so that workers never race to build shared entry state (such as braced command bodies).
+ * Workers also run their own copy of every script entry set (see 'getWorkerCopy'), as entries keep per-run state (such as their parsed arguments) internally.
+ * The first input also still runs alone on the calling thread, to warm up any other lazily built state (such as tag parses).
+ * Workers keep their own current queue, context and tag error state (see CommandExecutor.getCurrentQueue), and are held to the caller's tag time limit (see TagWatchdog).
+ * Calls made from a worker thread (ie nested parallel calls) just run in order on that thread.
+ */
+public class ProcedurePool {
+
+    public static class WorkerThread extends Thread {
+
+        public WorkerThread(Runnable run, String name) {
+            super(run, name);
+        }
+    }
+
+    public static ExecutorService executor;
+
+    public static int currentThreads;
+
+    public static final AtomicInteger threadCounter = new AtomicInteger();
+
+    public static final AtomicLong totalBatches = new AtomicLong(), totalCalls = new AtomicLong(), totalWorkerCalls = new AtomicLong();
+
+    public static boolean isWorkerThread() {
+        return Thread.currentThread() instanceof WorkerThread;
+    }
+
+    /**
+     * Returns the worker pool, (re)building it first if the configuration changed, or null if parallel procedures are disabled.
+     */
+    public static synchronized ExecutorService getExecutor() {
+        int threads = CoreConfiguration.parallelProcedureThreads;
+        if (threads <= 0) {
+            return null;
+        }
+        if (executor != null && threads == currentThreads) {
+            return executor;
+        }
+        ExecutorService old = executor;
+        currentThreads = threads;
+        executor = Executors.newFixedThreadPool(threads, (run) -> {
+            WorkerThread thread = new WorkerThread(run, "Denizen-Procedure-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (old != null) {
+            old.shutdown();
+        }
+        return executor;
+    }
+
+    /**
+     * Builds the shared state of every given entry (and of the entries within their braced sections), see AbstractCommand.prepareShared.
+     * Only the given entries are covered: anything they call into (such as another procedure) still builds its state lazily.
+     */
+    public static void prepareEntries(List<ScriptEntry> entries, ScriptEntryData data) {
+        for (ScriptEntry template : entries) {
+            ScriptEntry entry = template.createFrame(data);
+            if (entry.internal.actualCommand != null) {
+                entry.internal.actualCommand.prepareShared(entry);
+            }
+            if (entry.getInsideList() != null) {
+                List<ScriptEntry> inside = BracedCommand.getBracedTemplates(entry);
+                if (inside != null) {
+                    prepareEntries(inside, data);
+                }
+            }
+        }
+    }
+
+    /**
+     * Per-worker copies of shared entry sets, keyed by the shared set they copy (so reloaded scripts drop their old copies).
+     */
+    private static final ThreadLocal<Map<ScriptEntrySet, ScriptEntrySet>> workerSets = ThreadLocal.withInitial(WeakHashMap::new);
+
+    /**
+     * Returns the current worker thread's own copy of the given shared entry set, building and preparing it on first use.
+     */
+    public static ScriptEntrySet getWorkerCopy(ScriptContainer container, String path, ScriptEntrySet shared) {
+        if (shared == null) {
+            return null;
+        }
+        Map<ScriptEntrySet, ScriptEntrySet> sets = workerSets.get();
+        ScriptEntrySet copy = sets.get(shared);
+        if (copy != null) {
+            return copy;
+        }
+        List<ScriptEntry> entries = ScriptBuilder.buildScriptEntries(container.getContents().getList(path), container, null);
+        if (entries == null) {
+            return shared;
+        }
+        prepareEntries(entries, DenizenCore.implementation.getEmptyScriptEntryData());
+        copy = new ScriptEntrySet(entries);
+        sets.put(shared, copy);
+        return copy;
+    }
+
+    /**
+     * Runs the function over (a duplicate of) every input, returning the results in the same order.
+     * Results are null for any input that the function returned null for or threw an exception on.
+     * Exceptions are reported once on the calling thread (the first one in input order, with a count of how many inputs failed).
+     */
+    public static ObjectTag[] map(List<ObjectTag> inputs, Function<ObjectTag, ObjectTag> function) {
+        int count = inputs.size();
+        ObjectTag[] results = new ObjectTag[count];
+        if (count == 0) {
+            return results;
+        }
+        totalBatches.incrementAndGet();
+        totalCalls.addAndGet(count);
+        ObjectTag[] snapshots = new ObjectTag[count];
+        for (int i = 0; i < count; i++) {
+            snapshots[i] = inputs.get(i).duplicate();
+        }
+        Throwable[] errors = new Throwable[count];
+        AtomicInteger nextIndex = new AtomicInteger(0);
+        TagWatchdog.Watch callerWatch = TagWatchdog.getWatch();
+        Runnable work = () -> {
+            boolean isWorker = isWorkerThread();
+            TagWatchdog.Watch ownWatch = isWorker ? TagWatchdog.getWatch() : null;
+            if (isWorker) {
+                TagWatchdog.setWatch(callerWatch);
+            }
+            try {
+                int index;
+                while ((index = nextIndex.getAndIncrement()) < count) {
+                    try {
+                        results[index] = function.apply(snapshots[index]);
+                    }
+                    catch (Throwable ex) {
+                        errors[index] = ex;
+                    }
+                    if (isWorker) {
+                        totalWorkerCalls.incrementAndGet();
+                    }
+                }
+            }
+            finally {
+                if (isWorker) {
+                    TagWatchdog.setWatch(ownWatch);
+                }
+            }
+        };
+        ExecutorService service = count > 1 && !isWorkerThread() ? getExecutor() : null;
+        if (service == null) {
+            work.run();
+        }
+        else {
+            try {
+                results[0] = function.apply(snapshots[0]);
+            }
+            catch (Throwable ex) {
+                errors[0] = ex;
+            }
+            nextIndex.set(1);
+            int helpers = Math.min(currentThreads, count - 2);
+            Future<?>[] futures = new Future<?>[helpers];
+            for (int i = 0; i < helpers; i++) {
+                futures[i] = service.submit(work);
+            }
+            work.run();
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                }
+                catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                catch (ExecutionException ex) {
+                    Debug.echoError(ex.getCause());
+                }
+            }
+        }
+        Throwable firstError = null;
+        int failed = 0;
+        for (Throwable error : errors) {
+            if (error != null) {
+                if (firstError == null) {
+                    firstError = error;
+                }
+                failed++;
+            }
+        }
+        if (firstError != null) {
+            if (failed > 1) {
+                Debug.echoError(failed + " of " + count + " parallel calls failed, the first error was:");
+            }
+            Debug.echoError(firstError);
+        }
+        return results;
+    }
+
+    public static MapTag getStats() {
+        MapTag map = new MapTag();
+        map.putObject("threads", new ElementTag(CoreConfiguration.parallelProcedureThreads));
+        map.putObject("total_batches", new ElementTag(totalBatches.get()));
+        map.putObject("total_calls", new ElementTag(totalCalls.get()));
+        map.putObject("total_worker_calls", new ElementTag(totalWorkerCalls.get()));
+        return map;
+    }
+}
@@ -1,13 +1,36 @@
 package com.denizenscript.denizencore.utilities.scheduling;
 
+import com.denizenscript.denizencore.DenizenCore;
+
 public abstract class Schedulable {
 
     public Runnable run;
     public boolean cancelled;
     public float secondsLeft;
 
+    /**
+     * The DenizenCore.serverTimeMillis value this was last ticked (or scheduled) at, used to calculate the seconds passed into 'tick'.
+     */
+    public long lastTickTime;
+
+    /**
+     * The scheduler entry for this, if it's currently scheduled. Managed by DenizenCore.
+     */
+    public TimingWheel.Entry<Schedulable> scheduledEntry;
+
+    /**
+     * The schedulable that wraps this one in the scheduler (eg an AsyncSchedulable), if any.
+     */
+    public Schedulable wrapper;
+
     public void cancel() {
         cancelled = true;
+        if (wrapper != null) {
+            wrapper.cancel();
+        }
+        else {
+            DenizenCore.unschedule(this);
+        }
     }
 
     public boolean isSync() {
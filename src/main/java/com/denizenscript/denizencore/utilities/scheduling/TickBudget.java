@@ -0,0 +1,154 @@
+package com.denizenscript.denizencore.utilities.scheduling;
+
+import com.denizenscript.denizencore.objects.core.DurationTag;
+import com.denizenscript.denizencore.objects.core.ElementTag;
+import com.denizenscript.denizencore.objects.core.MapTag;
+
+import java.util.function.BooleanSupplier;
+import java.util.function.IntSupplier;
+
+/**
+ * Helper for the optional per-tick time budget (CoreConfiguration.tickBudgetMillis).
+ * Deferrable work sources are serviced one unit at a time in round-robin order until the budget runs out,
+ * and anything left over carries over to the next tick. The source that goes first rotates every tick.
+ */
+public class TickBudget {
+
+    public static class WorkSource {
+
+        public final String name;
+
+        /**
+         * Runs one unit of work, returning false if there was nothing left to run this tick.
+         */
+        public final BooleanSupplier runOne;
+
+        /**
+         * Returns how many units of work are still waiting.
+         */
+        public final IntSupplier remaining;
+
+        public int lastTickRan, lastTickDeferred;
+
+        public long totalRan, totalDeferred;
+
+        public WorkSource(String name, BooleanSupplier runOne, IntSupplier remaining) {
+            this.name = name;
+            this.runOne = runOne;
+            this.remaining = remaining;
+        }
+    }
+
+    public final WorkSource[] sources;
+
+    private final boolean[] sourceDone;
+
+    public long budgetNanos, tickStartNanos;
+
+    public int startIndex = 0;
+
+    public long ticks, overrunTicks, totalOverrunNanos;
+
+    public long lastTickNanos, lastOverrunNanos, maxOverrunNanos;
+
+    public boolean lastTickOverran;
+
+    public TickBudget(WorkSource... sources) {
+        this.sources = sources;
+        this.sourceDone = new boolean[sources.length];
+    }
+
+    /**
+     * Starts tracking a tick with the given budget (in milliseconds). Returns true if the budget is enabled (above zero).
+     */
+    public boolean startTick(long budgetMillis) {
+        if (budgetMillis <= 0) {
+            budgetNanos = 0;
+            return false;
+        }
+        budgetNanos = budgetMillis * 1_000_000L;
+        tickStartNanos = System.nanoTime();
+        return true;
+    }
+
+    public boolean hasTimeLeft() {
+        return System.nanoTime() - tickStartNanos < budgetNanos;
+    }
+
+    /**
+     * Runs work from all sources in round-robin order until either all are out of work or the budget runs out.
+     * Every source always gets at least one unit of work per tick, so that nothing is fully starved when the non-deferrable part of a tick is over budget.
+     */
+    public void runDeferred() {
+        int count = sources.length;
+        for (int i = 0; i < count; i++) {
+            sourceDone[i] = false;
+            sources[i].lastTickRan = 0;
+        }
+        int active = count;
+        boolean firstRound = true;
+        boolean outOfTime = false;
+        while (active > 0 && !outOfTime) {
+            for (int k = 0; k < count; k++) {
+                int i = (startIndex + k) % count;
+                if (sourceDone[i]) {
+                    continue;
+                }
+                if (!firstRound && !hasTimeLeft()) {
+                    outOfTime = true;
+                    break;
+                }
+                WorkSource source = sources[i];
+                if (source.runOne.getAsBoolean()) {
+                    source.lastTickRan++;
+                }
+                else {
+                    sourceDone[i] = true;
+                    active--;
+                }
+            }
+            firstRound = false;
+        }
+        startIndex = (startIndex + 1) % count;
+        ticks++;
+        lastTickOverran = false;
+        for (WorkSource source : sources) {
+            source.totalRan += source.lastTickRan;
+            source.lastTickDeferred = outOfTime ? source.remaining.getAsInt() : 0;
+            source.totalDeferred += source.lastTickDeferred;
+            if (source.lastTickDeferred > 0) {
+                lastTickOverran = true;
+            }
+        }
+        lastTickNanos = System.nanoTime() - tickStartNanos;
+        lastOverrunNanos = Math.max(0, lastTickNanos - budgetNanos);
+        if (lastTickOverran) {
+            overrunTicks++;
+        }
+        totalOverrunNanos += lastOverrunNanos;
+        maxOverrunNanos = Math.max(maxOverrunNanos, lastOverrunNanos);
+    }
+
+    public MapTag getStats() {
+        MapTag map = new MapTag();
+        map.putObject("budget", new DurationTag(budgetNanos / 1_000_000_000.0));
+        map.putObject("budgeted_ticks", new ElementTag(ticks));
+        map.putObject("overrun_ticks", new ElementTag(overrunTicks));
+        map.putObject("last_tick_overran", new ElementTag(lastTickOverran));
+        map.putObject("last_tick_time", new DurationTag(lastTickNanos / 1_000_000_000.0));
+        map.putObject("last_overrun_time", new DurationTag(lastOverrunNanos / 1_000_000_000.0));
+        map.putObject("max_overrun_time", new DurationTag(maxOverrunNanos / 1_000_000_000.0));
+        map.putObject("total_overrun_time", new DurationTag(totalOverrunNanos / 1_000_000_000.0));
+        MapTag sourceMap = new MapTag();
+        for (WorkSource source : sources) {
+            MapTag sourceStats = new MapTag();
+            sourceStats.putObject("last_tick_ran", new ElementTag(source.lastTickRan));
+            sourceStats.putObject("last_tick_deferred", new ElementTag(source.lastTickDeferred));
+            sourceStats.putObject("total_ran", new ElementTag(source.totalRan));
+            sourceStats.putObject("total_deferred", new ElementTag(source.totalDeferred));
+            sourceMap.putObject(source.name, sourceStats);
+        }
+        map.putObject("sources", sourceMap);
+        return map;
+    }
+}
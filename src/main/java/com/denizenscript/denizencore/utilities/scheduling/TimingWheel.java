@@ -0,0 +1,218 @@
+package com.denizenscript.denizencore.utilities.scheduling;
+
+import java.util.List;
+
+/**
+ * A hierarchical timing wheel, keyed on millisecond timestamps (generally DenizenCore.serverTimeMillis).
+ * Adding and removing an entry is O(1), and advancing the wheel only touches the entries that are due (plus an occasional cascade of a higher level slot).
+ * Not thread safe: callers must synchronize externally if needed.
+ */
+public class TimingWheel<T> {
+
+    public static final int SLOT_BITS = 6, SLOT_COUNT = 1 << SLOT_BITS, SLOT_MASK = SLOT_COUNT - 1, LEVELS = 6;
+
+    /**
+     * Maximum distance (in ms) an entry can be placed from the current time. Entries beyond this are parked at the outermost level and re-placed when reached.
+     */
+    public static final long MAX_SPAN = (1L << (SLOT_BITS * LEVELS)) - 1;
+
+    public static class Entry<T> {
+
+        public final T value;
+
+        public final long time;
+
+        public boolean cancelled;
+
+        Entry<T> next, prev;
+
+        /**
+         * The level and slot the entry is in, or -1 if it isn't in the wheel (ie it was removed or returned as due).
+         */
+        int level = -1, slot;
+
+        Entry(T value, long time) {
+            this.value = value;
+            this.time = time;
+        }
+
+        /**
+         * Marks the entry as cancelled. It will be silently dropped when its slot is reached.
+         * Use 'TimingWheel.remove' instead to drop it immediately.
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isInWheel() {
+            return level != -1;
+        }
+    }
+
+    private final Entry<T>[][] heads, tails;
+
+    /**
+     * The next millisecond that has not yet been processed.
+     */
+    private long nextTime;
+
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    public TimingWheel(long startTime) {
+        heads = (Entry<T>[][]) new Entry<?>[LEVELS][SLOT_COUNT];
+        tails = (Entry<T>[][]) new Entry<?>[LEVELS][SLOT_COUNT];
+        nextTime = startTime + 1;
+    }
+
+    /**
+     * Returns the most recent time the wheel has been advanced to.
+     */
+    public long getCurrentTime() {
+        return nextTime - 1;
+    }
+
+    /**
+     * Returns the number of entries held, including cancelled entries that haven't been dropped yet.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Adds a value due at the given time. If the time has already passed, it will be due on the next advance.
+     */
+    public Entry<T> add(T value, long time) {
+        Entry<T> entry = new Entry<>(value, time);
+        size++;
+        place(entry);
+        return entry;
+    }
+
+    private void place(Entry<T> entry) {
+        long time = entry.time;
+        long delta = time - nextTime;
+        if (delta < 0) {
+            time = nextTime;
+            delta = 0;
+        }
+        else if (delta > MAX_SPAN) {
+            time = nextTime + MAX_SPAN;
+            delta = MAX_SPAN;
+        }
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= (1L << (SLOT_BITS * (level + 1)))) {
+            level++;
+        }
+        int slot = (int) ((time >> (SLOT_BITS * level)) & SLOT_MASK);
+        entry.level = level;
+        entry.slot = slot;
+        entry.next = null;
+        entry.prev = tails[level][slot];
+        if (entry.prev == null) {
+            heads[level][slot] = entry;
+        }
+        else {
+            entry.prev.next = entry;
+        }
+        tails[level][slot] = entry;
+    }
+
+    /**
+     * Removes an entry from the wheel, if it's still in it. Returns true if it was removed.
+     */
+    public boolean remove(Entry<T> entry) {
+        if (entry.level == -1) {
+            return false;
+        }
+        if (entry.prev == null) {
+            heads[entry.level][entry.slot] = entry.next;
+        }
+        else {
+            entry.prev.next = entry.next;
+        }
+        if (entry.next == null) {
+            tails[entry.level][entry.slot] = entry.prev;
+        }
+        else {
+            entry.next.prev = entry.prev;
+        }
+        entry.level = -1;
+        entry.next = null;
+        entry.prev = null;
+        size--;
+        return true;
+    }
+
+    /**
+     * Adds every value held (in no particular order) to the output list, not including cancelled entries.
+     */
+    public void collect(List<T> output) {
+        for (Entry<T>[] level : heads) {
+            for (Entry<T> entry : level) {
+                for (; entry != null; entry = entry.next) {
+                    if (!entry.cancelled) {
+                        output.add(entry.value);
+                    }
+                }
+            }
+        }
+    }
+
+    private Entry<T> takeSlot(int level, int slot) {
+        Entry<T> entry = heads[level][slot];
+        heads[level][slot] = null;
+        tails[level][slot] = null;
+        for (Entry<T> taken = entry; taken != null; taken = taken.next) {
+            taken.level = -1;
+        }
+        return entry;
+    }
+
+    private void cascade() {
+        for (int level = 1; level < LEVELS; level++) {
+            int slot = (int) ((nextTime >> (SLOT_BITS * level)) & SLOT_MASK);
+            Entry<T> entry = takeSlot(level, slot);
+            while (entry != null) {
+                Entry<T> next = entry.next;
+                place(entry);
+                entry = next;
+            }
+            if (slot != 0) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Advances the wheel up to (and including) the given time, adding every non-cancelled due value to the output list in due-time order.
+     */
+    public void advance(long time, List<T> output) {
+        while (nextTime <= time) {
+            if (size == 0) {
+                nextTime = time + 1;
+                return;
+            }
+            int slot = (int) (nextTime & SLOT_MASK);
+            if (slot == 0) {
+                cascade();
+            }
+            Entry<T> entry = takeSlot(0, slot);
+            while (entry != null) {
+                Entry<T> next = entry.next;
+                if (entry.cancelled) {
+                    size--;
+                }
+                else if (entry.time > nextTime) {
+                    place(entry);
+                }
+                else {
+                    size--;
+                    output.add(entry.value);
+                }
+                entry = next;
+            }
+            nextTime++;
+        }
+    }
+}
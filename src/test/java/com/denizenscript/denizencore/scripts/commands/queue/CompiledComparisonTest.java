@@ -0,0 +1,177 @@
+package com.denizenscript.denizencore.scripts.commands.queue;
+
+import com.denizenscript.denizencore.DenizenCore;
+import com.denizenscript.denizencore.DenizenImplementation;
+import com.denizenscript.denizencore.objects.ObjectFetcher;
+import com.denizenscript.denizencore.objects.ObjectTag;
+import com.denizenscript.denizencore.scripts.ScriptEntry;
+import com.denizenscript.denizencore.scripts.ScriptEntryData;
+import com.denizenscript.denizencore.scripts.queues.core.InstantQueue;
+import com.denizenscript.denizencore.tags.TagContext;
+import com.denizenscript.denizencore.tags.TagManager;
+import com.denizenscript.denizencore.utilities.CoreUtilities;
+import com.denizenscript.denizencore.utilities.YamlConfiguration;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompiledComparisonTest {
+
+    public static class TestEntryData extends ScriptEntryData {
+
+        @Override
+        public void transferDataFrom(ScriptEntryData data) {
+        }
+
+        @Override
+        public TagContext getTagContext() {
+            return makeContext(null);
+        }
+
+        @Override
+        public YamlConfiguration save() {
+            return null;
+        }
+
+        @Override
+        public void load(YamlConfiguration config) {
+        }
+    }
+
+    public static TagContext makeContext(ScriptEntry entry) {
+        return new TagContext(false, entry, null) {
+            @Override
+            public ScriptEntryData getScriptEntryData() {
+                return new TestEntryData();
+            }
+        };
+    }
+
+    @BeforeAll
+    public static void setUp() {
+        // Only the parts of the implementation that tags and commands touch are needed, everything else just returns a default value
+        DenizenCore.implementation = (DenizenImplementation) Proxy.newProxyInstance(CompiledComparisonTest.class.getClassLoader(), new Class<?>[] { DenizenImplementation.class }, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getTagContext":
+                    return makeContext(args[0] instanceof ScriptEntry ? (ScriptEntry) args[0] : null);
+                case "getEmptyScriptEntryData":
+                    return new TestEntryData();
+                case "applyDebugColors":
+                case "stripColor":
+                case "cleanseLogString":
+                    return args[0];
+            }
+            Class<?> type = method.getReturnType();
+            if (type == boolean.class) {
+                return false;
+            }
+            else if (type == int.class) {
+                return 0;
+            }
+            else if (type == long.class) {
+                return 0L;
+            }
+            else if (type == double.class) {
+                return 0.0;
+            }
+            else if (type == float.class) {
+                return 0f;
+            }
+            return null;
+        });
+        ObjectFetcher.registerCoreObjects();
+        TagManager.registerCoreTags();
+        DenizenCore.commandRegistry.registerCoreCommands();
+        CoreUtilities.basicContext = makeContext(null);
+        CoreUtilities.noDebugContext = makeContext(null);
+    }
+
+    public static final String[] COMPARISONS = {
+            "true",
+            "false",
+            "!true",
+            "!false",
+            "",
+            "abc",
+            "<element[true]>",
+            "!<element[false]>",
+            "5 == 5",
+            "5 == 5.0",
+            "5 == 6",
+            "abc == ABC",
+            "abc != abd",
+            "3 < 10",
+            "10 < 3",
+            "3 <= 3",
+            "3 > 2",
+            "3 >= 4",
+            "abc < 4",
+            "<element[5].add[1]> > 5",
+            "<element[abc]> == abc",
+            "<element[abc]> != abc",
+            "1 == 1 && 2 == 3",
+            "1 == 1 || 2 == 3",
+            "1 == 2 || 2 == 2 && 3 == 3",
+            "1 == 2 or 2 == 2 and 3 == 3",
+            "( 1 == 1 ) && ( 2 == 3 )",
+            "!( 1 == 2 ) && ( ( 2 == 2 ) || false )",
+            "( 1 == 1",
+            "1 == 1 )",
+            "a|b|c contains b",
+            "a|b|c contains d",
+            "<list[a|b|c]> contains c",
+            "a|b|c !contains d",
+            "abc matches a*",
+            "abc matches b*",
+            "abc !matches b*",
+            "5 == 5 5",
+            "5 === 5",
+    };
+
+    public static List<String> split(String comparison) {
+        return comparison.isEmpty() ? new ArrayList<>() : new ArrayList<>(Arrays.asList(comparison.split(" ")));
+    }
+
+    @Test
+    public void matchesArgComparer() {
+        for (String comparison : COMPARISONS) {
+            ScriptEntry entry = new ScriptEntry("if", split(comparison).toArray(new String[0]), null);
+            boolean expected = new IfCommand.ArgComparer().compare(split(comparison), entry);
+            CompiledComparison compiled = CompiledComparison.compile(split(comparison), entry);
+            assertEquals(expected, compiled.test(entry), "compiled result differs for '" + comparison + "'");
+            assertEquals(expected, compiled.test(entry), "compiled result differs when ran again for '" + comparison + "'");
+        }
+    }
+
+    @Test
+    public void cachedPerEntry() {
+        ScriptEntry entry = new ScriptEntry("if", new String[] { "1", "==", "1" }, null);
+        CompiledComparison first = CompiledComparison.getFor(entry, split("1 == 1"));
+        assertSame(first, CompiledComparison.getFor(entry, split("1 == 1")));
+        assertTrue(first.test(entry));
+    }
+
+    public static String runLegacyIf(String arguments) {
+        ScriptEntry entry = new ScriptEntry("if", arguments.split(" "), null);
+        InstantQueue queue = new InstantQueue("CompiledComparisonTest");
+        queue.addEntries(Collections.singletonList(entry));
+        queue.start();
+        ObjectTag result = queue.getDefinitionObject("result");
+        return result == null ? null : result.toString();
+    }
+
+    @Test
+    public void legacyElseIfBranches() {
+        assertEquals("two", runLegacyIf("1 == 2 { - define result one } else if 2 == 2 { - define result two }"));
+        assertEquals("three", runLegacyIf("1 == 2 { - define result one } else if 1 == 3 { - define result two } else if 3 == 3 { - define result three } else { - define result four }"));
+        assertEquals("four", runLegacyIf("1 == 2 { - define result one } else if 1 == 3 { - define result two } else { - define result four }"));
+        assertEquals("one", runLegacyIf("1 == 1 { - define result one } else if 2 == 2 { - define result two }"));
+    }
+}
@@ -0,0 +1,92 @@
+package com.denizenscript.denizencore.scripts.commands.queue;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RunLaterCommandTest {
+
+    @TempDir
+    public Path directory;
+
+    public static final String LEGACY_FILE = "run_0:\n"
+            + "  execute_at: '99999999999999'\n"
+            + "  script_name: test\n"
+            + "  id: abc\n"
+            + "  entry_data: {}\n"
+            + "run_1:\n"
+            + "  execute_at: '99999999999990'\n"
+            + "  script_name: test2\n"
+            + "  entry_data: {}\n";
+
+    @AfterEach
+    public void finishWrites() {
+        if (RunLaterCommand.journal != null) {
+            RunLaterCommand.journal.drain();
+            RunLaterCommand.journal = null;
+        }
+    }
+
+    public String writeLegacyFile() throws IOException {
+        Path legacy = directory.resolve("runlater.yml");
+        Files.write(legacy, LEGACY_FILE.getBytes(StandardCharsets.UTF_8));
+        return legacy.toString();
+    }
+
+    public static void assertRunsLoaded() {
+        assertEquals(2, RunLaterCommand.getLiveCount());
+        assertTrue(RunLaterCommand.trackedById.containsKey("abc"), "run ID was lost");
+        assertEquals(99999999999990L, RunLaterCommand.futureRuns.peek().executeAt, "runs are out of order");
+    }
+
+    @Test
+    public void legacyFileMigratesToJournal() throws IOException {
+        String path = writeLegacyFile();
+        RunLaterCommand.init(path);
+        assertRunsLoaded();
+        assertFalse(RunLaterCommand.legacyMigrationPending, "migration wasn't confirmed");
+        assertFalse(Files.exists(directory.resolve("runlater.yml")), "legacy file should be moved aside");
+        assertTrue(Files.exists(directory.resolve("runlater.yml.bak")), "legacy file should be kept as a backup");
+        assertTrue(Files.exists(directory.resolve("runlater.yml.journal")));
+    }
+
+    @Test
+    public void migratedJournalReloads() throws IOException {
+        String path = writeLegacyFile();
+        RunLaterCommand.init(path);
+        RunLaterCommand.init(path);
+        assertRunsLoaded();
+        assertFalse(RunLaterCommand.legacyMigrationPending);
+    }
+
+    @Test
+    public void changesAfterMigrationAreJournaled() throws IOException {
+        String path = writeLegacyFile();
+        RunLaterCommand.init(path);
+        assertTrue(RunLaterCommand.cancel("abc"));
+        RunLaterCommand.saveToFile(false);
+        RunLaterCommand.journal.drain();
+        RunLaterCommand.init(path);
+        assertEquals(1, RunLaterCommand.getLiveCount());
+        assertFalse(RunLaterCommand.trackedById.containsKey("abc"), "cancelled run came back");
+    }
+
+    @Test
+    public void journalTakesPriorityOverLegacyFile() throws IOException {
+        String path = writeLegacyFile();
+        RunLaterCommand.init(path);
+        assertTrue(RunLaterCommand.cancel("abc"));
+        RunLaterCommand.saveToFile(false);
+        RunLaterCommand.journal.drain();
+        writeLegacyFile();
+        RunLaterCommand.init(path);
+        assertEquals(1, RunLaterCommand.getLiveCount(), "a leftover legacy file shouldn't be loaded over the journal");
+    }
+}
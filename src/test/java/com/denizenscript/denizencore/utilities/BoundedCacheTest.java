@@ -0,0 +1,119 @@
+package com.denizenscript.denizencore.utilities;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.util.Collection;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BoundedCacheTest {
+
+    public BoundedCache<String, String> cache;
+
+    public int limit = 4;
+
+    public BoundedCache<String, String> makeCache(boolean weakKeys) {
+        cache = new BoundedCache<>("test", () -> limit, () -> weakKeys);
+        return cache;
+    }
+
+    @AfterEach
+    public void removeCache() {
+        BoundedCache.allCaches.remove(cache);
+    }
+
+    public static int clockSize(BoundedCache<?, ?> cache) throws ReflectiveOperationException {
+        Field clock = BoundedCache.class.getDeclaredField("clock");
+        clock.setAccessible(true);
+        return ((Collection<?>) clock.get(cache)).size();
+    }
+
+    @Test
+    public void staysWithinLimit() {
+        makeCache(false);
+        for (int i = 0; i < 100; i++) {
+            cache.put("key" + i, "value" + i);
+            assertTrue(cache.size() <= limit, "size " + cache.size() + " over limit");
+        }
+        assertEquals(limit, cache.size());
+        assertEquals(limit, cache.getWeight());
+        assertEquals("value99", cache.get("key99"));
+        assertNull(cache.get("key0"));
+        assertEquals(96, cache.evictions.sum());
+    }
+
+    @Test
+    public void recentlyReadEntriesGetSecondChance() {
+        makeCache(false);
+        for (int i = 0; i < limit; i++) {
+            cache.put("key" + i, "value" + i);
+        }
+        assertEquals("value0", cache.get("key0"));
+        cache.put("new", "value");
+        assertEquals("value0", cache.get("key0"), "read entry was evicted");
+        assertNull(cache.get("key1"), "oldest unread entry should be evicted first");
+    }
+
+    @Test
+    public void limitChangesApplyOnNextWrite() {
+        makeCache(false);
+        limit = 0;
+        for (int i = 0; i < 50; i++) {
+            cache.put("key" + i, "value" + i);
+        }
+        assertEquals(50, cache.size(), "a limit of 0 is unlimited");
+        limit = 10;
+        cache.put("last", "value");
+        assertEquals(10, cache.size());
+    }
+
+    @Test
+    public void weightedEntries() {
+        cache = new BoundedCache<>("test", () -> 10, () -> false, String::length);
+        cache.put("aaaa", "1");
+        cache.put("bbbb", "2");
+        assertEquals(8, cache.getWeight());
+        cache.put("ccc", "3");
+        assertEquals(7, cache.getWeight());
+        assertNull(cache.get("aaaa"));
+        assertEquals("3", cache.get("ccc"));
+    }
+
+    @Test
+    public void overwriteDoesNotGrowClock() throws ReflectiveOperationException {
+        makeCache(false);
+        for (int i = 0; i < 1000; i++) {
+            cache.put("same", "value" + i);
+        }
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.getWeight());
+        assertEquals("value999", cache.get("same"));
+        assertTrue(clockSize(cache) < 100, "clock kept " + clockSize(cache) + " replaced nodes");
+        for (int i = 0; i < 10; i++) {
+            cache.put("key" + i, "value" + i);
+        }
+        assertEquals(limit, cache.size());
+    }
+
+    @Test
+    public void clearEmptiesCache() throws ReflectiveOperationException {
+        makeCache(true);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getWeight());
+        assertEquals(0, clockSize(cache));
+        assertNull(cache.get("a"));
+    }
+
+    @Test
+    public void weakKeysLookUpByValue() {
+        makeCache(true);
+        String key = new String("key");
+        cache.put(key, "value");
+        assertEquals("value", cache.get(new String("key")));
+    }
+}
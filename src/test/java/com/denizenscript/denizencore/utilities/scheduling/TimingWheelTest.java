@@ -0,0 +1,117 @@
+package com.denizenscript.denizencore.utilities.scheduling;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TimingWheelTest {
+
+    @Test
+    public void firesInOrderAtDueTime() {
+        TimingWheel<String> wheel = new TimingWheel<>(0);
+        wheel.add("c", 5000);
+        wheel.add("a", 10);
+        wheel.add("b", 70);
+        List<String> output = new ArrayList<>();
+        wheel.advance(9, output);
+        assertTrue(output.isEmpty(), "nothing is due yet");
+        wheel.advance(70, output);
+        assertEquals(Arrays.asList("a", "b"), output);
+        output.clear();
+        wheel.advance(4999, output);
+        assertTrue(output.isEmpty(), "'c' isn't due yet");
+        wheel.advance(5000, output);
+        assertEquals(Collections.singletonList("c"), output);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void pastTimesFireOnNextAdvance() {
+        TimingWheel<String> wheel = new TimingWheel<>(1000);
+        wheel.add("late", 5);
+        List<String> output = new ArrayList<>();
+        wheel.advance(1000, output);
+        assertTrue(output.isEmpty(), "the wheel is already at 1000");
+        wheel.advance(1001, output);
+        assertEquals(Collections.singletonList("late"), output);
+    }
+
+    @Test
+    public void higherLevelEntriesCascade() {
+        TimingWheel<String> wheel = new TimingWheel<>(0);
+        wheel.add("level3", 1_000_003);
+        wheel.add("level2", 4_100);
+        wheel.add("level1", 65);
+        List<String> output = new ArrayList<>();
+        wheel.advance(64, output);
+        assertTrue(output.isEmpty(), "fired early");
+        wheel.advance(4_100, output);
+        assertEquals(Arrays.asList("level1", "level2"), output);
+        output.clear();
+        wheel.advance(1_000_002, output);
+        assertTrue(output.isEmpty(), "fired early");
+        wheel.advance(1_000_003, output);
+        assertEquals(Collections.singletonList("level3"), output);
+    }
+
+    @Test
+    public void removedEntriesNeverFire() {
+        TimingWheel<Integer> wheel = new TimingWheel<>(0);
+        TimingWheel.Entry<Integer> kept = wheel.add(1, 100);
+        TimingWheel.Entry<Integer> removed = wheel.add(2, 100);
+        assertTrue(wheel.remove(removed));
+        assertFalse(wheel.remove(removed), "removing twice should fail");
+        assertFalse(removed.isInWheel());
+        assertTrue(kept.isInWheel());
+        List<Integer> output = new ArrayList<>();
+        wheel.advance(100, output);
+        assertEquals(Collections.singletonList(1), output);
+        assertFalse(kept.isInWheel(), "fired entries leave the wheel");
+    }
+
+    @Test
+    public void randomScheduleMatchesDueTimes() {
+        Random random = new Random(1);
+        TimingWheel<Integer> wheel = new TimingWheel<>(0);
+        List<TimingWheel.Entry<Integer>> entries = new ArrayList<>();
+        Map<Integer, Long> due = new HashMap<>();
+        Set<Integer> removed = new HashSet<>();
+        int count = 5000;
+        for (int i = 0; i < count; i++) {
+            long time = random.nextInt(1 << random.nextInt(25));
+            entries.add(wheel.add(i, time));
+            due.put(i, time);
+        }
+        for (int i = 0; i < count; i += 3) {
+            assertTrue(wheel.remove(entries.get(i)));
+            removed.add(i);
+        }
+        List<Integer> all = new ArrayList<>();
+        wheel.collect(all);
+        assertEquals(count - removed.size(), all.size());
+        assertEquals(all.size(), wheel.size());
+        List<Integer> output = new ArrayList<>();
+        Set<Integer> fired = new HashSet<>();
+        long now = 0;
+        while (wheel.size() > 0) {
+            now += 1 + random.nextInt(5000);
+            output.clear();
+            wheel.advance(now, output);
+            for (int value : output) {
+                assertFalse(removed.contains(value), "removed entry " + value + " fired");
+                assertTrue(due.get(value) <= now, "entry " + value + " fired early");
+                assertTrue(fired.add(value), "entry " + value + " fired twice");
+            }
+            for (int i = 0; i < 3; i++) {
+                int index = random.nextInt(count);
+                if (entries.get(index).isInWheel()) {
+                    wheel.remove(entries.get(index));
+                    removed.add(index);
+                }
+            }
+        }
+        assertEquals(count, fired.size() + removed.size());
+    }
+}